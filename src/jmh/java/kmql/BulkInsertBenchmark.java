@@ -0,0 +1,106 @@
+package kmql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import kmql.table.ReplicasTable;
+
+/**
+ * Measures rows/sec of loading the replicas table row by row (as tables used to do) versus through
+ * {@link BulkInserter} in a single transaction (as {@link Database} prepares tables now).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BulkInsertBenchmark {
+    private static final int ROWS = 100_000;
+    private static final int PARTITIONS_PER_TOPIC = 50;
+    private static final int REPLICATION_FACTOR = 3;
+    private static final String INSERT_SQL =
+            "INSERT INTO replicas (topic, partition, broker_id, is_leader, is_preferred_leader, is_in_sync, replica_order)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @State(Scope.Thread)
+    public static class BatchSize {
+        @Param({ "1", "100", "1000", "10000" })
+        private int value;
+    }
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection("jdbc:h2:mem:");
+        new ReplicasTable().create(connection);
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("TRUNCATE TABLE replicas");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowByRow() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < ROWS; i++) {
+                int partition = i / REPLICATION_FACTOR;
+                int order = i % REPLICATION_FACTOR;
+                stmt.setString(1, "topic-" + partition / PARTITIONS_PER_TOPIC);
+                stmt.setInt(2, partition % PARTITIONS_PER_TOPIC);
+                stmt.setInt(3, order);
+                stmt.setBoolean(4, order == 0);
+                stmt.setBoolean(5, order == 0);
+                stmt.setBoolean(6, true);
+                stmt.setInt(7, order);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void bulk(BatchSize batchSize) throws SQLException {
+        connection.setAutoCommit(false);
+        try (BulkInserter inserter = new BulkInserter(connection, INSERT_SQL, batchSize.value)) {
+            for (int i = 0; i < ROWS; i++) {
+                int partition = i / REPLICATION_FACTOR;
+                int order = i % REPLICATION_FACTOR;
+                inserter.setString(1, "topic-" + partition / PARTITIONS_PER_TOPIC);
+                inserter.setInt(2, partition % PARTITIONS_PER_TOPIC);
+                inserter.setInt(3, order);
+                inserter.setBoolean(4, order == 0);
+                inserter.setBoolean(5, order == 0);
+                inserter.setBoolean(6, true);
+                inserter.setInt(7, order);
+                inserter.add();
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
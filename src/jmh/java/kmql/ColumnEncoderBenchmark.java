@@ -0,0 +1,95 @@
+package kmql;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import kmql.format.SsvFormat;
+import kmql.table.ReplicasTable;
+
+/**
+ * Compares per-row cost of writing a replicas dump in SSV through typed column encoders against reading
+ * every cell by getObject and String.valueOf as formats used to.
+ * Run with the gc profiler (enabled in build.gradle) and compare gc.alloc.rate.norm, which is in bytes
+ * per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColumnEncoderBenchmark {
+    private static final int ROWS = 100_000;
+    private static final String REPLICAS_SQL =
+            "INSERT INTO replicas SELECT 'topic-' || (X / 150), MOD(X / 3, 50), MOD(X / 3 + MOD(X, 3), 100),"
+            + " MOD(X, 3) = 0, MOD(X, 3) = 0, TRUE, MOD(X, 3) FROM SYSTEM_RANGE(0, " + (ROWS - 1) + ')';
+    private static final OutputStream NULL_OUTPUT = new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    private Connection connection;
+    private final OutputFormat format = new SsvFormat();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection("jdbc:h2:mem:");
+        new ReplicasTable().create(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(REPLICAS_SQL);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void getObject() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT * FROM replicas")) {
+            int columns = results.getMetaData().getColumnCount();
+            PrintWriter pw = new PrintWriter(new BufferedOutputStream(NULL_OUTPUT));
+            String[] fields = new String[columns];
+            while (results.next()) {
+                for (int i = 0; i < columns; i++) {
+                    Object value = results.getObject(i + 1);
+                    fields[i] = String.valueOf(value);
+                }
+                pw.println(String.join(" ", fields));
+            }
+            pw.flush();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void encoders() throws SQLException, IOException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT * FROM replicas")) {
+            format.formatTo(results, new BufferedOutputStream(NULL_OUTPUT));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package kmql;
+
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import kmql.storage.H2Backend;
+
+/**
+ * Measures throughput of queries issued by multiple threads to a shared {@link Database}, alone and while
+ * another thread keeps refreshing the table they read.
+ * The "pooled" database gives each thread a connection of its own, while the "single" one has only one
+ * connection that all threads take turns to use, which is how every query was serialized before pooling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConcurrentQueryBenchmark {
+    private static final int TOPICS = 1000;
+    private static final int PARTITIONS_PER_TOPIC = 50;
+
+    @Param({ "pooled", "single" })
+    private String connections;
+
+    private Database db;
+    private AdminClient adminClient;
+    // Changes the contents of the table on every refresh
+    private volatile int refreshes;
+
+    private class PartitionsTable implements Table {
+        @Override
+        public String name() {
+            return "partitions";
+        }
+
+        @Override
+        public void create(Connection connection) throws Exception {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE TABLE partitions (topic VARCHAR(255) NOT NULL, partition INT NOT NULL, "
+                             + "leader INT NOT NULL, PRIMARY KEY (topic, partition))");
+            }
+        }
+
+        @Override
+        public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+            int shift = refreshes;
+            try (BulkInserter inserter = new BulkInserter(
+                    connection, "INSERT INTO partitions (topic, partition, leader) VALUES (?, ?, ?)")) {
+                for (int topic = 0; topic < TOPICS; topic++) {
+                    for (int partition = 0; partition < PARTITIONS_PER_TOPIC; partition++) {
+                        inserter.setString(1, "topic-" + topic);
+                        inserter.setInt(2, partition);
+                        // Leadership of the first partition of every topic moves on each refresh
+                        inserter.setInt(3, (topic + partition + (partition == 0 ? shift : 0)) % 100);
+                        inserter.add();
+                    }
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        TableRegistry registry = new TableRegistry();
+        registry.register("partitions", new PartitionsTable());
+        H2Backend backend = new H2Backend();
+        db = new Database(backend.createDatabase(), backend, registry,
+                          "pooled".equals(connections) ? ConnectionPool.DEFAULT_MAX_CONNECTIONS : 1);
+        adminClient = mock(AdminClient.class);
+        db.prepareTable("partitions", adminClient);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    private long query() throws SQLException {
+        long[] rows = new long[1];
+        String topic = "topic-" + ThreadLocalRandom.current().nextInt(TOPICS);
+        db.executeQuery("SELECT leader, COUNT(*) FROM partitions WHERE topic = '" + topic + "' GROUP BY leader",
+                        results -> {
+                            try {
+                                while (results.next()) {
+                                    rows[0]++;
+                                }
+                            } catch (SQLException e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+        return rows[0];
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long queries() throws SQLException {
+        return query();
+    }
+
+    @Benchmark
+    @Group("queriesWhileRefreshing")
+    @GroupThreads(7)
+    public long queriesDuringRefresh() throws SQLException {
+        return query();
+    }
+
+    @Benchmark
+    @Group("queriesWhileRefreshing")
+    @GroupThreads(1)
+    public long refresh() throws Exception {
+        refreshes++;
+        return db.refreshTable("partitions", adminClient).changed();
+    }
+}
@@ -0,0 +1,95 @@
+package kmql;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import kmql.table.ReplicasTable;
+
+/**
+ * Measures rows/sec and output size of dumping a large replicas table in each of the JSON formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonFormatBenchmark {
+    // 100k partitions in 2k topics, replicated to 3 of 100 brokers
+    private static final int ROWS = 300_000;
+    private static final String REPLICAS_SQL =
+            "INSERT INTO replicas SELECT 'topic-' || (X / 150), MOD(X / 3, 50), MOD(X / 3 + MOD(X, 3), 100),"
+            + " MOD(X, 3) = 0, MOD(X, 3) = 0, TRUE, MOD(X, 3) FROM SYSTEM_RANGE(0, " + (ROWS - 1) + ')';
+
+    @AuxCounters(Type.EVENTS)
+    @State(Scope.Thread)
+    public static class OutputSize {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Param({ "json", "ndjson", "json-columnar" })
+    private String format;
+
+    private Connection connection;
+    private OutputFormat outputFormat;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection("jdbc:h2:mem:");
+        new ReplicasTable().create(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(REPLICAS_SQL);
+        }
+        outputFormat = OutputFormatRegistry.DEFAULT.lookup(format).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void dump(OutputSize size) throws SQLException, IOException {
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                size.bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                size.bytes += len;
+            }
+        };
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT * FROM replicas");
+             BufferedOutputStream out = new BufferedOutputStream(counter)) {
+            outputFormat.formatTo(results, out);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package kmql;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures each format registered in {@link OutputFormatRegistry#DEFAULT} writing narrow and wide results
+ * to a discarding output.
+ * Results are held in memory by a rewindable {@link SimpleResultSet} so that only the format is measured.
+ * The "rows" and "megabytes" counters are reported as rows/sec and MB/sec, and gc.alloc.rate.norm of the
+ * gc profiler (enabled in build.gradle) is in bytes per result, hence divide it by rows for bytes per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OutputFormatBenchmark {
+    private static final int DISTINCT_STRINGS = 1000;
+
+    @AuxCounters(Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public long rows;
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            megabytes = 0;
+        }
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    @Param({ "table", "json", "ssv", "ndjson", "json-columnar" })
+    private String format;
+
+    /**
+     * narrow: a replicas dump, 7 columns.
+     * wide: 28 columns of strings, ints, bigints and decimals, with some nulls.
+     */
+    @Param({ "narrow", "wide" })
+    private String shape;
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    private OutputFormat outputFormat;
+    private SimpleResultSet results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        outputFormat = OutputFormatRegistry.DEFAULT.lookup(format).orElseThrow(
+                () -> new IllegalArgumentException("unknown format: " + format));
+        // Share values between rows to keep a million wide rows in memory
+        String[] strings = new String[DISTINCT_STRINGS];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = "topic-" + i;
+        }
+        results = new SimpleResultSet();
+        results.setAutoClose(false);
+        if ("narrow".equals(shape)) {
+            results.addColumn("topic", Types.VARCHAR, 255, 0);
+            results.addColumn("partition", Types.INTEGER, 10, 0);
+            results.addColumn("broker_id", Types.INTEGER, 10, 0);
+            results.addColumn("is_leader", Types.BOOLEAN, 1, 0);
+            results.addColumn("is_preferred_leader", Types.BOOLEAN, 1, 0);
+            results.addColumn("is_in_sync", Types.BOOLEAN, 1, 0);
+            results.addColumn("replica_order", Types.INTEGER, 10, 0);
+            for (int i = 0; i < rows; i++) {
+                int order = i % 3;
+                results.addRow(strings[i / 150 % DISTINCT_STRINGS], i / 3 % 50, (i / 3 + order) % 100,
+                               order == 0, order == 0, true, order);
+            }
+        } else if ("wide".equals(shape)) {
+            for (int c = 0; c < 7; c++) {
+                results.addColumn("string" + c, Types.VARCHAR, 255, 0);
+                results.addColumn("int" + c, Types.INTEGER, 10, 0);
+                results.addColumn("long" + c, Types.BIGINT, 19, 0);
+                results.addColumn("decimal" + c, Types.DECIMAL, 20, 2);
+            }
+            Object[] row = new Object[28];
+            for (int i = 0; i < rows; i++) {
+                for (int c = 0; c < 7; c++) {
+                    row[c * 4] = c == 6 ? null : strings[(i + c) % DISTINCT_STRINGS];
+                    row[c * 4 + 1] = i % 1000 + c;
+                    row[c * 4 + 2] = (long) i * 1_000_000 + c;
+                    row[c * 4 + 3] = c == 6 ? null : BigDecimal.valueOf(i % 100_000 + c, 2);
+                }
+                results.addRow(row.clone());
+            }
+        } else {
+            throw new IllegalArgumentException("unknown shape: " + shape);
+        }
+    }
+
+    @Benchmark
+    public void format(Throughput throughput) throws SQLException, IOException {
+        results.beforeFirst();
+        DiscardingOutputStream discard = new DiscardingOutputStream();
+        try (BufferedOutputStream out = new BufferedOutputStream(discard)) {
+            outputFormat.formatTo(results, out);
+        }
+        throughput.rows += rows;
+        throughput.megabytes += discard.bytes / 1_000_000.0;
+    }
+}
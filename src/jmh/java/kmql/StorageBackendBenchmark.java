@@ -0,0 +1,178 @@
+package kmql;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import kmql.table.BrokersTable;
+import kmql.table.ConfigsTable;
+import kmql.table.LogdirsTable;
+import kmql.table.ReplicasTable;
+
+/**
+ * Measures latency of the README example queries on each {@link StorageBackend} over a synthetic cluster.
+ * Queries are written in the portable subset of SQL that all backends accept, e.g, grouping by plain
+ * columns rather than by a row value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StorageBackendBenchmark {
+    private static final int BROKERS = 100;
+    private static final int PARTITIONS_PER_TOPIC = 50;
+    private static final int REPLICATION_FACTOR = 3;
+    private static final Map<String, String> QUERIES = new HashMap<>();
+
+    static {
+        QUERIES.put("topicReplicas", "SELECT * FROM replicas WHERE topic = 'topic-1'");
+        QUERIES.put("largeTopics",
+                    "SELECT topic, COUNT(DISTINCT partition) AS partitions FROM replicas GROUP BY topic "
+                    + "HAVING COUNT(DISTINCT partition) > 10 ORDER BY partitions DESC");
+        QUERIES.put("leadersOnBroker", "SELECT topic, partition FROM replicas WHERE broker_id = 1 AND is_leader");
+        QUERIES.put("outOfSync", "SELECT DISTINCT topic, partition FROM replicas WHERE NOT is_in_sync");
+        QUERIES.put("nonPreferredLeaders", "SELECT * FROM replicas WHERE is_leader AND NOT is_preferred_leader");
+        QUERIES.put("downConversion",
+                    "SELECT name FROM configs WHERE resource_type = 'topic' "
+                    + "AND key = 'message.downconversion.enable' AND value = 'true'");
+        QUERIES.put("largeLogdirs",
+                    "SELECT host FROM brokers RIGHT JOIN logdirs ON id = broker_id GROUP BY id, host "
+                    + "HAVING SUM(size) > 10000000000000");
+        QUERIES.put("underMinIsr",
+                    "SELECT topic, partition, isr, value AS minISR FROM configs RIGHT JOIN ("
+                    + "SELECT topic, partition, COUNT(*) AS isr FROM replicas WHERE is_in_sync "
+                    + "GROUP BY topic, partition) r ON name = topic "
+                    + "WHERE key = 'min.insync.replicas' AND isr < CAST(value AS INT)");
+    }
+
+    @Param({ "h2", "duckdb" })
+    private String backend;
+
+    @Param({ "10000", "100000", "1000000" })
+    private int partitions;
+
+    @Param({ "topicReplicas", "largeTopics", "leadersOnBroker", "outOfSync", "nonPreferredLeaders",
+             "downConversion", "largeLogdirs", "underMinIsr" })
+    private String query;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = StorageBackendRegistry.DEFAULT.lookup(backend).get().createDatabase();
+        new BrokersTable().create(connection);
+        new ReplicasTable().create(connection);
+        new LogdirsTable().create(connection);
+        new ConfigsTable().create(connection);
+        connection.setAutoCommit(false);
+        loadBrokers();
+        loadReplicasAndLogdirs();
+        loadConfigs();
+        connection.setAutoCommit(true);
+    }
+
+    private void loadBrokers() throws SQLException {
+        try (BulkInserter inserter = new BulkInserter(
+                connection, "INSERT INTO brokers (id, host, port, rack, is_controller) VALUES (?, ?, ?, ?, ?)")) {
+            for (int id = 0; id < BROKERS; id++) {
+                inserter.setInt(1, id);
+                inserter.setString(2, "broker" + id + ".example.com");
+                inserter.setInt(3, 9092);
+                inserter.setString(4, "rack" + id % 3);
+                inserter.setBoolean(5, id == 0);
+                inserter.add();
+            }
+        }
+    }
+
+    private void loadReplicasAndLogdirs() throws SQLException {
+        try (BulkInserter replicas = new BulkInserter(
+                connection, "INSERT INTO replicas (topic, partition, broker_id, is_leader, is_preferred_leader,"
+                            + " is_in_sync, replica_order) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             BulkInserter logdirs = new BulkInserter(
+                     connection, "INSERT INTO logdirs (broker_id, path, topic, partition, size, offset_lag,"
+                                 + " is_future) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < partitions; i++) {
+                String topic = "topic-" + i / PARTITIONS_PER_TOPIC;
+                int partition = i % PARTITIONS_PER_TOPIC;
+                for (int order = 0; order < REPLICATION_FACTOR; order++) {
+                    int brokerId = (i + order) % BROKERS;
+                    replicas.setString(1, topic);
+                    replicas.setInt(2, partition);
+                    replicas.setInt(3, brokerId);
+                    // Every 100th partition has its leadership moved to the second replica
+                    replicas.setBoolean(4, order == (i % 100 == 0 ? 1 : 0));
+                    replicas.setBoolean(5, order == 0);
+                    // Every 1000th partition has an out-of-sync replica
+                    replicas.setBoolean(6, order != 2 || i % 1000 != 0);
+                    replicas.setInt(7, order);
+                    replicas.add();
+
+                    logdirs.setInt(1, brokerId);
+                    logdirs.setString(2, "/data" + i % 4);
+                    logdirs.setString(3, topic);
+                    logdirs.setInt(4, partition);
+                    logdirs.setLong(5, 1_000_000_000L * (i % 100));
+                    logdirs.setLong(6, 0);
+                    logdirs.setBoolean(7, false);
+                    logdirs.add();
+                }
+            }
+        }
+    }
+
+    private void loadConfigs() throws SQLException {
+        try (BulkInserter inserter = new BulkInserter(
+                connection, "INSERT INTO configs (resource_type, name, key, value, source, is_default,"
+                            + " is_sensitive) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int topic = 0; topic < partitions / PARTITIONS_PER_TOPIC; topic++) {
+                addTopicConfig(inserter, topic, "min.insync.replicas", topic % 10 == 0 ? "3" : "2");
+                addTopicConfig(inserter, topic, "message.downconversion.enable",
+                               String.valueOf(topic % 2 == 0));
+            }
+        }
+    }
+
+    private static void addTopicConfig(BulkInserter inserter, int topic, String key, String value)
+            throws SQLException {
+        inserter.setString(1, "topic");
+        inserter.setString(2, "topic-" + topic);
+        inserter.setString(3, key);
+        inserter.setString(4, value);
+        inserter.setString(5, "dynamic_topic_config");
+        inserter.setBoolean(6, false);
+        inserter.setBoolean(7, false);
+        inserter.add();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long query() throws SQLException {
+        long rows = 0;
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery(QUERIES.get(query))) {
+            while (results.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
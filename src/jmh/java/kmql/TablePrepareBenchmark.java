@@ -0,0 +1,297 @@
+package kmql;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.DescribeConfigsResult;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsResult;
+import org.apache.kafka.clients.admin.DescribeLogDirsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupsResult;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.clients.admin.MemberAssignment;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.ReplicaInfo;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.AuxCounters.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import kmql.table.BrokersTable;
+import kmql.table.ConfigsTable;
+import kmql.table.ConsumersTable;
+import kmql.table.LogdirsTable;
+import kmql.table.ReplicasTable;
+
+/**
+ * Measures {@link Table#prepare} of the tables whose size grows with the number of partitions, fed from
+ * an {@link AdminClient} stub that returns pre-generated metadata of a synthetic cluster.
+ * Throughput mode reports prepares/sec along with the "rows" counter as rows/sec, average time mode the
+ * time to prepare, and the gc profiler the allocation per prepare.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TablePrepareBenchmark {
+    private static final int BROKERS = 100;
+    private static final int PARTITIONS_PER_TOPIC = 50;
+    private static final int REPLICATION_FACTOR = 3;
+    private static final int LOG_DIRS_PER_BROKER = 4;
+    private static final int CONFIGS_PER_RESOURCE = 20;
+    private static final int MEMBERS_PER_GROUP = 5;
+
+    @AuxCounters(Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Param({ "replicas", "logdirs", "configs", "consumers" })
+    private String table;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int partitions;
+
+    private Connection connection;
+    private AdminClient adminClient;
+    private Table target;
+    private long rowsPerPrepare;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection("jdbc:h2:mem:");
+        adminClient = mock(AdminClient.class, withSettings().stubOnly());
+
+        List<Node> nodes = new ArrayList<>(BROKERS);
+        for (int i = 0; i < BROKERS; i++) {
+            nodes.add(new Node(i, "broker" + i + ".example.com", 9092));
+        }
+        List<String> topics = new ArrayList<>(partitions / PARTITIONS_PER_TOPIC);
+        for (int i = 0; i < partitions / PARTITIONS_PER_TOPIC; i++) {
+            topics.add("topic-" + i);
+        }
+
+        switch (table) {
+            case "replicas":
+                target = new ReplicasTable();
+                stubTopics(nodes, topics);
+                rowsPerPrepare = (long) partitions * REPLICATION_FACTOR;
+                break;
+            case "logdirs":
+                target = new LogdirsTable();
+                seedBrokers();
+                stubLogDirs(topics);
+                rowsPerPrepare = (long) partitions * REPLICATION_FACTOR;
+                break;
+            case "configs":
+                target = new ConfigsTable();
+                seedBrokers();
+                // Configs are described for the topics found in replicas, so load it through the same stub
+                stubTopics(nodes, topics);
+                ReplicasTable replicas = new ReplicasTable();
+                replicas.create(connection);
+                replicas.prepare(connection, adminClient);
+                stubConfigs(topics);
+                rowsPerPrepare = (long) (BROKERS + topics.size()) * CONFIGS_PER_RESOURCE;
+                break;
+            case "consumers":
+                target = new ConsumersTable();
+                stubConsumerGroups(nodes, topics);
+                rowsPerPrepare = partitions;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown table: " + table);
+        }
+        target.create(connection);
+    }
+
+    private void seedBrokers() throws Exception {
+        new BrokersTable().create(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO brokers SELECT X, 'broker' || X || '.example.com', 9092, NULL, X = 0"
+                         + " FROM SYSTEM_RANGE(0, " + (BROKERS - 1) + ')');
+        }
+    }
+
+    private static List<Node> replicas(List<Node> nodes, int topic, int partition) {
+        List<Node> replicas = new ArrayList<>(REPLICATION_FACTOR);
+        for (int i = 0; i < REPLICATION_FACTOR; i++) {
+            replicas.add(nodes.get((topic + partition + i) % BROKERS));
+        }
+        return replicas;
+    }
+
+    private void stubTopics(List<Node> nodes, List<String> topics) {
+        Map<String, TopicDescription> descriptions = new HashMap<>();
+        for (int i = 0; i < topics.size(); i++) {
+            List<TopicPartitionInfo> infos = new ArrayList<>(PARTITIONS_PER_TOPIC);
+            for (int p = 0; p < PARTITIONS_PER_TOPIC; p++) {
+                List<Node> replicas = replicas(nodes, i, p);
+                infos.add(new TopicPartitionInfo(p, replicas.get(0), replicas, replicas));
+            }
+            descriptions.put(topics.get(i), new TopicDescription(topics.get(i), false, infos));
+        }
+
+        ListTopicsResult listResult = mock(ListTopicsResult.class, withSettings().stubOnly());
+        doReturn(KafkaFuture.completedFuture(new HashSet<>(topics))).when(listResult).names();
+        doReturn(listResult).when(adminClient).listTopics(any(ListTopicsOptions.class));
+        doAnswer(invocation -> {
+            Collection<String> names = invocation.getArgument(0);
+            Map<String, TopicDescription> chunk = new HashMap<>();
+            for (String name : names) {
+                chunk.put(name, descriptions.get(name));
+            }
+            DescribeTopicsResult result = mock(DescribeTopicsResult.class, withSettings().stubOnly());
+            doReturn(KafkaFuture.completedFuture(chunk)).when(result).all();
+            return result;
+        }).when(adminClient).describeTopics(anyCollection());
+    }
+
+    private void stubLogDirs(List<String> topics) {
+        List<Map<TopicPartition, ReplicaInfo>> dirs = new ArrayList<>(BROKERS * LOG_DIRS_PER_BROKER);
+        for (int i = 0; i < BROKERS * LOG_DIRS_PER_BROKER; i++) {
+            dirs.add(new HashMap<>());
+        }
+        for (int i = 0; i < topics.size(); i++) {
+            for (int p = 0; p < PARTITIONS_PER_TOPIC; p++) {
+                ReplicaInfo info = new ReplicaInfo(1024L * 1024 * 1024, 0, false);
+                for (int r = 0; r < REPLICATION_FACTOR; r++) {
+                    int broker = (i + p + r) % BROKERS;
+                    int dir = broker * LOG_DIRS_PER_BROKER + p % LOG_DIRS_PER_BROKER;
+                    dirs.get(dir).put(new TopicPartition(topics.get(i), p), info);
+                }
+            }
+        }
+        Map<Integer, Map<String, LogDirInfo>> logDirs = new HashMap<>();
+        for (int broker = 0; broker < BROKERS; broker++) {
+            Map<String, LogDirInfo> brokerDirs = new HashMap<>();
+            for (int d = 0; d < LOG_DIRS_PER_BROKER; d++) {
+                brokerDirs.put("/var/kafka/data" + d,
+                               new LogDirInfo(Errors.NONE, dirs.get(broker * LOG_DIRS_PER_BROKER + d)));
+            }
+            logDirs.put(broker, brokerDirs);
+        }
+
+        DescribeLogDirsResult result = mock(DescribeLogDirsResult.class, withSettings().stubOnly());
+        doReturn(KafkaFuture.completedFuture(logDirs)).when(result).all();
+        doReturn(result).when(adminClient).describeLogDirs(anyCollection());
+    }
+
+    private static Config config(String prefix) {
+        List<ConfigEntry> entries = new ArrayList<>(CONFIGS_PER_RESOURCE);
+        for (int i = 0; i < CONFIGS_PER_RESOURCE; i++) {
+            entries.add(new ConfigEntry(prefix + ".config" + i, String.valueOf(i * 1000)));
+        }
+        return new Config(entries);
+    }
+
+    private void stubConfigs(List<String> topics) {
+        Config brokerConfig = config("broker");
+        Config topicConfig = config("topic");
+        Map<ConfigResource, Config> configs = new HashMap<>();
+        for (int i = 0; i < BROKERS; i++) {
+            configs.put(new ConfigResource(ConfigResource.Type.BROKER, String.valueOf(i)), brokerConfig);
+        }
+        for (String topic : topics) {
+            configs.put(new ConfigResource(ConfigResource.Type.TOPIC, topic), topicConfig);
+        }
+
+        DescribeConfigsResult result = mock(DescribeConfigsResult.class, withSettings().stubOnly());
+        doReturn(KafkaFuture.completedFuture(configs)).when(result).all();
+        doReturn(result).when(adminClient).describeConfigs(anyCollection());
+    }
+
+    private void stubConsumerGroups(List<Node> nodes, List<String> topics) {
+        // A group per topic, with its partitions spread over members
+        List<ConsumerGroupListing> listings = new ArrayList<>(topics.size());
+        Map<String, ConsumerGroupDescription> descriptions = new HashMap<>();
+        for (int i = 0; i < topics.size(); i++) {
+            String groupId = "group-" + i;
+            List<MemberDescription> members = new ArrayList<>(MEMBERS_PER_GROUP);
+            for (int m = 0; m < MEMBERS_PER_GROUP; m++) {
+                Set<TopicPartition> assignment = new HashSet<>();
+                for (int p = m; p < PARTITIONS_PER_TOPIC; p += MEMBERS_PER_GROUP) {
+                    assignment.add(new TopicPartition(topics.get(i), p));
+                }
+                String clientId = groupId + "-client-" + m;
+                members.add(new MemberDescription(clientId + "-uuid", clientId, "/10.0.0." + m,
+                                                  new MemberAssignment(assignment)));
+            }
+            listings.add(new ConsumerGroupListing(groupId, false));
+            descriptions.put(groupId, new ConsumerGroupDescription(
+                    groupId, false, members, "range", ConsumerGroupState.STABLE, nodes.get(i % BROKERS)));
+        }
+
+        ListConsumerGroupsResult listResult = mock(ListConsumerGroupsResult.class, withSettings().stubOnly());
+        doReturn(KafkaFuture.completedFuture(listings)).when(listResult).all();
+        doReturn(listResult).when(adminClient).listConsumerGroups();
+        DescribeConsumerGroupsResult describeResult =
+                mock(DescribeConsumerGroupsResult.class, withSettings().stubOnly());
+        doReturn(KafkaFuture.completedFuture(descriptions)).when(describeResult).all();
+        doReturn(describeResult).when(adminClient).describeConsumerGroups(anyCollection());
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("TRUNCATE TABLE " + target.name());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void prepare(Rows rows) throws Exception {
+        target.prepare(connection, adminClient);
+        rows.rows += rowsPerPrepare;
+    }
+}
@@ -0,0 +1,153 @@
+package kmql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * An inserter that feeds rows into a table through batched executions of a {@link PreparedStatement}.
+ * Rows are added by setting each parameter and then calling {@link #add()}, and pending rows are written
+ * when the batch gets full or when this inserter is closed.
+ */
+public class BulkInserter implements AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Running totals of rows written by all inserters on a thread, which let {@link Database} attribute rows
+     * and the time spent writing them to the table being loaded by taking differences.
+     */
+    static final class ThreadTotals {
+        long rows;
+        // Estimated size of the values, counting strings as UTF-16
+        long bytes;
+        // Time spent executing inserts
+        long nanos;
+
+        ThreadTotals minus(ThreadTotals other) {
+            ThreadTotals difference = new ThreadTotals();
+            difference.rows = rows - other.rows;
+            difference.bytes = bytes - other.bytes;
+            difference.nanos = nanos - other.nanos;
+            return difference;
+        }
+    }
+
+    private static final ThreadLocal<ThreadTotals> THREAD_TOTALS = ThreadLocal.withInitial(ThreadTotals::new);
+
+    private final PreparedStatement stmt;
+    private final boolean batchSupported;
+    private final int batchSize;
+    private int pendingRows;
+    private long rows;
+    // Inserters are used by the thread that created them
+    private final ThreadTotals totals = THREAD_TOTALS.get();
+
+    /**
+     * Create a new {@link BulkInserter} with the {@link #DEFAULT_BATCH_SIZE}.
+     * @param connection a JDBC {@link Connection}.
+     * @param sql an INSERT statement with parameter placeholders.
+     * @throws SQLException when failed to prepare the statement.
+     */
+    public BulkInserter(Connection connection, String sql) throws SQLException {
+        this(connection, sql, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a new {@link BulkInserter}.
+     * @param connection a JDBC {@link Connection}.
+     * @param sql an INSERT statement with parameter placeholders.
+     * @param batchSize maximum number of rows to send in one batch.
+     * @throws SQLException when failed to prepare the statement.
+     */
+    public BulkInserter(Connection connection, String sql, int batchSize) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        stmt = connection.prepareStatement(sql);
+        batchSupported = connection.getMetaData().supportsBatchUpdates();
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Return a copy of the totals of the current thread.
+     */
+    static ThreadTotals threadTotals() {
+        return THREAD_TOTALS.get().minus(new ThreadTotals());
+    }
+
+    public void setInt(int index, int value) throws SQLException {
+        stmt.setInt(index, value);
+        totals.bytes += 4;
+    }
+
+    public void setLong(int index, long value) throws SQLException {
+        stmt.setLong(index, value);
+        totals.bytes += 8;
+    }
+
+    public void setBoolean(int index, boolean value) throws SQLException {
+        stmt.setBoolean(index, value);
+        totals.bytes += 1;
+    }
+
+    public void setString(int index, String value) throws SQLException {
+        stmt.setString(index, value);
+        if (value != null) {
+            totals.bytes += 2L * value.length();
+        }
+    }
+
+    public void setNull(int index, int sqlType) throws SQLException {
+        stmt.setNull(index, sqlType);
+    }
+
+    /**
+     * Add the row of currently set parameters.
+     * On databases that don't support batch updates, the row is written immediately.
+     * @throws SQLException when SQL failed.
+     */
+    public void add() throws SQLException {
+        rows++;
+        totals.rows++;
+        if (!batchSupported) {
+            long start = System.nanoTime();
+            stmt.executeUpdate();
+            totals.nanos += System.nanoTime() - start;
+            return;
+        }
+        stmt.addBatch();
+        if (++pendingRows >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all pending rows.
+     * @throws SQLException when SQL failed.
+     */
+    public void flush() throws SQLException {
+        if (pendingRows > 0) {
+            long start = System.nanoTime();
+            stmt.executeBatch();
+            totals.nanos += System.nanoTime() - start;
+            pendingRows = 0;
+        }
+    }
+
+    /**
+     * Return the number of rows added to this inserter.
+     * @return the number of rows.
+     */
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+        } finally {
+            stmt.close();
+        }
+    }
+}
@@ -20,4 +20,17 @@ public interface Command {
      * @param output output stream to write any outputs.
      */
     void execute(List<String> args, Engine engine, BufferedOutputStream output);
+
+    /**
+     * Execute this command given the rest of the command line as it was typed.
+     * Commands taking free-form text such as SQL override this to keep whitespace in it, while others
+     * are executed by {@link #execute(List, Engine, BufferedOutputStream)} by default.
+     * @param argsLine the command line after the command name, without surrounding whitespace.
+     * @param args command arguments, which are the words of argsLine.
+     * @param engine a {@link Engine} of the executing context.
+     * @param output output stream to write any outputs.
+     */
+    default void execute(String argsLine, List<String> args, Engine engine, BufferedOutputStream output) {
+        execute(args, engine, output);
+    }
 }
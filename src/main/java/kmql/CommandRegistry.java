@@ -9,6 +9,8 @@ import java.util.concurrent.ConcurrentMap;
 import kmql.command.ExpireCommand;
 import kmql.command.FormatCommand;
 import kmql.command.HelpCommand;
+import kmql.command.ProfileCommand;
+import kmql.command.RefreshCommand;
 
 /**
  * Registry of meta commands.
@@ -20,6 +22,8 @@ public class CommandRegistry implements Iterable<Entry<String, Command>> {
         registerDefault("help", new HelpCommand());
         registerDefault("expire", new ExpireCommand());
         registerDefault("format", new FormatCommand());
+        registerDefault("refresh", new RefreshCommand());
+        registerDefault("profile", new ProfileCommand());
     }
 
     private final ConcurrentMap<String, Command> commands;
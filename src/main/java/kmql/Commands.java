@@ -31,7 +31,12 @@ public class Commands {
         List<String> cmdline = parseLine(line);
         Command command = engine.commandRegistry().lookup(cmdline.get(0)).orElseThrow(
                 () -> new IllegalArgumentException("no such command: " + cmdline.get(0)));
-        command.execute(cmdline.subList(1, cmdline.size()), engine, output);
+        command.execute(argsLine(line), cmdline.subList(1, cmdline.size()), engine, output);
+    }
+
+    private static String argsLine(String line) {
+        String[] nameAndArgs = line.trim().split("\\s+", 2);
+        return nameAndArgs.length > 1 ? nameAndArgs[1] : "";
     }
 
     private static List<String> parseLine(String line) {
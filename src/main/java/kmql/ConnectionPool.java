@@ -0,0 +1,163 @@
+package kmql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A pool of connections to the database of a {@link StorageBackend}, which lets threads use the database
+ * concurrently, each through a connection of its own.
+ * A connection is used by one thread at a time, from {@link #acquire()} until {@link #release(Connection)}.
+ * If the backend doesn't support multiple connections, the pool holds the only connection and threads take
+ * turns to use it.
+ */
+final class ConnectionPool implements AutoCloseable {
+    static final int DEFAULT_MAX_CONNECTIONS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final Connection primary;
+    private final StorageBackend backend;
+    private final int maxConnections;
+    // Guarded by this
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    private final List<Connection> opened = new ArrayList<>();
+    // Number of connections opened or being opened
+    private int size;
+    private boolean closed;
+
+    /**
+     * Create a new {@link ConnectionPool}.
+     * @param primary the connection returned by {@link StorageBackend#createDatabase()}, which keeps the
+     * database alive and gets closed with the pool.
+     * @param backend the backend to open more connections through.
+     * @param maxConnections maximum number of connections to open including the primary one.
+     * @throws SQLException when failed to connect.
+     */
+    ConnectionPool(Connection primary, StorageBackend backend, int maxConnections) throws SQLException {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be positive: " + maxConnections);
+        }
+        this.primary = primary;
+        this.backend = backend;
+        idle.add(primary);
+        opened.add(primary);
+        size = 1;
+        Connection second = maxConnections > 1 ? backend.connect(primary) : null;
+        if (second != null) {
+            idle.add(second);
+            opened.add(second);
+            size++;
+        }
+        this.maxConnections = second != null ? maxConnections : 1;
+    }
+
+    /**
+     * Return if threads can use the database at the same time through separate connections.
+     * @return true if the pool has more than one connection.
+     */
+    boolean concurrent() {
+        return maxConnections > 1;
+    }
+
+    /**
+     * Take a connection for exclusive use by the current thread, waiting for one to be released if all are
+     * in use.
+     * A thread must not acquire another connection before releasing the one it has, which could wait
+     * forever for the pool of a single connection.
+     * @return a {@link Connection} in auto-commit mode.
+     * @throws SQLException when failed to connect, or interrupted while waiting.
+     */
+    Connection acquire() throws SQLException {
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("connection pool closed");
+                }
+                Connection connection = idle.pollFirst();
+                if (connection != null) {
+                    return connection;
+                }
+                if (size < maxConnections) {
+                    size++;
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("interrupted while waiting for a connection", e);
+                }
+            }
+        }
+        // Connected outside the lock so that releases aren't blocked
+        Connection connection = null;
+        try {
+            connection = backend.connect(primary);
+            if (connection == null) {
+                throw new SQLException("backend stopped accepting connections");
+            }
+            return connection;
+        } finally {
+            synchronized (this) {
+                if (connection == null) {
+                    size--;
+                    notifyAll();
+                } else {
+                    opened.add(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a connection taken by {@link #acquire()} to the pool.
+     * A transaction left open on the connection is rolled back.
+     * @param connection the connection to release.
+     * @throws SQLException when failed to reset the connection.
+     */
+    void release(Connection connection) throws SQLException {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            synchronized (this) {
+                if (closed) {
+                    connection.close();
+                } else {
+                    idle.addFirst(connection);
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        List<Connection> connections;
+        synchronized (this) {
+            closed = true;
+            connections = new ArrayList<>(opened);
+            notifyAll();
+        }
+        SQLException error = null;
+        // The primary one is closed last as closing it may drop the whole database
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            try {
+                connections.get(i).close();
+            } catch (SQLException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
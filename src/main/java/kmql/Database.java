@@ -1,36 +1,171 @@
 package kmql;
 
+import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.kafka.clients.admin.AdminClient;
 
+import kmql.storage.H2Backend;
+
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 
 /**
  * A database representation that stores metadata for the Kafka cluster.
+ * A database is safe for use by multiple threads. Each thread queries and loads tables through a connection
+ * of its own taken from a {@link ConnectionPool}, and a load becomes visible to queries at once when it's
+ * committed, so queries never see a table half-loaded.
  */
 public class Database implements AutoCloseable {
     @RequiredArgsConstructor
     private static class TableMetadata {
         private final Table table;
-        private boolean initialized;
+        private volatile boolean initialized;
+        // Time in epoch millis that the contents of the table were obtained at
+        private volatile long updatedAt;
+        // Incremented whenever the contents of the table change, after the change gets visible to queries
+        private final AtomicLong generation = new AtomicLong();
+        // Load of the whole table in flight, which threads requiring the table at the same time wait for
+        private final AtomicReference<CompletableFuture<Void>> load = new AtomicReference<>();
+        // Key column and its values of the slices loaded while the table is not fully initialized,
+        // guarded by this, while the column is also read without the lock to tell if any slice is loaded
+        private volatile String sliceColumn;
+        private final Set<String> sliceValues = new HashSet<>();
+        // Instrumentation of the latest load, written while holding the lock and read without it
+        private volatile int loads;
+        private volatile long fetchNanos;
+        private volatile long insertNanos;
+        private volatile long applyNanos;
+        private volatile long rows;
+        private volatile long estimatedBytes;
+        // Time in epoch millis that the table was last refreshed at
+        private volatile long refreshedAt;
+
+        private boolean loaded() {
+            return initialized || sliceColumn != null;
+        }
+    }
+
+    /**
+     * Summary of {@link #prepareAllTables(AdminClient)}.
+     */
+    @Value
+    public static class PrepareSummary {
+        /**
+         * Number of tables that were actually prepared by the call.
+         */
+        int tables;
+        /**
+         * Wall-clock time taken to prepare all tables, which is bounded by the slowest dependency chain.
+         */
+        long elapsedMillis;
+        /**
+         * Sum of the time taken by each table, which is what it would have taken to prepare them one by one.
+         */
+        long serialMillis;
+    }
+
+    /**
+     * Statistics of a table and of its latest load by preparation, refresh or restoration from a snapshot.
+     * Durations are zero if the table has never been loaded.
+     */
+    @Value
+    public static class TableStats {
+        String name;
+        boolean initialized;
+        long rows;
+        /**
+         * Size of the values in the table estimated from the rows written through {@link BulkInserter}s.
+         */
+        long estimatedBytes;
+        int loads;
+        /**
+         * Time spent obtaining the contents, mostly waiting for {@link AdminClient}, excluding inserts.
+         */
+        long fetchNanos;
+        /**
+         * Time spent executing inserts of the loaded rows.
+         */
+        long insertNanos;
+        /**
+         * Time spent making the loaded rows ready for queries after inserting them, such as creating indexes
+         * and updating statistics, or applying the difference on refresh.
+         */
+        long applyNanos;
+        long updatedAt;
+        long refreshedAt;
+        long generation;
+
+        public long loadNanos() {
+            return fetchNanos + insertNanos + applyNanos;
+        }
+    }
+
+    /**
+     * Number of rows changed by {@link #refreshTable(String, AdminClient)}.
+     */
+    @Value
+    public static class RefreshSummary {
+        long inserted;
+        long updated;
+        long deleted;
+
+        public long changed() {
+            return inserted + updated + deleted;
+        }
+    }
+
+    // Schema to load fresh contents of tables into while they're being refreshed
+    private static final String STAGING_SCHEMA = "KMQL_STAGING";
+    // System tables exposing instrumentation, which get rewritten whenever a query reads them
+    private static final String TABLES_TABLE = "kmql_tables";
+    private static final String QUERIES_TABLE = "kmql_queries";
+
+    /**
+     * Work to do in a transaction on a connection of the pool.
+     */
+    @FunctionalInterface
+    private interface Transaction<T> {
+        T run(Connection connection) throws Exception;
     }
 
+    // Immutable after construction
     private final Map<String, TableMetadata> tables;
-    private final Connection connection;
+    private final ConnectionPool pool;
+    private final StorageBackend backend;
+    private final QueryLog queryLog = new QueryLog();
+    private final List<Consumer<TableStats>> loadListeners = new CopyOnWriteArrayList<>();
+    private final boolean scrollableResults;
 
     /**
      * Create a new {@link Database} that supports the tables in the given {@link TableRegistry}.
@@ -38,15 +173,20 @@ public class Database implements AutoCloseable {
      * @return a {@link Database}.
      */
     public static Database from(TableRegistry registry) {
-        Connection connection = createConnection();
-        return new Database(connection, registry);
+        return from(registry, new H2Backend());
     }
 
-    private static Connection createConnection() {
+    /**
+     * Create a new {@link Database} that supports the tables in the given {@link TableRegistry} and stores
+     * them in the given {@link StorageBackend}.
+     * @param registry registry containing tables to support.
+     * @param backend the backend to store tables in.
+     * @return a {@link Database}.
+     */
+    public static Database from(TableRegistry registry, StorageBackend backend) {
         try {
-            Class.forName("org.h2.Driver");
-            return DriverManager.getConnection("jdbc:h2:mem:");
-        } catch (ClassNotFoundException | SQLException e) {
+            return new Database(backend.createDatabase(), backend, registry);
+        } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
@@ -60,16 +200,65 @@ public class Database implements AutoCloseable {
     }
 
     Database(Connection connection, TableRegistry registry) {
-        this.connection = connection;
-        tables = new HashMap<>();
+        this(connection, new H2Backend(), registry);
+    }
+
+    Database(Connection connection, StorageBackend backend, TableRegistry registry) {
+        this(connection, backend, registry, ConnectionPool.DEFAULT_MAX_CONNECTIONS);
+    }
+
+    Database(Connection connection, StorageBackend backend, TableRegistry registry, int maxConnections) {
+        this.backend = backend;
+        Map<String, TableMetadata> tables = new HashMap<>();
         for (Entry<String, Table> entry : registry) {
             tables.put(entry.getKey(), new TableMetadata(entry.getValue()));
             createTable(connection, entry.getValue());
         }
+        this.tables = Collections.unmodifiableMap(tables);
+        try {
+            createSystemTables(connection);
+            scrollableResults = connection.getMetaData()
+                                          .supportsResultSetType(ResultSet.TYPE_SCROLL_INSENSITIVE);
+            pool = new ConnectionPool(connection, backend, maxConnections);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void createSystemTables(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE " + TABLES_TABLE + " ("
+                         + "name VARCHAR(255) NOT NULL,"
+                         + "initialized BOOLEAN NOT NULL,"
+                         + "row_count BIGINT NOT NULL,"
+                         + "estimated_bytes BIGINT NOT NULL,"
+                         + "loads INT NOT NULL,"
+                         + "load_ms DOUBLE NOT NULL,"
+                         + "fetch_ms DOUBLE NOT NULL,"
+                         + "insert_ms DOUBLE NOT NULL,"
+                         + "apply_ms DOUBLE NOT NULL,"
+                         + "updated_at TIMESTAMP,"
+                         + "refreshed_at TIMESTAMP,"
+                         + "generation BIGINT NOT NULL,"
+                         + "PRIMARY KEY (name))");
+            stmt.execute("CREATE TABLE " + QUERIES_TABLE + " ("
+                         + "id BIGINT NOT NULL,"
+                         + "started_at TIMESTAMP NOT NULL,"
+                         + "sql VARCHAR NOT NULL,"
+                         + "prepare_ms DOUBLE NOT NULL,"
+                         + "execute_ms DOUBLE NOT NULL,"
+                         + "format_ms DOUBLE NOT NULL,"
+                         + "result_rows BIGINT,"
+                         + "cached BOOLEAN NOT NULL,"
+                         + "PRIMARY KEY (id))");
+        }
     }
 
     /**
      * Prepare the given table if it hasn'et yet initialized.
+     * Concurrent calls for the same table, and for each of its {@link Table#dependencyTables()}, share a
+     * single load of it, and all of them fail if the load fails. The table is left uninitialized after a
+     * failure, so that later calls retry.
      * @param name the name of the table.
      * @param adminClient an {@link AdminClient} to access Kafka cluster metadata.
      * @throws Exception when SQL failed or {@link AdminClient} threw.
@@ -83,19 +272,670 @@ public class Database implements AutoCloseable {
         for (String dependencyTable : dependencyTables) {
             prepareTable(dependencyTable, adminClient);
         }
-        meta.table.prepare(connection, adminClient);
-        meta.initialized = true;
+        prepareShared(meta, adminClient);
+    }
+
+    /**
+     * Prepare the slice of the given table that matches one of the given filters if the table supports
+     * filtered preparation, or the whole table otherwise.
+     * Slices that were prepared before are kept and only missing ones are loaded.
+     * System tables are rewritten with the current statistics every time.
+     * @param name the name of the table.
+     * @param adminClient an {@link AdminClient} to access Kafka cluster metadata.
+     * @param filters filters that all rows read from the table are known to satisfy.
+     * @throws Exception when SQL failed or {@link AdminClient} threw.
+     */
+    public void prepareTable(String name, AdminClient adminClient, Collection<KeyFilter> filters)
+            throws Exception {
+        if (TABLES_TABLE.equals(name) || QUERIES_TABLE.equals(name)) {
+            writeSystemTable(name);
+            return;
+        }
+        TableMetadata meta = getTable(name);
+        if (meta.initialized) {
+            return;
+        }
+        KeyFilter filter;
+        synchronized (meta) {
+            filter = chooseFilter(meta, filters);
+        }
+        if (filter != null) {
+            for (String dependencyTable : meta.table.dependencyTables(filter)) {
+                prepareTable(dependencyTable, adminClient);
+            }
+            synchronized (meta) {
+                if (meta.initialized) {
+                    return;
+                }
+                if (filter.equals(chooseFilter(meta, Collections.singletonList(filter)))) {
+                    prepareSlice(meta, adminClient, filter);
+                    return;
+                }
+            }
+        }
+        prepareTable(name, adminClient);
+    }
+
+    /**
+     * Choose the filter to prepare a slice of the table by, or null if the whole table should be prepared.
+     */
+    private static KeyFilter chooseFilter(TableMetadata meta, Collection<KeyFilter> filters) {
+        KeyFilter filter = null;
+        for (KeyFilter candidate : filters) {
+            if (meta.table.keyColumns().contains(candidate.getColumn())
+                && (filter == null || candidate.getColumn().equals(meta.sliceColumn))) {
+                filter = candidate;
+            }
+        }
+        // Slices by different columns may overlap each other, so fallback to load the whole table
+        if (filter == null || meta.sliceColumn != null && !meta.sliceColumn.equals(filter.getColumn())) {
+            return null;
+        }
+        return filter;
+    }
+
+    private void prepareSlice(TableMetadata meta, AdminClient adminClient, KeyFilter filter) throws Exception {
+        Set<String> missingValues = new HashSet<>(filter.getValues());
+        missingValues.removeAll(meta.sliceValues);
+        if (missingValues.isEmpty()) {
+            return;
+        }
+        KeyFilter missingFilter = new KeyFilter(filter.getColumn(), missingValues);
+        Connection connection = pool.acquire();
+        try {
+            long start = System.nanoTime();
+            BulkInserter.ThreadTotals written = BulkInserter.threadTotals();
+            inTransaction(connection, conn -> {
+                meta.table.prepare(conn, adminClient, missingFilter);
+                return null;
+            });
+            long loaded = System.nanoTime();
+            createIndexes(connection, meta.table);
+            recordLoad(connection, meta, start, loaded, written);
+        } finally {
+            pool.release(connection);
+        }
+        meta.sliceColumn = filter.getColumn();
+        meta.sliceValues.addAll(missingValues);
+        meta.updatedAt = System.currentTimeMillis();
+        meta.generation.incrementAndGet();
     }
 
     /**
      * Prepare all tables that this database supports.
+     * Tables are prepared concurrently, each one starting as soon as all of its
+     * {@link Table#dependencyTables()} are prepared.
      * @param adminClient an {@link AdminClient} to access Kafka cluster metadata.
+     * @return a {@link PrepareSummary} of the preparation.
      * @throws Exception when SQL failed or {@link AdminClient} threw.
      */
-    public void prepareAllTables(AdminClient adminClient) throws Exception {
-        for (String table : tables.keySet()) {
-            prepareTable(table, adminClient);
+    public PrepareSummary prepareAllTables(AdminClient adminClient) throws Exception {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, tables.size()), runnable -> {
+            Thread thread = new Thread(runnable, "kmql-prepare-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long start = System.nanoTime();
+            Map<String, CompletableFuture<Long>> futures = new HashMap<>();
+            for (String table : tables.keySet()) {
+                schedulePrepare(table, adminClient, executor, futures);
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+            long elapsed = System.nanoTime() - start;
+
+            int prepared = 0;
+            long serial = 0;
+            for (CompletableFuture<Long> future : futures.values()) {
+                long duration = future.join();
+                if (duration > 0) {
+                    prepared++;
+                    serial += duration;
+                }
+            }
+            return new PrepareSummary(prepared,
+                                      TimeUnit.NANOSECONDS.toMillis(elapsed),
+                                      TimeUnit.NANOSECONDS.toMillis(serial));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Long> schedulePrepare(String name, AdminClient adminClient,
+                                                    ExecutorService executor,
+                                                    Map<String, CompletableFuture<Long>> futures) {
+        CompletableFuture<Long> future = futures.get(name);
+        if (future != null) {
+            return future;
+        }
+        TableMetadata meta = getTable(name);
+        CompletableFuture<?>[] dependencies =
+                meta.table.dependencyTables().stream()
+                          .map(dependency -> schedulePrepare(dependency, adminClient, executor, futures))
+                          .toArray(CompletableFuture<?>[]::new);
+        future = CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+            try {
+                return prepareShared(meta, adminClient);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        futures.put(name, future);
+        return future;
+    }
+
+    /**
+     * Prepare the given table assuming all its dependencies are already prepared, or wait for the load of
+     * the table by another thread if any.
+     * The load in flight is cleared before it completes, so that calls after a failure retry instead of
+     * getting the same failure.
+     * Callers must not hold the lock of the table, which the thread loading it waits for.
+     * @return time taken to prepare the table in nanoseconds, or zero if it was prepared by another thread
+     * or already initialized.
+     */
+    private long prepareShared(TableMetadata meta, AdminClient adminClient) throws Exception {
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        while (!meta.load.compareAndSet(null, load)) {
+            CompletableFuture<Void> inFlight = meta.load.get();
+            if (inFlight == null) {
+                continue;
+            }
+            try {
+                inFlight.get();
+                return 0;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+        long elapsed;
+        try {
+            elapsed = prepareTableOnly(meta, adminClient);
+        } catch (Throwable e) {
+            meta.load.set(null);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        meta.load.set(null);
+        load.complete(null);
+        return elapsed;
+    }
+
+    /**
+     * Prepare the given table assuming all its dependencies are already prepared.
+     * @return time taken to prepare the table in nanoseconds, or zero if it was already initialized.
+     */
+    private long prepareTableOnly(TableMetadata meta, AdminClient adminClient) throws Exception {
+        synchronized (meta) {
+            if (meta.initialized) {
+                return 0;
+            }
+            return loadTable(meta, adminClient);
+        }
+    }
+
+    /**
+     * Load the whole table while holding its lock, replacing rows of the slices or the previous load in the
+     * same transaction, so that queries on other connections keep reading them until the new contents are
+     * committed.
+     * @return time taken to load the table in nanoseconds.
+     */
+    private long loadTable(TableMetadata meta, AdminClient adminClient) throws Exception {
+        boolean replace = meta.loaded();
+        Connection connection = pool.acquire();
+        long start;
+        try {
+            start = System.nanoTime();
+            BulkInserter.ThreadTotals written = BulkInserter.threadTotals();
+            inTransaction(connection, conn -> {
+                if (replace) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.executeUpdate("DELETE FROM " + meta.table.name());
+                    }
+                }
+                meta.table.prepare(conn, adminClient);
+                return null;
+            });
+            long loaded = System.nanoTime();
+            createIndexes(connection, meta.table);
+            recordLoad(connection, meta, start, loaded, written);
+        } finally {
+            pool.release(connection);
+        }
+        meta.initialized = true;
+        meta.sliceColumn = null;
+        meta.sliceValues.clear();
+        meta.updatedAt = System.currentTimeMillis();
+        meta.generation.incrementAndGet();
+        return Math.max(1, System.nanoTime() - start);
+    }
+
+    /**
+     * Record statistics of a load of the table that started at the given time and finished inserting rows
+     * at the given time, given the totals of {@link BulkInserter}s on the current thread at the start.
+     */
+    private void recordLoad(Connection conn, TableMetadata meta, long start, long loaded,
+                                   BulkInserter.ThreadTotals totalsAtStart) throws SQLException {
+        long end = System.nanoTime();
+        BulkInserter.ThreadTotals written = BulkInserter.threadTotals().minus(totalsAtStart);
+        long rows = countRows(conn, meta.table.name());
+        meta.loads++;
+        meta.insertNanos = written.nanos;
+        meta.fetchNanos = Math.max(0, loaded - start - written.nanos);
+        meta.applyNanos = end - loaded;
+        // Slices and refreshes write only part of the table, so extrapolate from the average row size
+        if (written.rows > 0) {
+            meta.estimatedBytes = rows * written.bytes / written.rows;
+        } else if (rows == 0) {
+            meta.estimatedBytes = 0;
+        }
+        meta.rows = rows;
+        if (!loadListeners.isEmpty()) {
+            TableStats stats = stats(meta);
+            for (Consumer<TableStats> listener : loadListeners) {
+                listener.accept(stats);
+            }
+        }
+    }
+
+    /**
+     * Run the given work in a transaction with auto-commit disabled, in which rows inserted by
+     * {@link Table#prepare} are committed at once at the end instead of every statement.
+     * Other connections see none of the changes until the commit, and all of them are rolled back on failure
+     * so that the table stays as it was before.
+     * Batching statements into the transaction is all the bulk loading mode there is. No H2 session setting
+     * is changed: SET LOG only concerns the transaction log of file databases, while tables are kept in
+     * memory, and SET LOCK_MODE applies to the whole database, where it would let queries on other
+     * connections read rows before the commit.
+     */
+    private static <T> T inTransaction(Connection conn, Transaction<T> transaction) throws Exception {
+        conn.setAutoCommit(false);
+        try {
+            T result = transaction.run(conn);
+            conn.commit();
+            return result;
+        } catch (Throwable e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Create secondary indexes of the table and update its optimizer statistics, after its rows are loaded.
+     */
+    private void createIndexes(Connection connection, Table table) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            if (backend.supportsIndexes()) {
+                for (Index index : table.indexes()) {
+                    stmt.execute(index.createStatement());
+                }
+            }
+            analyzeTable(stmt, table.name());
+        }
+    }
+
+    private void analyzeTable(Statement stmt, String table) throws SQLException {
+        String analyzeStatement = backend.analyzeStatement(table);
+        if (analyzeStatement != null) {
+            stmt.execute(analyzeStatement);
+        }
+    }
+
+    private void dropIndexes(Connection connection, Table table) throws SQLException {
+        if (!backend.supportsIndexes()) {
+            return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            for (Index index : table.indexes()) {
+                stmt.execute(index.dropStatement());
+            }
+        }
+    }
+
+    /**
+     * Refresh the given table by obtaining its latest contents and applying only the difference from the
+     * current contents, so that the cost of writes scales with the number of changed rows.
+     * Rows are compared by the primary key of the table.
+     * If only slices of the table have been prepared, only those slices are refreshed, leaving the load of
+     * the whole table to queries that read it. If nothing of the table has been prepared, this is the same
+     * as preparing it.
+     * On {@link StorageBackend}s that don't support schemas, the table is reloaded as a whole instead.
+     * @param name the name of the table.
+     * @param adminClient an {@link AdminClient} to access Kafka cluster metadata.
+     * @return a {@link RefreshSummary} counting the changed rows.
+     * @throws Exception when SQL failed or {@link AdminClient} threw.
+     */
+    public RefreshSummary refreshTable(String name, AdminClient adminClient) throws Exception {
+        TableMetadata meta = getTable(name);
+        String table = meta.table.name();
+        KeyFilter slices = slicesFilter(meta);
+        if (!meta.initialized && slices == null) {
+            prepareTable(name, adminClient);
+            meta.refreshedAt = System.currentTimeMillis();
+            return new RefreshSummary(countRows(table), 0, 0);
+        }
+        for (String dependencyTable : slices != null ? meta.table.dependencyTables(slices)
+                                                     : meta.table.dependencyTables()) {
+            prepareTable(dependencyTable, adminClient);
+        }
+        if (!backend.supportsSchemas()) {
+            synchronized (meta) {
+                if (!meta.loaded()) {
+                    // Truncated while waiting
+                    return new RefreshSummary(0, 0, 0);
+                }
+                long deleted = countRows(table);
+                slices = slicesFilter(meta);
+                if (slices != null) {
+                    reloadSlices(meta, adminClient, slices);
+                } else {
+                    loadTable(meta, adminClient);
+                }
+                meta.refreshedAt = System.currentTimeMillis();
+                return new RefreshSummary(countRows(table), 0, deleted);
+            }
+        }
+
+        // Queries on other connections keep reading the current contents until the difference gets committed
+        synchronized (meta) {
+            if (!meta.loaded()) {
+                // Truncated while waiting
+                return new RefreshSummary(0, 0, 0);
+            }
+            // The table holds nothing but its slices, so the latest rows of the same slices replace them all
+            slices = slicesFilter(meta);
+            Connection conn = pool.acquire();
+            try {
+                long startTime = System.currentTimeMillis();
+                long start = System.nanoTime();
+                BulkInserter.ThreadTotals written = BulkInserter.threadTotals();
+                loadStagingTable(conn, meta.table, adminClient, slices);
+                try {
+                    long loaded = System.nanoTime();
+                    RefreshSummary summary = inTransaction(conn, c -> applyDifference(c, table));
+                    if (summary.changed() > 0) {
+                        // Keep statistics up to date with the new contents
+                        try (Statement stmt = conn.createStatement()) {
+                            analyzeTable(stmt, "PUBLIC." + table);
+                        }
+                    }
+                    recordLoad(conn, meta, start, loaded, written);
+                    meta.updatedAt = startTime;
+                    meta.refreshedAt = System.currentTimeMillis();
+                    if (summary.changed() > 0) {
+                        meta.generation.incrementAndGet();
+                    }
+                    return summary;
+                } finally {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute(String.format("DROP TABLE IF EXISTS %s.%s", STAGING_SCHEMA, table));
+                    }
+                }
+            } finally {
+                pool.release(conn);
+            }
+        }
+    }
+
+    /**
+     * Return the filter matching all slices of the table prepared while it isn't fully initialized, or null
+     * if it has none.
+     */
+    private static KeyFilter slicesFilter(TableMetadata meta) {
+        synchronized (meta) {
+            if (meta.initialized || meta.sliceColumn == null) {
+                return null;
+            }
+            return new KeyFilter(meta.sliceColumn, new HashSet<>(meta.sliceValues));
+        }
+    }
+
+    /**
+     * Reload the given slices, which are all the table holds, while holding its lock, replacing their rows
+     * in the same transaction as {@link #loadTable(TableMetadata, AdminClient)} does.
+     */
+    private void reloadSlices(TableMetadata meta, AdminClient adminClient, KeyFilter slices) throws Exception {
+        Connection connection = pool.acquire();
+        try {
+            long start = System.nanoTime();
+            BulkInserter.ThreadTotals written = BulkInserter.threadTotals();
+            inTransaction(connection, conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM " + meta.table.name());
+                }
+                meta.table.prepare(conn, adminClient, slices);
+                return null;
+            });
+            long loaded = System.nanoTime();
+            createIndexes(connection, meta.table);
+            recordLoad(connection, meta, start, loaded, written);
+        } finally {
+            pool.release(connection);
+        }
+        meta.updatedAt = System.currentTimeMillis();
+        meta.generation.incrementAndGet();
+    }
+
+    /**
+     * Load latest contents of the table, or of its slices matching the filter if not null, into the table of
+     * the same name in the staging schema.
+     * Tables that the table reads during preparation are still found in the default schema.
+     */
+    private void loadStagingTable(Connection conn, Table table, AdminClient adminClient, KeyFilter slices)
+            throws Exception {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE SCHEMA IF NOT EXISTS " + STAGING_SCHEMA);
+            stmt.execute(String.format("DROP TABLE IF EXISTS %s.%s", STAGING_SCHEMA, table.name()));
+            stmt.execute("SET SCHEMA " + STAGING_SCHEMA);
+            stmt.execute("SET SCHEMA_SEARCH_PATH " + STAGING_SCHEMA + ", PUBLIC");
+            try {
+                table.create(conn);
+                inTransaction(conn, c -> {
+                    if (slices != null) {
+                        table.prepare(c, adminClient, slices);
+                    } else {
+                        table.prepare(c, adminClient);
+                    }
+                    return null;
+                });
+            } finally {
+                stmt.execute("SET SCHEMA PUBLIC");
+                stmt.execute("SET SCHEMA_SEARCH_PATH PUBLIC");
+            }
+        }
+    }
+
+    private RefreshSummary applyDifference(Connection connection, String table) throws SQLException {
+        List<String> keyColumns = new ArrayList<>();
+        try (ResultSet results = connection.getMetaData().getPrimaryKeys(null, "PUBLIC", table.toUpperCase())) {
+            while (results.next()) {
+                keyColumns.add(results.getString("COLUMN_NAME"));
+            }
+        }
+        List<String> valueColumns = new ArrayList<>();
+        try (ResultSet results = connection.getMetaData().getColumns(null, "PUBLIC", table.toUpperCase(), null)) {
+            while (results.next()) {
+                String column = results.getString("COLUMN_NAME");
+                if (!keyColumns.contains(column)) {
+                    valueColumns.add(column);
+                }
+            }
+        }
+        if (keyColumns.isEmpty()) {
+            throw new IllegalStateException("table without primary key can't be refreshed: " + table);
+        }
+
+        String current = "PUBLIC." + table;
+        String latest = STAGING_SCHEMA + '.' + table;
+        String keysMatch = keyColumns.stream()
+                                     .map(c -> String.format("o.%s = n.%s", c, c))
+                                     .collect(Collectors.joining(" AND "));
+        String valuesMatch = valueColumns.stream()
+                                         .map(c -> String.format("o.%s IS NOT DISTINCT FROM n.%s", c, c))
+                                         .collect(Collectors.joining(" AND "));
+        String rowsMatch = valueColumns.isEmpty() ? keysMatch : keysMatch + " AND " + valuesMatch;
+        List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(valueColumns);
+
+        long updated = 0;
+        long deleted;
+        long inserted;
+        try (Statement stmt = connection.createStatement()) {
+            if (!valueColumns.isEmpty()) {
+                try (ResultSet results = stmt.executeQuery(String.format(
+                        "SELECT COUNT(*) FROM %s o JOIN %s n ON %s WHERE NOT (%s)",
+                        current, latest, keysMatch, valuesMatch))) {
+                    results.next();
+                    updated = results.getLong(1);
+                }
+            }
+            // Updated rows are deleted and then inserted again with their latest values
+            deleted = stmt.executeUpdate(String.format(
+                    "DELETE FROM %s o WHERE NOT EXISTS (SELECT 1 FROM %s n WHERE %s)",
+                    current, latest, rowsMatch));
+            inserted = stmt.executeUpdate(String.format(
+                    "INSERT INTO %s (%s) SELECT %s FROM %s n WHERE NOT EXISTS (SELECT 1 FROM %s o WHERE %s)",
+                    current, String.join(", ", columns),
+                    columns.stream().map(c -> "n." + c).collect(Collectors.joining(", ")),
+                    latest, current, rowsMatch));
+        }
+        return new RefreshSummary(inserted - updated, updated, deleted - updated);
+    }
+
+    private long countRows(String table) throws SQLException {
+        Connection connection = pool.acquire();
+        try {
+            return countRows(connection, table);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    private static long countRows(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            results.next();
+            return results.getLong(1);
+        }
+    }
+
+    /**
+     * Load tables from the given {@link SnapshotStore} if their snapshot is younger than the given max age.
+     * Restored tables are initialized as of the time their snapshot was fetched from the cluster, and other
+     * tables are prepared from the cluster as usual when required.
+     * @param store a {@link SnapshotStore} to load tables from.
+     * @param maxAgeMillis maximum age of snapshots to restore.
+     * @return names of the restored tables.
+     * @throws IOException when failed to read the store.
+     * @throws SQLException when SQL failed.
+     */
+    public Set<String> restoreTables(SnapshotStore store, long maxAgeMillis) throws IOException, SQLException {
+        long now = System.currentTimeMillis();
+        Set<String> restored = new HashSet<>();
+        for (Entry<String, Long> entry : store.fetchTimes().entrySet()) {
+            String name = entry.getKey();
+            long fetchedAt = entry.getValue();
+            TableMetadata meta = tables.get(name);
+            if (meta == null || now - fetchedAt > maxAgeMillis) {
+                continue;
+            }
+            synchronized (meta) {
+                if (meta.loaded()) {
+                    continue;
+                }
+                Connection connection = pool.acquire();
+                try {
+                    long start = System.nanoTime();
+                    BulkInserter.ThreadTotals written = BulkInserter.threadTotals();
+                    if (!restoreTable(connection, store, meta.table.name())) {
+                        clearTable(connection, meta);
+                        continue;
+                    }
+                    long loaded = System.nanoTime();
+                    createIndexes(connection, meta.table);
+                    recordLoad(connection, meta, start, loaded, written);
+                } finally {
+                    pool.release(connection);
+                }
+                meta.initialized = true;
+                meta.updatedAt = fetchedAt;
+                meta.generation.incrementAndGet();
+            }
+            restored.add(name);
+        }
+        return restored;
+    }
+
+    /**
+     * Read the snapshot of the given table in a transaction.
+     * @return false if the snapshot was broken, outdated or its rows didn't fit into the table, in which case
+     * nothing is read.
+     */
+    private static boolean restoreTable(Connection connection, SnapshotStore store, String table)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        boolean committed = false;
+        try {
+            store.read(connection, table);
+            connection.commit();
+            committed = true;
+        } catch (IOException | SQLException ignored) {
+            // Broken or outdated snapshots are ignored and the table is prepared from the cluster instead
+        } finally {
+            if (!committed) {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
         }
+        return committed;
+    }
+
+    /**
+     * Save all initialized tables into the given {@link SnapshotStore}.
+     * Snapshots in the store of tables that aren't initialized are kept as they are.
+     * @param store a {@link SnapshotStore} to save tables into.
+     * @return names of the saved tables.
+     * @throws IOException when failed to write the store.
+     * @throws SQLException when SQL failed.
+     */
+    public Set<String> saveTables(SnapshotStore store) throws IOException, SQLException {
+        Map<String, Long> fetchTimes = new HashMap<>(store.fetchTimes());
+        Set<String> saved = new HashSet<>();
+        for (Entry<String, TableMetadata> entry : tables.entrySet()) {
+            TableMetadata meta = entry.getValue();
+            synchronized (meta) {
+                if (!meta.initialized) {
+                    continue;
+                }
+                Connection connection = pool.acquire();
+                try {
+                    store.write(connection, meta.table.name());
+                } finally {
+                    pool.release(connection);
+                }
+                fetchTimes.put(entry.getKey(), meta.updatedAt);
+            }
+            saved.add(entry.getKey());
+        }
+        store.writeFetchTimes(fetchTimes);
+        return saved;
     }
 
     /**
@@ -105,13 +945,35 @@ public class Database implements AutoCloseable {
      */
     public void truncateTable(String name) throws SQLException {
         TableMetadata meta = getTable(name);
-        if (!meta.initialized) {
-            throw new IllegalStateException("table not initialized: " + name);
+        synchronized (meta) {
+            if (!meta.loaded()) {
+                throw new IllegalStateException("table not initialized: " + name);
+            }
+            clearTable(meta);
+        }
+    }
+
+    private void clearTable(TableMetadata meta) throws SQLException {
+        Connection connection = pool.acquire();
+        try {
+            clearTable(connection, meta);
+        } finally {
+            pool.release(connection);
         }
+    }
+
+    private void clearTable(Connection connection, TableMetadata meta) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
-            stmt.execute(String.format("TRUNCATE TABLE %s", meta.table.name()));
+            stmt.execute(backend.truncateStatement(meta.table.name()));
         }
+        dropIndexes(connection, meta.table);
         meta.initialized = false;
+        meta.updatedAt = 0;
+        meta.generation.incrementAndGet();
+        meta.sliceColumn = null;
+        meta.sliceValues.clear();
+        meta.rows = 0;
+        meta.estimatedBytes = 0;
     }
 
     /**
@@ -119,25 +981,160 @@ public class Database implements AutoCloseable {
      * @throws SQLException when SQL failed.
      */
     public void truncateAllTables() throws SQLException {
-        for (Entry<String, TableMetadata> entry : tables.entrySet()) {
-            String name = entry.getKey();
-            TableMetadata meta = entry.getValue();
-            if (meta.initialized) {
-                truncateTable(name);
+        for (TableMetadata meta : tables.values()) {
+            synchronized (meta) {
+                if (meta.loaded()) {
+                    clearTable(meta);
+                }
             }
         }
     }
 
     /**
      * Execute the given query and call the given handler with the {@link ResultSet}.
+     * Results are scrollable if the {@link StorageBackend} supports it, so that {@link #resultRows(ResultSet)}
+     * can count them after they're read through.
      * @param sql an SQL query.
      * @param resultHandler callback handler that processes the the result.
      * @throws SQLException when SQL failed.
      */
     public void executeQuery(String sql, Consumer<ResultSet> resultHandler) throws SQLException {
-        try (Statement stmt = connection.createStatement();
+        Connection connection = pool.acquire();
+        try (Statement stmt = scrollableResults
+                              ? connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                                           ResultSet.CONCUR_READ_ONLY)
+                              : connection.createStatement();
              ResultSet results = stmt.executeQuery(sql)) {
             resultHandler.accept(results);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Return the number of rows in the given result passed to the handler of
+     * {@link #executeQuery(String, Consumer)}, moving its cursor to the last row.
+     * @param results a {@link ResultSet}.
+     * @return the number of rows, or -1 if the result isn't scrollable.
+     * @throws SQLException when SQL failed.
+     */
+    public static long resultRows(ResultSet results) throws SQLException {
+        if (results.getType() == ResultSet.TYPE_FORWARD_ONLY) {
+            return -1;
+        }
+        return results.last() ? results.getRow() : 0;
+    }
+
+    /**
+     * Return the log of recent queries, which {@link Engine} records executed queries into and the
+     * kmql_queries system table shows.
+     * @return the {@link QueryLog}.
+     */
+    public QueryLog queryLog() {
+        return queryLog;
+    }
+
+    /**
+     * Return statistics of all tables, which the kmql_tables system table shows.
+     * @return the list of {@link TableStats} ordered by table name.
+     */
+    public List<TableStats> tableStats() {
+        return tables.values().stream()
+                     .map(Database::stats)
+                     .sorted(Comparator.comparing(TableStats::getName))
+                     .collect(Collectors.toList());
+    }
+
+    private static TableStats stats(TableMetadata meta) {
+        return new TableStats(meta.table.name(), meta.initialized, meta.rows, meta.estimatedBytes, meta.loads,
+                              meta.fetchNanos, meta.insertNanos, meta.applyNanos, meta.updatedAt,
+                              meta.refreshedAt, meta.generation.get());
+    }
+
+    /**
+     * Add a listener that is called with statistics of a table whenever the table is loaded by preparation,
+     * refresh or restoration from a snapshot.
+     * Listeners are called on the loading thread while the table is locked, so they should return quickly.
+     * @param listener a listener to add.
+     */
+    public void addLoadListener(Consumer<TableStats> listener) {
+        loadListeners.add(listener);
+    }
+
+    /**
+     * Replace rows of the given system table with the current statistics.
+     */
+    private void writeSystemTable(String name) throws Exception {
+        synchronized (queryLog) {
+            Connection connection = pool.acquire();
+            try {
+                inTransaction(connection, conn -> {
+                    writeSystemTable(conn, name);
+                    return null;
+                });
+            } finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    private void writeSystemTable(Connection connection, String name) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + name);
+        }
+        if (TABLES_TABLE.equals(name)) {
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO " + TABLES_TABLE + " (name, initialized, row_count, estimated_bytes, loads, "
+                    + "load_ms, fetch_ms, insert_ms, apply_ms, updated_at, refreshed_at, generation) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (TableStats stats : tableStats()) {
+                    stmt.setString(1, stats.getName());
+                    stmt.setBoolean(2, stats.isInitialized());
+                    stmt.setLong(3, stats.getRows());
+                    stmt.setLong(4, stats.getEstimatedBytes());
+                    stmt.setInt(5, stats.getLoads());
+                    stmt.setDouble(6, toMillis(stats.loadNanos()));
+                    stmt.setDouble(7, toMillis(stats.getFetchNanos()));
+                    stmt.setDouble(8, toMillis(stats.getInsertNanos()));
+                    stmt.setDouble(9, toMillis(stats.getApplyNanos()));
+                    setTimestamp(stmt, 10, stats.getUpdatedAt());
+                    setTimestamp(stmt, 11, stats.getRefreshedAt());
+                    stmt.setLong(12, stats.getGeneration());
+                    stmt.executeUpdate();
+                }
+            }
+        } else {
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO " + QUERIES_TABLE + " (id, started_at, sql, prepare_ms, execute_ms, format_ms, "
+                    + "result_rows, cached) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (QueryLog.Entry entry : queryLog.entries()) {
+                    stmt.setLong(1, entry.getId());
+                    setTimestamp(stmt, 2, entry.getStartedAt());
+                    stmt.setString(3, entry.getSql());
+                    stmt.setDouble(4, toMillis(entry.getPrepareNanos()));
+                    stmt.setDouble(5, toMillis(entry.getExecuteNanos()));
+                    stmt.setDouble(6, toMillis(entry.getFormatNanos()));
+                    if (entry.getRows() < 0) {
+                        stmt.setNull(7, Types.BIGINT);
+                    } else {
+                        stmt.setLong(7, entry.getRows());
+                    }
+                    stmt.setBoolean(8, entry.isCached());
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void setTimestamp(PreparedStatement stmt, int index, long epochMillis) throws SQLException {
+        if (epochMillis == 0) {
+            stmt.setNull(index, Types.TIMESTAMP);
+        } else {
+            stmt.setTimestamp(index, new Timestamp(epochMillis));
         }
     }
 
@@ -150,6 +1147,36 @@ public class Database implements AutoCloseable {
         return getTable(name).initialized;
     }
 
+    /**
+     * Return if the given table has any contents, either because it has initialized or some slices of it
+     * have been prepared.
+     * @param name the name of the table.
+     * @return true if the table has any contents.
+     */
+    public boolean tableLoaded(String name) {
+        return getTable(name).loaded();
+    }
+
+    /**
+     * Return the time that the contents of the given table were obtained from the cluster at.
+     * @param name the name of the table.
+     * @return the time in epoch milliseconds, or zero if the table has never been prepared.
+     */
+    public long tableUpdatedAt(String name) {
+        return getTable(name).updatedAt;
+    }
+
+    /**
+     * Return the generation of the contents of the given table, which changes whenever the table is
+     * prepared, refreshed with any changes, or truncated.
+     * Results of a query stay the same as long as generations of all tables it reads stay the same.
+     * @param name the name of the table.
+     * @return the generation.
+     */
+    public long tableGeneration(String name) {
+        return getTable(name).generation.get();
+    }
+
     /**
      * Return tables contained in this database.
      * @return the set of table names.
@@ -158,6 +1185,15 @@ public class Database implements AutoCloseable {
         return tables.values().stream().map(m -> m.table.name()).collect(Collectors.toSet());
     }
 
+    /**
+     * Return system tables contained in this database, which show statistics of the database itself.
+     * They're rewritten whenever they're prepared, so query results reading them should never be reused.
+     * @return the set of system table names.
+     */
+    public Set<String> systemTables() {
+        return new HashSet<>(Arrays.asList(TABLES_TABLE, QUERIES_TABLE));
+    }
+
     /**
      * Return columns of the given table.
      * @param name the target table name.
@@ -167,10 +1203,11 @@ public class Database implements AutoCloseable {
         ensureTablePresence(name);
         List<String> columns = new ArrayList<>();
         try {
-            executeQuery("SHOW COLUMNS FROM " + name, results -> {
+            executeQuery("SELECT * FROM " + name + " WHERE 1 = 0", results -> {
                 try {
-                    while (results.next()) {
-                        columns.add(results.getString(1));
+                    ResultSetMetaData metadata = results.getMetaData();
+                    for (int i = 1; i <= metadata.getColumnCount(); i++) {
+                        columns.add(metadata.getColumnName(i));
                     }
                 } catch (SQLException e) {
                     throw new RuntimeException(e);
@@ -195,6 +1232,6 @@ public class Database implements AutoCloseable {
 
     @Override
     public void close() throws Exception {
-        connection.close();
+        pool.close();
     }
 }
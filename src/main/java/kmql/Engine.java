@@ -3,11 +3,13 @@ package kmql;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.kafka.clients.admin.AdminClient;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.Accessors;
@@ -15,7 +17,6 @@ import lombok.experimental.Accessors;
 /**
  * A core runtime of kmql.
  */
-@AllArgsConstructor
 @Accessors(fluent = true)
 @Getter
 public class Engine implements AutoCloseable {
@@ -23,9 +24,26 @@ public class Engine implements AutoCloseable {
     private final Database db;
     private final OutputFormatRegistry outputFormatRegistry;
     private final CommandRegistry commandRegistry;
+    // Null if query results aren't cached
+    private final ResultCache resultCache;
     @NonNull
     private OutputFormat outputFormat;
 
+    public Engine(AdminClient adminClient, Database db, OutputFormatRegistry outputFormatRegistry,
+                  CommandRegistry commandRegistry, @NonNull OutputFormat outputFormat) {
+        this(adminClient, db, outputFormatRegistry, commandRegistry, null, outputFormat);
+    }
+
+    public Engine(AdminClient adminClient, Database db, OutputFormatRegistry outputFormatRegistry,
+                  CommandRegistry commandRegistry, ResultCache resultCache, @NonNull OutputFormat outputFormat) {
+        this.adminClient = adminClient;
+        this.db = db;
+        this.outputFormatRegistry = outputFormatRegistry;
+        this.commandRegistry = commandRegistry;
+        this.resultCache = resultCache;
+        this.outputFormat = outputFormat;
+    }
+
     /**
      * Creates a new {@link Engine} from the given {@link AdminClient} and the name of the output format.
      * Default instances are used for both of {@link OutputFormatRegistry} and {@link TableRegistry}.
@@ -34,9 +52,44 @@ public class Engine implements AutoCloseable {
      * @return an {@link Engine}.
      */
     public static Engine from(AdminClient adminClient, String outputFormatName) {
+        return from(adminClient, outputFormatName, "h2");
+    }
+
+    /**
+     * Creates a new {@link Engine} from the given {@link AdminClient}, the name of the output format and the
+     * name of the storage backend.
+     * Default instances are used for all of {@link OutputFormatRegistry}, {@link TableRegistry} and
+     * {@link StorageBackendRegistry}.
+     * @param adminClient an {@link AdminClient} to access Kafka cluster's metadata.
+     * @param outputFormatName the name of output format to use.
+     * @param storageBackendName the name of storage backend to use.
+     * @return an {@link Engine}.
+     */
+    public static Engine from(AdminClient adminClient, String outputFormatName, String storageBackendName) {
+        return from(adminClient, outputFormatName, storageBackendName, 0);
+    }
+
+    /**
+     * Creates a new {@link Engine} from the given {@link AdminClient}, the name of the output format, the
+     * name of the storage backend and the size of the result cache.
+     * Default instances are used for all of {@link OutputFormatRegistry}, {@link TableRegistry} and
+     * {@link StorageBackendRegistry}.
+     * @param adminClient an {@link AdminClient} to access Kafka cluster's metadata.
+     * @param outputFormatName the name of output format to use.
+     * @param storageBackendName the name of storage backend to use.
+     * @param resultCacheBytes maximum total size of query results to cache, or zero to disable the cache.
+     * @return an {@link Engine}.
+     */
+    public static Engine from(AdminClient adminClient, String outputFormatName, String storageBackendName,
+                              long resultCacheBytes) {
         OutputFormat outputFormat = lookupOutputFormat(OutputFormatRegistry.DEFAULT, outputFormatName);
-        Database db = Database.from(TableRegistry.DEFAULT);
-        return new Engine(adminClient, db, OutputFormatRegistry.DEFAULT, CommandRegistry.DEFAULT, outputFormat);
+        StorageBackend backend = StorageBackendRegistry.DEFAULT
+                .lookup(storageBackendName)
+                .orElseThrow(() -> new IllegalArgumentException("unknown storage backend: " + storageBackendName));
+        Database db = Database.from(TableRegistry.DEFAULT, backend);
+        ResultCache resultCache = resultCacheBytes > 0 ? new ResultCache(resultCacheBytes) : null;
+        return new Engine(adminClient, db, OutputFormatRegistry.DEFAULT, CommandRegistry.DEFAULT, resultCache,
+                          outputFormat);
     }
 
     /**
@@ -47,16 +100,75 @@ public class Engine implements AutoCloseable {
      * @throws SQLException when SQL fails.
      */
     public void execute(String command, BufferedOutputStream output) throws SQLException {
+        execute(command, outputFormat, output);
+    }
+
+    /**
+     * Execute the given command, formatting the result of a query in the given format instead of the
+     * current output format of this engine.
+     * @param command command to execute.
+     * @param format the output format of the query result.
+     * @param output the output stream to write the formatted query result.
+     * @throws SQLException when SQL fails.
+     */
+    public void execute(String command, OutputFormat format, BufferedOutputStream output) throws SQLException {
         if (Commands.isCommand(command)) {
             Commands.executeLine(this, output, command);
             return;
         }
 
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
         prepareRequiredTables(command);
-        db.executeQuery(command, results -> {
+        long prepareNanos = System.nanoTime() - start;
+        Set<String> tables = SqlAnalyzer.referencedTables(command, db.tables());
+        if (resultCache == null || tables.isEmpty() || !SqlAnalyzer.deterministic(command)
+            || !SqlAnalyzer.referencedTables(command, db.systemTables()).isEmpty()) {
+            executeQuery(command, format, output, startedAt, prepareNanos);
+            return;
+        }
+
+        // Taken before execution, so a result that raced with a change of tables is never used
+        Map<String, Long> generations = new HashMap<>();
+        for (String table : tables) {
+            generations.put(table, db.tableGeneration(table));
+        }
+        String sql = SqlAnalyzer.normalize(command);
+        byte[] cached = resultCache.get(sql, format, generations);
+        if (cached != null) {
+            long writeStart = System.nanoTime();
+            try {
+                output.write(cached);
+                output.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            db.queryLog().add(startedAt, command, prepareNanos, 0, System.nanoTime() - writeStart, -1, true);
+            return;
+        }
+        ResultCache.Recorder recorder = resultCache.recorder(output);
+        executeQuery(command, format, new BufferedOutputStream(recorder), startedAt, prepareNanos);
+        byte[] recorded = recorder.recorded();
+        if (recorded != null) {
+            resultCache.put(sql, format, generations, recorded);
+        }
+    }
+
+    /**
+     * Execute the given query and write its result, recording the time taken by each stage into the
+     * {@link QueryLog} of the database.
+     */
+    private void executeQuery(String sql, OutputFormat format, BufferedOutputStream output, long startedAt,
+                              long prepareNanos) throws SQLException {
+        long start = System.nanoTime();
+        db.executeQuery(sql, results -> {
+            long executed = System.nanoTime();
             try {
-                outputFormat.formatTo(results, output);
+                format.formatTo(results, output);
                 output.flush();
+                long formatted = System.nanoTime();
+                db.queryLog().add(startedAt, sql, prepareNanos, executed - start, formatted - executed,
+                                  Database.resultRows(results), false);
             } catch (SQLException | IOException e) {
                 throw new RuntimeException(e);
             }
@@ -65,9 +177,10 @@ public class Engine implements AutoCloseable {
 
     private void prepareRequiredTables(String sql) {
         List<String> requiredTables = SqlAnalyzer.requiredTables(sql);
+        List<KeyFilter> filters = SqlAnalyzer.keyFilters(sql);
         for (String table : requiredTables) {
             try {
-                db.prepareTable(table, adminClient);
+                db.prepareTable(table, adminClient, filters);
             } catch (IllegalArgumentException ignored) {
                 // skip failed tables for now...
             } catch (Exception e) {
@@ -78,10 +191,11 @@ public class Engine implements AutoCloseable {
 
     /**
      * Initialize all tables that this engine supports.
+     * @return a {@link Database.PrepareSummary} of the initialization.
      */
-    public void initAllTables() {
+    public Database.PrepareSummary initAllTables() {
         try {
-            db.prepareAllTables(adminClient);
+            return db.prepareAllTables(adminClient);
         } catch (Exception e) {
             throw new RuntimeException("failed to initialize tables", e);
         }
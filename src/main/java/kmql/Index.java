@@ -0,0 +1,43 @@
+package kmql;
+
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * A secondary index of a kmql table.
+ */
+@Value
+public class Index {
+    String name;
+    String table;
+    List<String> columns;
+
+    /**
+     * Create a new {@link Index} with the name derived from the table and columns.
+     * @param table the name of the table.
+     * @param columns the columns to index.
+     * @return an {@link Index}.
+     */
+    public static Index of(String table, String... columns) {
+        String name = table + '_' + String.join("_", columns) + "_idx";
+        return new Index(name, table, Arrays.asList(columns));
+    }
+
+    /**
+     * Return the SQL statement to create this index.
+     * @return the CREATE INDEX statement.
+     */
+    public String createStatement() {
+        return String.format("CREATE INDEX IF NOT EXISTS %s ON %s (%s)", name, table, String.join(", ", columns));
+    }
+
+    /**
+     * Return the SQL statement to drop this index.
+     * @return the DROP INDEX statement.
+     */
+    public String dropStatement() {
+        return String.format("DROP INDEX IF EXISTS %s", name);
+    }
+}
@@ -0,0 +1,22 @@
+package kmql;
+
+import java.util.Set;
+
+import lombok.Value;
+
+/**
+ * A filter requiring a key column of a table to be one of the given values.
+ * It is pushed down from the WHERE clause of a query so that a table can load only the slice of rows
+ * that the query can see.
+ */
+@Value
+public class KeyFilter {
+    /**
+     * Name of the column in lower case.
+     */
+    String column;
+    /**
+     * Accepted values of the column in their string representation.
+     */
+    Set<String> values;
+}
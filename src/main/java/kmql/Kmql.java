@@ -5,12 +5,20 @@ import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
 
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
@@ -20,6 +28,15 @@ import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
 import org.jline.reader.impl.completer.StringsCompleter;
 
+import kmql.metrics.MeteredAdminClient;
+import kmql.metrics.Metrics;
+import kmql.metrics.PrometheusExporter;
+import kmql.simulation.ClusterSpec;
+import kmql.simulation.Recording;
+import kmql.simulation.RecordingAdminClient;
+import kmql.simulation.ReplayAdminClient;
+import kmql.simulation.SimulatedAdminClient;
+
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -27,6 +44,8 @@ import picocli.CommandLine.Option;
 @Command(name = "kmql", mixinStandardHelpOptions = true,
         description = "SQL interface to Kafka cluster metadata")
 public class Kmql implements Callable<Integer> {
+    private static final Duration METRICS_FILE_INTERVAL = Duration.ofSeconds(15);
+
     @Option(names = "--bootstrap-servers", paramLabel = "BOOTSTRAP_SERVERS",
             description = "Kafka cluster's bootstrap.servers")
     private String bootstrapServers;
@@ -35,10 +54,20 @@ public class Kmql implements Callable<Integer> {
             description = "Path to properties that contains extra properties to pass for AdminClient")
     private Path clientProperties;
 
-    @Option(names = "--format", defaultValue = "table", paramLabel = "table|json",
+    @Option(names = "--format", defaultValue = "table", paramLabel = "table|json|ndjson|json-columnar|ssv",
             description = "Output format")
     private String outputFormat;
 
+    @Option(names = "--storage", defaultValue = "h2", paramLabel = "h2|duckdb",
+            description = "Embedded database to store tables in (default: ${DEFAULT-VALUE}). "
+                          + "duckdb requires its JDBC driver in the classpath")
+    private String storageBackend;
+
+    @Option(names = "--result-cache-bytes", defaultValue = "33554432", paramLabel = "BYTES",
+            description = "Maximum total size of query results to cache until tables they read change, "
+                          + "or 0 to disable (default: ${DEFAULT-VALUE})")
+    private long resultCacheBytes;
+
     @Option(names = { "-e", "--exec" }, paramLabel = "COMMAND",
             description = "Instead of starting interactive console, execute the given SQL and output the result")
     private String executeSql;
@@ -47,43 +76,241 @@ public class Kmql implements Callable<Integer> {
             description = "Initialize all tables at startup rather than lazy loading when required")
     private boolean initAllTables;
 
+    @Option(names = "--ttl", paramLabel = "TABLE=DURATION",
+            description = "Refresh the table in background once its contents get older than DURATION "
+                          + "(e.g, 30s, 10m, 1h). Can be specified multiple times")
+    private Map<String, String> tableTtls = Collections.emptyMap();
+
+    @Option(names = "--cache-dir", paramLabel = "PATH",
+            description = "Directory to save tables into at exit and to load them from at startup, "
+                          + "instead of fetching them from the cluster")
+    private Path cacheDir;
+
+    @Option(names = "--cache-max-age", defaultValue = "5m", paramLabel = "DURATION",
+            description = "Maximum age of tables to load from the cache directory (default: ${DEFAULT-VALUE})")
+    private String cacheMaxAge;
+
+    @Option(names = "--simulate", paramLabel = "SPEC",
+            description = "Instead of connecting to a cluster, query a simulated cluster of the scale and "
+                          + "call latencies described in the JSON file, e.g, {\"brokers\": 50, \"topics\": 4000}")
+    private Path simulationSpec;
+
+    @Option(names = "--record", paramLabel = "PATH",
+            description = "Record results and latencies of calls to the cluster into the file at exit, "
+                          + "to replay them later with --replay")
+    private Path recordingPath;
+
+    @Option(names = "--replay", paramLabel = "PATH",
+            description = "Instead of connecting to a cluster, serve results recorded by --record")
+    private Path replayPath;
+
+    @Option(names = "--replay-latency-scale", defaultValue = "1.0", paramLabel = "FACTOR",
+            description = "Factor to multiply recorded latencies by in replay, e.g, 0 to respond immediately "
+                          + "(default: ${DEFAULT-VALUE})")
+    private double replayLatencyScale;
+
+    @Option(names = "--metrics-port", paramLabel = "PORT",
+            description = "Serve metrics in the Prometheus text format at http://127.0.0.1:PORT/metrics")
+    private Integer metricsPort;
+
+    @Option(names = "--metrics-file", paramLabel = "PATH",
+            description = "Write metrics in the Prometheus text format into the file every 15 seconds and at exit")
+    private Path metricsFile;
+
+    @Option(names = "--no-server",
+            description = "Execute -e in this process even if `kmql serve` is running for the same cluster")
+    private boolean noServer;
+
+    // Results are written here, which is never closed so that stdout stays usable for the whole process
+    private final OutputStream out;
+    private final LocalServers localServers;
+
+    public Kmql() {
+        this(new FileOutputStream(FileDescriptor.out), new LocalServers(LocalServers.DEFAULT_DIRECTORY));
+    }
+
+    Kmql(OutputStream out, LocalServers localServers) {
+        this.out = out;
+        this.localServers = localServers;
+    }
+
+    /**
+     * What to do with the {@link Engine} once it's set up from the options.
+     */
+    @FunctionalInterface
+    private interface EngineTask {
+        void run(Engine engine, TableRefresher refresher, BufferedOutputStream output) throws Exception;
+    }
+
     @Override
     public Integer call() throws Exception {
-        Properties adminClientConfig = adminClientConfig();
-        try (AdminClient adminClient = AdminClient.create(adminClientConfig);
-             Engine engine = Engine.from(adminClient, outputFormat);
-             BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out))) {
-            if (initAllTables) {
-                engine.initAllTables();
+        if (executeSql != null && !noServer && recordingPath == null && !Commands.isCommand(executeSql)) {
+            // A running server has the tables prepared already, saving startup and fetches from the cluster
+            if (localServers.execute(clusterName(), executeSql, outputFormat, out)) {
+                return 0;
             }
+        }
+        return run((engine, refresher, output) -> {
             if (executeSql != null) {
                 engine.execute(executeSql, output);
             } else {
-                LineReader reader = LineReaderBuilder.builder()
-                                                     .option(LineReader.Option.CASE_INSENSITIVE, true)
-                                                     .completer(queryCompleter(engine.db()))
-                                                     .build();
-                while (true) {
-                    final String sql;
-                    try {
-                        sql = reader.readLine("query> ").trim();
-                    } catch (EndOfFileException ignored) {
-                        break;
-                    }
-                    if (sql.isEmpty()) {
-                        continue;
-                    }
-                    try {
-                        engine.execute(sql, output);
-                    } catch (SQLException e) {
-                        reader.getTerminal().writer().println("Query error: " + e.getMessage());
+                runConsole(engine, output);
+            }
+        });
+    }
+
+    @Command(name = "serve",
+            description = "Keep tables prepared and serve queries from many clients at "
+                          + "http://127.0.0.1:PORT/query, as the body of POST along with the optional format "
+                          + "parameter and the token printed at startup in the X-Kmql-Token header")
+    int serve(@Option(names = "--port", defaultValue = "7070", paramLabel = "PORT",
+                      description = "Port to listen on (default: ${DEFAULT-VALUE})") int port,
+              @Option(names = "--threads", defaultValue = "8", paramLabel = "THREADS",
+                      description = "Number of threads to handle requests (default: ${DEFAULT-VALUE})")
+                      int threads,
+              @Option(names = "--default-ttl", defaultValue = "1m", paramLabel = "DURATION",
+                      description = "Refresh tables without --ttl in background once their contents get older "
+                                    + "than DURATION (default: ${DEFAULT-VALUE})") String defaultTtl)
+            throws Exception {
+        Duration ttl = TableRefresher.parseDuration(defaultTtl);
+        // Stop serving on SIGINT/SIGTERM, holding the JVM until tables are saved and resources are closed
+        CountDownLatch shutdown = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            shutdown.countDown();
+            try {
+                finished.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }, "kmql-shutdown"));
+        try {
+            return run((engine, refresher, output) -> {
+                for (String table : engine.db().tables()) {
+                    if (!tableTtls.containsKey(table)) {
+                        refresher.setTtl(table, ttl);
                     }
                 }
+                String token = QueryServer.newToken();
+                try (QueryServer server = new QueryServer(engine, port, threads, token);
+                     LocalServers.Registration ignored =
+                             localServers.register(clusterName(), server.port(), token)) {
+                    System.err.printf("Serving queries at http://127.0.0.1:%d%s with header %s: %s\n",
+                                      server.port(), QueryServer.QUERY_PATH, QueryServer.TOKEN_HEADER, token);
+                    shutdown.await();
+                }
+            });
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private int run(EngineTask task) throws Exception {
+        String clusterName = clusterName();
+        AdminClient adminClient;
+        if (simulationSpec != null) {
+            adminClient = SimulatedAdminClient.create(ClusterSpec.load(simulationSpec));
+        } else if (replayPath != null) {
+            adminClient = new ReplayAdminClient(Recording.read(replayPath), replayLatencyScale);
+        } else {
+            adminClient = AdminClient.create(adminClientConfig());
+        }
+        RecordingAdminClient recorder = null;
+        if (recordingPath != null) {
+            recorder = new RecordingAdminClient(adminClient);
+            adminClient = recorder;
+        }
+        MeteredAdminClient meteredAdminClient = new MeteredAdminClient(adminClient);
+        adminClient = meteredAdminClient;
+        try (AdminClient ignored = adminClient;
+             Engine engine = Engine.from(adminClient, outputFormat, storageBackend, resultCacheBytes);
+             Metrics metrics = new Metrics(engine.db(), engine.resultCache(), meteredAdminClient);
+             PrometheusExporter server = metricsPort != null ? PrometheusExporter.serve(metrics, metricsPort) : null;
+             PrometheusExporter writer = metricsFile != null
+                                         ? PrometheusExporter.writeTo(metrics, metricsFile, METRICS_FILE_INTERVAL)
+                                         : null;
+             TableRefresher refresher = new TableRefresher(engine.db(), adminClient)) {
+            BufferedOutputStream output = new BufferedOutputStream(out);
+            try {
+                metrics.registerMBeans();
+            } catch (JMException e) {
+                System.err.println("Failed to register MBeans: " + e);
+            }
+            SnapshotStore snapshotStore = null;
+            if (cacheDir != null) {
+                snapshotStore = SnapshotStore.forCluster(cacheDir, clusterName);
+                long maxAge = TableRefresher.parseDuration(cacheMaxAge).toMillis();
+                try {
+                    engine.db().restoreTables(snapshotStore, maxAge);
+                } catch (IOException | SQLException e) {
+                    System.err.println("Failed to load tables from cache: " + e);
+                }
+            }
+            tableTtls.forEach((table, ttl) -> refresher.setTtl(table, TableRefresher.parseDuration(ttl)));
+            if (initAllTables) {
+                Database.PrepareSummary summary = engine.initAllTables();
+                System.err.printf("Initialized %d tables in %d ms (%d ms if initialized serially)\n",
+                                  summary.getTables(), summary.getElapsedMillis(), summary.getSerialMillis());
+            }
+            try {
+                task.run(engine, refresher, output);
+            } finally {
+                output.flush();
+            }
+            if (snapshotStore != null) {
+                try {
+                    engine.db().saveTables(snapshotStore);
+                } catch (IOException | SQLException e) {
+                    System.err.println("Failed to save tables into cache: " + e);
+                }
+            }
+            if (recorder != null) {
+                try {
+                    recorder.recording().write(recordingPath);
+                } catch (IOException e) {
+                    System.err.println("Failed to write recording: " + e);
+                }
             }
         }
         return 0;
     }
 
+    private static void runConsole(Engine engine, BufferedOutputStream output) {
+        LineReader reader = LineReaderBuilder.builder()
+                                             .option(LineReader.Option.CASE_INSENSITIVE, true)
+                                             .completer(queryCompleter(engine.db()))
+                                             .build();
+        while (true) {
+            final String sql;
+            try {
+                sql = reader.readLine("query> ").trim();
+            } catch (EndOfFileException ignored) {
+                break;
+            }
+            if (sql.isEmpty()) {
+                continue;
+            }
+            try {
+                engine.execute(sql, output);
+            } catch (SQLException e) {
+                reader.getTerminal().writer().println("Query error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Return the name that identifies the cluster to query, which keys the table cache and local servers.
+     */
+    private String clusterName() throws IOException {
+        if (simulationSpec != null) {
+            return "simulated:" + simulationSpec.toAbsolutePath();
+        }
+        if (replayPath != null) {
+            return "replay:" + replayPath.toAbsolutePath();
+        }
+        return adminClientConfig().getProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG);
+    }
+
     private Properties adminClientConfig() throws IOException {
         Properties props = new Properties();
         if (clientProperties != null) {
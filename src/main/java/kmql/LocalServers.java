@@ -0,0 +1,216 @@
+package kmql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import lombok.Value;
+
+/**
+ * Discovery of {@link QueryServer}s running on the local host, so that short-lived kmql processes can
+ * send queries to a server for the same cluster instead of fetching tables by themselves.
+ * Each server leaves a file containing its port and token in a well-known directory, named after the
+ * cluster, which only the owner of the directory can read.
+ */
+public class LocalServers {
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".kmql", "servers");
+    static final int CONNECT_TIMEOUT_MS = 1000;
+
+    private final Path directory;
+
+    public LocalServers(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Where to send queries to a registered server.
+     */
+    @Value
+    public static class Endpoint {
+        int port;
+        /**
+         * The token to send in the {@link QueryServer#TOKEN_HEADER} header.
+         */
+        String token;
+    }
+
+    /**
+     * Registration of a server, which is removed when closed.
+     */
+    public class Registration implements AutoCloseable {
+        private final String clusterName;
+        private final int port;
+
+        private Registration(String clusterName, int port) {
+            this.clusterName = clusterName;
+            this.port = port;
+        }
+
+        @Override
+        public void close() throws IOException {
+            remove(clusterName, port);
+        }
+    }
+
+    /**
+     * Register a server for the given cluster, replacing any registration of other servers for the cluster.
+     * @param clusterName the name that identifies the cluster, e.g, its bootstrap servers.
+     * @param port the port that the server listens on.
+     * @param token the token that the server requires.
+     * @return a {@link Registration} to remove it.
+     * @throws IOException when failed to write the file.
+     */
+    public Registration register(String clusterName, int port, String token) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            try {
+                Files.createDirectories(directory);
+                Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+            } catch (FileAlreadyExistsException ignored) {
+                // Created by another server at the same time
+            } catch (UnsupportedOperationException ignored) {
+                // Not a POSIX filesystem
+            }
+        }
+        Path path = path(clusterName);
+        // Created readable only by the owner
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        Files.write(temp, (port + "\n" + token + '\n').getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Registration(clusterName, port);
+    }
+
+    /**
+     * Lookup the server registered for the given cluster.
+     * The server may have exited without removing its registration.
+     * @param clusterName the name that identifies the cluster.
+     * @return the {@link Endpoint} of the server if any is registered.
+     * @throws IOException when failed to read the file.
+     */
+    public Optional<Endpoint> lookup(String clusterName) throws IOException {
+        try {
+            String content = new String(Files.readAllBytes(path(clusterName)), StandardCharsets.UTF_8).trim();
+            String[] lines = content.split("\n");
+            if (lines.length != 2) {
+                // Broken registration, which is as good as none
+                return Optional.empty();
+            }
+            return Optional.of(new Endpoint(Integer.parseInt(lines[0].trim()), lines[1].trim()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Remove the registration of the server on the given port for the given cluster, unless another server
+     * has replaced it.
+     * @param clusterName the name that identifies the cluster.
+     * @param port the port of the server.
+     * @throws IOException when failed to delete the file.
+     */
+    public void remove(String clusterName, int port) throws IOException {
+        Optional<Endpoint> registered = lookup(clusterName);
+        if (registered.isPresent() && registered.get().getPort() == port) {
+            Files.deleteIfExists(path(clusterName));
+        }
+    }
+
+    /**
+     * Execute the given query on the registered server for the given cluster and write its result.
+     * Registrations of servers that no longer run are removed.
+     * @param clusterName the name that identifies the cluster.
+     * @param sql an SQL query.
+     * @param format the name of the output format.
+     * @param output the stream to write the formatted result to.
+     * @return true if executed, or false if no server for the cluster is running.
+     * @throws IOException when failed to communicate with the server.
+     * @throws SQLException when the server failed to execute the query.
+     */
+    public boolean execute(String clusterName, String sql, String format, OutputStream output)
+            throws IOException, SQLException {
+        Optional<Endpoint> endpoint = lookup(clusterName);
+        if (!endpoint.isPresent()) {
+            return false;
+        }
+        int port = endpoint.get().getPort();
+        URL url = new URL(String.format("http://127.0.0.1:%d%s?format=%s", port,
+                                        QueryServer.QUERY_PATH, URLEncoder.encode(format, "UTF-8")));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty(QueryServer.TOKEN_HEADER, endpoint.get().getToken());
+        connection.setDoOutput(true);
+        int status;
+        try {
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(sql.getBytes(StandardCharsets.UTF_8));
+            }
+            status = connection.getResponseCode();
+        } catch (ConnectException e) {
+            remove(clusterName, port);
+            return false;
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            String message = new String(readAll(connection.getErrorStream()), StandardCharsets.UTF_8).trim();
+            if (status == HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new SQLException(message);
+            }
+            throw new IOException("server responded " + status + ": " + message);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                output.write(buffer, 0, n);
+            }
+        }
+        output.flush();
+        return true;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in == null) {
+            return bytes.toByteArray();
+        }
+        try (InputStream input = in) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                bytes.write(buffer, 0, n);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private Path path(String clusterName) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest.digest(clusterName.getBytes(StandardCharsets.UTF_8))) {
+                name.append(String.format("%02x", b));
+            }
+            return directory.resolve(name.substring(0, 32) + ".port");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
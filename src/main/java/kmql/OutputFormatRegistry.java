@@ -4,7 +4,9 @@ import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import kmql.format.ColumnarJsonFormat;
 import kmql.format.JsonFormat;
+import kmql.format.NdjsonFormat;
 import kmql.format.SsvFormat;
 import kmql.format.TableFormat;
 
@@ -18,6 +20,8 @@ public class OutputFormatRegistry {
         registerDefault("table", new TableFormat());
         registerDefault("json", new JsonFormat());
         registerDefault("ssv", new SsvFormat());
+        registerDefault("ndjson", new NdjsonFormat());
+        registerDefault("json-columnar", new ColumnarJsonFormat());
     }
 
     private final ConcurrentMap<String, OutputFormat> formats;
@@ -0,0 +1,106 @@
+package kmql;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import lombok.Value;
+
+/**
+ * A bounded log of recently executed queries and the time taken by each stage of their execution.
+ * The log is exposed to SQL through the kmql_queries system table of {@link Database}.
+ */
+public class QueryLog {
+    public static final int DEFAULT_CAPACITY = 100;
+
+    @Value
+    public static class Entry {
+        long id;
+        /**
+         * Time in epoch millis that the query was started at.
+         */
+        long startedAt;
+        String sql;
+        /**
+         * Time taken to prepare the tables that the query reads.
+         */
+        long prepareNanos;
+        /**
+         * Time taken by the database to execute the query until its result became readable.
+         */
+        long executeNanos;
+        /**
+         * Time taken to read the result through and write it in the output format.
+         */
+        long formatNanos;
+        /**
+         * Number of rows in the result, or -1 if unknown.
+         */
+        long rows;
+        /**
+         * Whether the output was served from the {@link ResultCache} without executing the query.
+         */
+        boolean cached;
+    }
+
+    private final int capacity;
+    // Oldest first, guarded by this
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private long lastId;
+    private final List<Consumer<Entry>> listeners = new CopyOnWriteArrayList<>();
+
+    public QueryLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new {@link QueryLog}.
+     * @param capacity maximum number of queries to keep, older ones are discarded first.
+     */
+    public QueryLog(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add an executed query to the log.
+     * @return the added {@link Entry}.
+     */
+    public Entry add(long startedAt, String sql, long prepareNanos, long executeNanos,
+                     long formatNanos, long rows, boolean cached) {
+        Entry entry;
+        synchronized (this) {
+            entry = new Entry(++lastId, startedAt, sql, prepareNanos, executeNanos, formatNanos, rows, cached);
+            if (entries.size() >= capacity) {
+                entries.removeFirst();
+            }
+            entries.addLast(entry);
+        }
+        for (Consumer<Entry> listener : listeners) {
+            listener.accept(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Add a listener that is called with every query added to the log, including ones that are discarded
+     * from the log later.
+     * @param listener a listener to add.
+     */
+    public void addListener(Consumer<Entry> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Return queries in the log, oldest first.
+     * @return the list of {@link Entry}s.
+     */
+    public synchronized List<Entry> entries() {
+        return new ArrayList<>(entries);
+    }
+}
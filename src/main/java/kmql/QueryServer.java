@@ -0,0 +1,233 @@
+package kmql;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves queries to an {@link Engine} over HTTP on the loopback address, so that many clients share its
+ * prepared tables and result cache.
+ * A query is sent as the body of POST /query, and its result is returned in the output format named by the
+ * format parameter, or the current format of the engine.
+ * Every request must carry the token of the server in the {@link #TOKEN_HEADER} header, so that other users
+ * of the host and web pages opened in a browser can't run queries through it.
+ * Meta commands are rejected as they change the state shared by all clients.
+ */
+public class QueryServer implements AutoCloseable {
+    static final String QUERY_PATH = "/query";
+    public static final String TOKEN_HEADER = "X-Kmql-Token";
+
+    private final Engine engine;
+    private final byte[] token;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Generate a random token for a server.
+     * @return a hex string of 32 random bytes.
+     */
+    public static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Start serving queries.
+     * @param engine the {@link Engine} to execute queries.
+     * @param port the port to listen on, or 0 to choose any free port.
+     * @param threads number of threads to handle requests.
+     * @param token the token that clients must send, e.g. one from {@link #newToken()}.
+     * @throws IOException when failed to listen on the port.
+     */
+    public QueryServer(Engine engine, int port, int threads, String token) throws IOException {
+        this.engine = engine;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger threadId = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "kmql-server-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext(QUERY_PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Return the port that queries are served on.
+     * @return the port number.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+                return;
+            }
+            if (!authorized(exchange)) {
+                sendError(exchange, 403, "Missing or wrong " + TOKEN_HEADER + " header");
+                return;
+            }
+            Map<String, String> params = parseQueryString(exchange.getRequestURI().getRawQuery());
+            String sql = readBody(exchange.getRequestBody());
+            if (sql.trim().isEmpty()) {
+                sendError(exchange, 400, "Missing query");
+                return;
+            }
+            if (Commands.isCommand(sql)) {
+                sendError(exchange, 400, "Meta commands aren't supported by the server");
+                return;
+            }
+            OutputFormat format = engine.outputFormat();
+            String formatName = params.get("format");
+            if (formatName != null) {
+                format = engine.outputFormatRegistry().lookup(formatName).orElse(null);
+                if (format == null) {
+                    sendError(exchange, 400, "Unknown output format: " + formatName);
+                    return;
+                }
+            }
+
+            ResponseStream response = new ResponseStream(exchange);
+            BufferedOutputStream output = new BufferedOutputStream(response);
+            try {
+                // Queries run concurrently on separate connections of the database
+                engine.execute(sql.trim(), format, output);
+                // Not closed on failures, which would commit the response as a success
+                output.close();
+            } catch (SQLException | RuntimeException e) {
+                if (response.committed) {
+                    // Too late to report, so the client sees a truncated response
+                    return;
+                }
+                Throwable cause = e instanceof RuntimeException && e.getCause() instanceof SQLException
+                                  ? e.getCause() : e;
+                sendError(exchange, e instanceof SQLException ? 400 : 500, "Query error: " + cause.getMessage());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        String given = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        // Compared in constant time not to leak the token through response times
+        return given != null && MessageDigest.isEqual(token, given.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + '\n').getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            body.write(buffer, 0, n);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static Map<String, String> parseQueryString(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return params;
+    }
+
+    /**
+     * The body of a successful response, which is streamed in chunks once the first bytes are written so
+     * that errors before any output can still be returned with an error status.
+     */
+    private static class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private boolean committed;
+        private OutputStream body;
+
+        private ResponseStream(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        private OutputStream body() throws IOException {
+            if (!committed) {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                body = exchange.getResponseBody();
+                committed = true;
+            }
+            return body;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            body().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                body().write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (committed) {
+                body.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // An empty result is still a successful response
+            body().close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,192 @@
+package kmql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * A cache of formatted query results, bounded by the total size of the results and evicting the least
+ * recently used ones first.
+ * Each result is stored along with the generations of the tables that the query read, and is used only
+ * while all of them stay the same.
+ */
+public class ResultCache {
+    @Value
+    private static class Key {
+        String sql;
+        OutputFormat format;
+    }
+
+    @Value
+    private static class Entry {
+        Map<String, Long> generations;
+        byte[] output;
+
+        long size() {
+            return output.length;
+        }
+    }
+
+    private final long maxBytes;
+    // In access order, so the first entry is the least recently used one, guarded by this
+    private final LinkedHashMap<Key, Entry> entries;
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a new {@link ResultCache}.
+     * @param maxBytes maximum total size of cached results.
+     */
+    public ResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Lookup the result of the given query formatted in the given format.
+     * @param sql a normalized SQL query.
+     * @param format the output format.
+     * @param generations generations of tables that the query reads.
+     * @return the formatted result, or null if not cached or the cached one is outdated.
+     */
+    public synchronized byte[] get(String sql, OutputFormat format, Map<String, Long> generations) {
+        Key key = new Key(sql, format);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (!entry.generations.equals(generations)) {
+            entries.remove(key);
+            bytes -= entry.size();
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.output;
+    }
+
+    /**
+     * Cache the result of the given query formatted in the given format, evicting least recently used
+     * results as needed.
+     * Results larger than the maximum size are ignored.
+     * @param sql a normalized SQL query.
+     * @param format the output format.
+     * @param generations generations of tables that the query read, taken before executing the query.
+     * @param output the formatted result.
+     */
+    public synchronized void put(String sql, OutputFormat format, Map<String, Long> generations, byte[] output) {
+        Entry entry = new Entry(generations, output);
+        if (entry.size() > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(new Key(sql, format), entry);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        bytes += entry.size();
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= it.next().size();
+            it.remove();
+        }
+    }
+
+    /**
+     * Return the total size of cached results.
+     * @return size in bytes.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Return the number of cached results.
+     * @return the number of results.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the number of lookups that found an up-to-date result.
+     * @return the number of hits.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of lookups that found no result or an outdated one.
+     * @return the number of misses.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Create an {@link OutputStream} that writes through to the given stream while keeping a copy of
+     * written bytes to cache, as long as they fit in the maximum size.
+     * @param out the stream to write to.
+     * @return a {@link Recorder}.
+     */
+    public Recorder recorder(OutputStream out) {
+        return new Recorder(out, maxBytes);
+    }
+
+    public static class Recorder extends OutputStream {
+        private final OutputStream out;
+        private final long maxBytes;
+        private ByteArrayOutputStream copy;
+
+        private Recorder(OutputStream out, long maxBytes) {
+            this.out = out;
+            this.maxBytes = maxBytes;
+            copy = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkSize();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkSize();
+            }
+        }
+
+        private void checkSize() {
+            if (copy.size() > maxBytes) {
+                // Too large to be cached anyway
+                copy = null;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        /**
+         * Return bytes written so far.
+         * @return the written bytes, or null if they exceeded the maximum size of the cache.
+         */
+        public byte[] recorded() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+    }
+}
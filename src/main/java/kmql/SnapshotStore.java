@@ -0,0 +1,303 @@
+package kmql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * An on-disk store of table contents that lets a later invocation start with tables loaded from local disk
+ * instead of the cluster.
+ * Each table is stored in its own file along with the time its contents were fetched from the cluster at.
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x4b4d514c; // "KMQL"
+    private static final int VERSION = 1;
+    private static final String FETCH_TIMES_FILE = "fetch-times.properties";
+
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+    private static final byte TYPE_STRING = 4;
+
+    private final Path dir;
+
+    public SnapshotStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Create a {@link SnapshotStore} for the cluster of the given bootstrap servers, so that snapshots of
+     * different clusters sharing the same cache directory don't mix.
+     * @param cacheDir the cache directory.
+     * @param bootstrapServers bootstrap.servers of the cluster.
+     * @return a {@link SnapshotStore}.
+     */
+    public static SnapshotStore forCluster(Path cacheDir, String bootstrapServers) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest(bootstrapServers.getBytes(StandardCharsets.UTF_8))) {
+            name.append(String.format("%02x", b));
+        }
+        return new SnapshotStore(cacheDir.resolve(name.substring(0, 16)));
+    }
+
+    /**
+     * Return the time that the contents of each stored table were fetched from the cluster at.
+     * @return map of table names to the time in epoch milliseconds.
+     * @throws IOException when failed to read the store.
+     */
+    public Map<String, Long> fetchTimes() throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(dir.resolve(FETCH_TIMES_FILE))) {
+            props.load(in);
+        } catch (NoSuchFileException ignored) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> fetchTimes = new HashMap<>();
+        for (String table : props.stringPropertyNames()) {
+            fetchTimes.put(table, Long.parseLong(props.getProperty(table)));
+        }
+        return fetchTimes;
+    }
+
+    /**
+     * Record the time that the contents of each stored table were fetched from the cluster at.
+     * @param fetchTimes map of table names to the time in epoch milliseconds.
+     * @throws IOException when failed to write the store.
+     */
+    public void writeFetchTimes(Map<String, Long> fetchTimes) throws IOException {
+        Properties props = new Properties();
+        fetchTimes.forEach((table, time) -> props.setProperty(table, String.valueOf(time)));
+        Files.createDirectories(dir);
+        Path tmpFile = Files.createTempFile(dir, FETCH_TIMES_FILE, ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmpFile)) {
+            props.store(out, null);
+        }
+        Files.move(tmpFile, dir.resolve(FETCH_TIMES_FILE), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write all rows of the given table into the store.
+     * @param connection a JDBC {@link Connection}.
+     * @param table the name of the table.
+     * @throws IOException when failed to write the store.
+     * @throws SQLException when SQL failed.
+     */
+    public void write(Connection connection, String table) throws IOException, SQLException {
+        Files.createDirectories(dir);
+        Path tmpFile = Files.createTempFile(dir, table, ".tmp");
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT * FROM " + table);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+            ResultSetMetaData metadata = results.getMetaData();
+            byte[] types = new byte[metadata.getColumnCount()];
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(types.length);
+            for (int i = 0; i < types.length; i++) {
+                types[i] = valueType(metadata.getColumnType(i + 1));
+                out.writeUTF(metadata.getColumnName(i + 1));
+                out.writeByte(types[i]);
+            }
+            while (results.next()) {
+                out.writeBoolean(true);
+                for (int i = 0; i < types.length; i++) {
+                    writeValue(out, results, i + 1, types[i]);
+                }
+            }
+            out.writeBoolean(false);
+        } catch (IOException | SQLException e) {
+            Files.deleteIfExists(tmpFile);
+            throw e;
+        }
+        Files.move(tmpFile, tableFile(table), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Insert all rows of the given table stored in the store into the table.
+     * @param connection a JDBC {@link Connection}.
+     * @param table the name of the table.
+     * @return the number of rows inserted.
+     * @throws IOException when failed to read the store or the stored columns don't match the table.
+     * @throws SQLException when SQL failed.
+     */
+    public long read(Connection connection, String table) throws IOException, SQLException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(tableFile(table))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("unsupported snapshot of table " + table);
+            }
+            int columnCount = in.readInt();
+            List<String> columns = new ArrayList<>(columnCount);
+            byte[] types = new byte[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columns.add(in.readUTF());
+                types[i] = in.readByte();
+            }
+            if (!columns.equals(tableColumns(connection, table))) {
+                throw new IOException("snapshot columns don't match table " + table + ": " + columns);
+            }
+
+            String placeholders = String.join(", ", Collections.nCopies(columnCount, "?"));
+            try (BulkInserter inserter = new BulkInserter(
+                    connection, String.format("INSERT INTO %s (%s) VALUES (%s)",
+                                              table, String.join(", ", columns), placeholders))) {
+                while (in.readBoolean()) {
+                    for (int i = 0; i < columnCount; i++) {
+                        readValue(in, inserter, i + 1, types[i]);
+                    }
+                    inserter.add();
+                }
+                return inserter.rows();
+            }
+        }
+    }
+
+    Path dir() {
+        return dir;
+    }
+
+    private Path tableFile(String table) {
+        return dir.resolve(table + ".snapshot");
+    }
+
+    private static List<String> tableColumns(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT * FROM " + table + " WHERE FALSE")) {
+            ResultSetMetaData metadata = results.getMetaData();
+            List<String> columns = new ArrayList<>(metadata.getColumnCount());
+            for (int i = 1; i <= metadata.getColumnCount(); i++) {
+                columns.add(metadata.getColumnName(i));
+            }
+            return columns;
+        }
+    }
+
+    private static byte valueType(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return TYPE_INT;
+            case Types.BIGINT:
+                return TYPE_LONG;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return TYPE_BOOLEAN;
+            default:
+                // Including ENUMs, which accept their string representation on insertion
+                return TYPE_STRING;
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, ResultSet results, int column, byte type)
+            throws IOException, SQLException {
+        switch (type) {
+            case TYPE_INT:
+                int intValue = results.getInt(column);
+                out.writeBoolean(results.wasNull());
+                out.writeInt(intValue);
+                break;
+            case TYPE_LONG:
+                long longValue = results.getLong(column);
+                out.writeBoolean(results.wasNull());
+                out.writeLong(longValue);
+                break;
+            case TYPE_BOOLEAN:
+                boolean booleanValue = results.getBoolean(column);
+                out.writeBoolean(results.wasNull());
+                out.writeBoolean(booleanValue);
+                break;
+            default:
+                String stringValue = results.getString(column);
+                out.writeBoolean(stringValue == null);
+                if (stringValue != null) {
+                    writeString(out, stringValue);
+                }
+        }
+    }
+
+    // Unlike writeUTF, not limited to 64KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readValue(DataInputStream in, BulkInserter inserter, int column, byte type)
+            throws IOException, SQLException {
+        boolean isNull = in.readBoolean();
+        switch (type) {
+            case TYPE_INT:
+                int intValue = in.readInt();
+                if (isNull) {
+                    inserter.setNull(column, Types.INTEGER);
+                } else {
+                    inserter.setInt(column, intValue);
+                }
+                break;
+            case TYPE_LONG:
+                long longValue = in.readLong();
+                if (isNull) {
+                    inserter.setNull(column, Types.BIGINT);
+                } else {
+                    inserter.setLong(column, longValue);
+                }
+                break;
+            case TYPE_BOOLEAN:
+                boolean booleanValue = in.readBoolean();
+                if (isNull) {
+                    inserter.setNull(column, Types.BOOLEAN);
+                } else {
+                    inserter.setBoolean(column, booleanValue);
+                }
+                break;
+            case TYPE_STRING:
+                if (isNull) {
+                    inserter.setNull(column, Types.VARCHAR);
+                } else {
+                    inserter.setString(column, readString(in));
+                }
+                break;
+            default:
+                throw new IOException("unknown value type: " + type);
+        }
+    }
+}
@@ -1,12 +1,37 @@
 package kmql;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class SqlAnalyzer {
     private static final Pattern SQL_TABLE_RE = Pattern.compile("(?:from|join)\\s+\"?([A-Za-z0-9_]+)\"?");
+    private static final Pattern STRING_LITERAL_RE = Pattern.compile("'((?:[^']|'')*)'");
+    private static final Pattern SELECT_RE = Pattern.compile("\\bselect\\b");
+    // Constructs that make WHERE clause something else than a plain conjunction of predicates
+    private static final Pattern NON_CONJUNCTIVE_RE = Pattern.compile(
+            "\\b(?:or|between|union|intersect|except|minus)\\b");
+    private static final Pattern FROM_WHERE_RE = Pattern.compile(
+            "\\bfrom\\b(.*?)\\bwhere\\b(.*?)(?:\\bgroup\\s+by\\b|\\border\\s+by\\b|\\bhaving\\b|\\blimit\\b"
+            + "|\\boffset\\b|\\bfetch\\b|;|$)", Pattern.DOTALL);
+    private static final Pattern AND_RE = Pattern.compile("\\band\\b");
+    private static final Pattern EQUALS_RE = Pattern.compile("(?:\\w+\\.)?\"?(\\w+)\"?\\s*=\\s*(\\S+)");
+    private static final Pattern IN_RE = Pattern.compile("(?:\\w+\\.)?\"?(\\w+)\"?\\s+in\\s*\\(([^()]*)\\)");
+    private static final Pattern LITERAL_RE = Pattern.compile("\\$(\\d+)|-?\\d+");
+    private static final Pattern WORD_SEPARATOR_RE = Pattern.compile("[^a-z0-9_]+");
+    private static final Pattern WHITESPACES_RE = Pattern.compile("\\s+");
+    // Functions and tables whose results don't only depend on contents of kmql tables
+    private static final Pattern NON_DETERMINISTIC_RE = Pattern.compile(
+            "\\b(?:rand|random|random_uuid|uuid|secure_rand|now|current_date|current_time|current_timestamp"
+            + "|localtime|localtimestamp|sysdate|systime|systimestamp|today|nextval|session_id"
+            + "|information_schema)\\b");
 
     private SqlAnalyzer() {}
 
@@ -19,4 +44,153 @@ public class SqlAnalyzer {
         }
         return tables;
     }
+
+    /**
+     * Extract equality and IN predicates on literals from the WHERE clause of the given query.
+     * Predicates are extracted only when every row of the query result is guaranteed to satisfy all of
+     * them, that is, when the query reads a single table and its WHERE clause is a plain conjunction.
+     * @param sql an SQL query.
+     * @return list of filters that all rows of the result satisfy, or an empty list if none is known.
+     */
+    public static List<KeyFilter> keyFilters(String sql) {
+        if (requiredTables(sql).size() != 1) {
+            return Collections.emptyList();
+        }
+
+        List<String> literals = new ArrayList<>();
+        String query = maskLiterals(sql, literals);
+
+        int selects = 0;
+        Matcher selectMatcher = SELECT_RE.matcher(query);
+        while (selectMatcher.find()) {
+            selects++;
+        }
+        Matcher matcher = FROM_WHERE_RE.matcher(query);
+        if (selects != 1 || NON_CONJUNCTIVE_RE.matcher(query).find() || !matcher.find()
+            || matcher.group(1).contains(",")) {
+            return Collections.emptyList();
+        }
+
+        List<KeyFilter> filters = new ArrayList<>();
+        for (String predicate : AND_RE.split(matcher.group(2))) {
+            predicate = predicate.trim();
+            while (predicate.startsWith("(") && predicate.endsWith(")")) {
+                predicate = predicate.substring(1, predicate.length() - 1).trim();
+            }
+            KeyFilter filter = keyFilter(predicate, literals);
+            if (filter != null) {
+                filters.add(filter);
+            }
+        }
+        return filters;
+    }
+
+    /**
+     * Return tables among the given ones that the given query may read.
+     * Any table whose name appears in the query outside string literals is included, so the result may
+     * contain tables that the query doesn't actually read but never misses ones that it does.
+     * @param sql an SQL query.
+     * @param tables names of candidate tables.
+     * @return names of the tables that the query may read.
+     */
+    public static Set<String> referencedTables(String sql, Collection<String> tables) {
+        String query = maskLiterals(sql, new ArrayList<>());
+        Set<String> words = new HashSet<>(Arrays.asList(WORD_SEPARATOR_RE.split(query)));
+        Set<String> referenced = new HashSet<>();
+        for (String table : tables) {
+            if (words.contains(table.toLowerCase())) {
+                referenced.add(table);
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Return if the given query always returns the same result for the same contents of tables, i.e, it
+     * doesn't call functions such as NOW() or RAND().
+     * @param sql an SQL query.
+     * @return true if the query is deterministic.
+     */
+    public static boolean deterministic(String sql) {
+        return !NON_DETERMINISTIC_RE.matcher(maskLiterals(sql, new ArrayList<>())).find();
+    }
+
+    /**
+     * Normalize the given query so that queries differing only in whitespaces outside string literals and
+     * a trailing semicolon become equal.
+     * @param sql an SQL query.
+     * @return the normalized query.
+     */
+    public static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder();
+        Matcher matcher = STRING_LITERAL_RE.matcher(sql);
+        int end = 0;
+        while (matcher.find()) {
+            normalized.append(WHITESPACES_RE.matcher(sql.substring(end, matcher.start())).replaceAll(" "));
+            normalized.append(matcher.group());
+            end = matcher.end();
+        }
+        normalized.append(WHITESPACES_RE.matcher(sql.substring(end)).replaceAll(" "));
+        String query = normalized.toString().trim();
+        while (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1).trim();
+        }
+        return query;
+    }
+
+    /**
+     * Replace string literals with placeholders so that their contents never look like SQL.
+     * @return the lower-cased query with literals replaced by $N, where N is the index in literals.
+     */
+    private static String maskLiterals(String sql, List<String> literals) {
+        Matcher literalMatcher = STRING_LITERAL_RE.matcher(sql);
+        StringBuffer masked = new StringBuffer();
+        while (literalMatcher.find()) {
+            literals.add(literalMatcher.group(1).replace("''", "'"));
+            literalMatcher.appendReplacement(masked, "\\$" + (literals.size() - 1));
+        }
+        literalMatcher.appendTail(masked);
+        return masked.toString().toLowerCase();
+    }
+
+    private static KeyFilter keyFilter(String predicate, List<String> literals) {
+        Matcher equalsMatcher = EQUALS_RE.matcher(predicate);
+        if (equalsMatcher.matches()) {
+            String value = literalValue(equalsMatcher.group(2), literals);
+            if (value == null) {
+                return null;
+            }
+            return new KeyFilter(equalsMatcher.group(1), Collections.singleton(value));
+        }
+        Matcher inMatcher = IN_RE.matcher(predicate);
+        if (inMatcher.matches()) {
+            Set<String> values = new LinkedHashSet<>();
+            for (String token : inMatcher.group(2).split(",")) {
+                String value = literalValue(token.trim(), literals);
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+            }
+            return new KeyFilter(inMatcher.group(1), values);
+        }
+        return null;
+    }
+
+    private static String literalValue(String token, List<String> literals) {
+        Matcher matcher = LITERAL_RE.matcher(token);
+        if (!matcher.matches()) {
+            return null;
+        }
+        if (matcher.group(1) != null) {
+            return literals.get(Integer.parseInt(matcher.group(1)));
+        }
+        // Numbers are normalized so that e.g. 01 and 1 refer to the same slice
+        try {
+            return String.valueOf(Long.parseLong(token));
+        } catch (NumberFormatException e) {
+            // Out of the range of any key column
+            return null;
+        }
+    }
 }
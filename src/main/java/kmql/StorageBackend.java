@@ -0,0 +1,66 @@
+package kmql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * An embedded SQL engine that stores tables of a {@link Database} and executes queries against them.
+ * Features beyond the plain SQL used by tables and queries are optional, and {@link Database} falls back
+ * to simpler strategies on backends that don't support them.
+ */
+public interface StorageBackend {
+    /**
+     * Open a connection to a new, empty database.
+     * @return a JDBC {@link Connection}.
+     * @throws SQLException when failed to open the database.
+     */
+    Connection createDatabase() throws SQLException;
+
+    /**
+     * Open another connection to the database that the given connection, which was returned by
+     * {@link #createDatabase()}, is connected to.
+     * Connections are pooled so that threads can query and load tables at the same time, each seeing only
+     * the changes committed by others.
+     * @param connection a connection returned by {@link #createDatabase()}.
+     * @return a new JDBC {@link Connection}, or null if the backend doesn't support multiple connections.
+     * @throws SQLException when failed to connect.
+     */
+    default Connection connect(Connection connection) throws SQLException {
+        return null;
+    }
+
+    /**
+     * Return if the backend supports schemas to create tables into and searching tables through
+     * multiple schemas, which is required to refresh tables by applying differences.
+     * @return true if schemas are supported.
+     */
+    default boolean supportsSchemas() {
+        return false;
+    }
+
+    /**
+     * Return if the backend benefits from secondary {@link Index}es declared by tables.
+     * @return true if indexes should be created.
+     */
+    default boolean supportsIndexes() {
+        return false;
+    }
+
+    /**
+     * Return an SQL statement to update the optimizer statistics of the given table.
+     * @param table the name of the table.
+     * @return an SQL statement, or null if the backend doesn't keep statistics.
+     */
+    default String analyzeStatement(String table) {
+        return null;
+    }
+
+    /**
+     * Return an SQL statement to delete all rows from the given table.
+     * @param table the name of the table.
+     * @return an SQL statement.
+     */
+    default String truncateStatement(String table) {
+        return "DELETE FROM " + table;
+    }
+}
@@ -0,0 +1,55 @@
+package kmql;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import kmql.storage.DuckDbBackend;
+import kmql.storage.H2Backend;
+
+/**
+ * Registry of storage backends.
+ */
+public class StorageBackendRegistry {
+    public static final StorageBackendRegistry DEFAULT = new StorageBackendRegistry();
+
+    static {
+        registerDefault("h2", new H2Backend());
+        registerDefault("duckdb", new DuckDbBackend());
+    }
+
+    private final ConcurrentMap<String, StorageBackend> backends;
+
+    public StorageBackendRegistry() {
+        backends = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Register the given backend under the given name to the default registry.
+     * @param name the name of the backend.
+     * @param backend the backend instance.
+     */
+    public static void registerDefault(String name, StorageBackend backend) {
+        DEFAULT.register(name, backend);
+    }
+
+    /**
+     * Register the given backend under the given name.
+     * @param name the name of the backend.
+     * @param backend the backend instance.
+     */
+    public void register(String name, StorageBackend backend) {
+        if (backends.putIfAbsent(name, backend) != null) {
+            throw new IllegalArgumentException("conflicting storage backend name: " + name);
+        }
+    }
+
+    /**
+     * Lookup a backend by the name.
+     * @param name the name of the backend.
+     * @return a {@link StorageBackend} if presents.
+     */
+    public Optional<StorageBackend> lookup(String name) {
+        return Optional.ofNullable(backends.get(name));
+    }
+}
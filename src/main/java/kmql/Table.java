@@ -27,6 +27,40 @@ public interface Table {
         return emptyList();
     }
 
+    /**
+     * Table names that this table is depending on to construct the slice of the table matching the given
+     * filter, which is passed to {@link #prepare(Connection, AdminClient, KeyFilter)}.
+     * @param filter a filter on one of {@link #keyColumns()}.
+     * @return list of table names to depend on.
+     */
+    default Collection<String> dependencyTables(KeyFilter filter) {
+        return dependencyTables();
+    }
+
+    /**
+     * Optionally declared list of key columns that this table can load a slice of rows by, through
+     * {@link #prepare(Connection, AdminClient, KeyFilter)}.
+     * Tables declaring any key column must override {@link #prepare(Connection, AdminClient, KeyFilter)}
+     * too, as queries filtering on the columns call it instead of loading the whole table.
+     * @return list of column names in lower case.
+     */
+    default Collection<String> keyColumns() {
+        return emptyList();
+    }
+
+    /**
+     * Optionally declared list of secondary indexes of this table.
+     * Indexes are created after the first load into the empty table, and dropped again when the table is
+     * truncated, so that the first load doesn't pay for index maintenance.
+     * Loads that replace rows of the table in place, i.e, further slices, the load of the whole table after
+     * slices and reloads on refresh, insert with the indexes kept, so that queries on other connections keep
+     * using them until the new rows are committed.
+     * @return list of indexes.
+     */
+    default Collection<Index> indexes() {
+        return emptyList();
+    }
+
     /**
      * Create this table on the given {@link Connection}.
      * It's guaranteed that this method is called only once per kmql session.
@@ -39,9 +73,28 @@ public interface Table {
      * Prepare this table on the given {@link Connection} by feeding in its data by
      * obtaining it from the given {@link AdminClient}.
      * At the time of this method call, it's guaranteed that the target table exists and it's' empty.
+     * The connection has auto-commit disabled, which is the only bulk loading setting applied, and rows are
+     * expected to be inserted through a {@link BulkInserter}. They become visible to queries when the whole
+     * table is committed after this method returns, or are rolled back if it throws.
      * @param connection a JDBC {@link Connection}.
      * @param adminClient a Kafka {@link AdminClient}.
      * @throws Exception at any errors.
      */
     void prepare(Connection connection, AdminClient adminClient) throws Exception;
+
+    /**
+     * Prepare the slice of this table that matches the given filter, in the same way as
+     * {@link #prepare(Connection, AdminClient)}.
+     * It's guaranteed that the filter is on one of {@link #keyColumns()}, and that none of the rows
+     * matching the filter exists in the table yet.
+     * This is called only for tables declaring {@link #keyColumns()}, which must override it together, as the
+     * default implementation supports no filter.
+     * @param connection a JDBC {@link Connection}.
+     * @param adminClient a Kafka {@link AdminClient}.
+     * @param filter a filter on one of {@link #keyColumns()}.
+     * @throws Exception at any errors.
+     */
+    default void prepare(Connection connection, AdminClient adminClient, KeyFilter filter) throws Exception {
+        throw new UnsupportedOperationException("table doesn't support filtered prepare: " + name());
+    }
 }
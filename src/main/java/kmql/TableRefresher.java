@@ -0,0 +1,127 @@
+package kmql;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.kafka.clients.admin.AdminClient;
+
+/**
+ * Refreshes tables in background once they get older than their TTL.
+ * Queries keep being served from the previous contents of a table while it's being refreshed, and see
+ * the latest contents once the refresh completes.
+ * Tables that have never been prepared aren't refreshed until a query prepares them, and tables prepared
+ * only in slices have just those slices refreshed.
+ */
+public class TableRefresher implements AutoCloseable {
+    private static final Pattern DURATION_RE = Pattern.compile("(\\d+)(ms|s|m|h|d)");
+    static final long DEFAULT_CHECK_INTERVAL_MS = 1000;
+
+    private final Database db;
+    private final AdminClient adminClient;
+    private final long checkIntervalMs;
+    private final ConcurrentMap<String, Duration> ttls;
+    // Time in epoch millis to retry refreshing tables that failed to refresh
+    private final ConcurrentMap<String, Long> retryAt;
+    private final ScheduledExecutorService executor;
+
+    public TableRefresher(Database db, AdminClient adminClient) {
+        this(db, adminClient, DEFAULT_CHECK_INTERVAL_MS);
+    }
+
+    TableRefresher(Database db, AdminClient adminClient, long checkIntervalMs) {
+        this.db = db;
+        this.adminClient = adminClient;
+        this.checkIntervalMs = checkIntervalMs;
+        ttls = new ConcurrentHashMap<>();
+        retryAt = new ConcurrentHashMap<>();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kmql-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Parse a duration string such as "500ms", "30s", "10m", "1h" or "1d".
+     * @param value a duration string.
+     * @return the {@link Duration}.
+     */
+    public static Duration parseDuration(String value) {
+        Matcher matcher = DURATION_RE.matcher(value.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("invalid duration: " + value);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "ms":
+                return Duration.ofMillis(amount);
+            case "s":
+                return Duration.ofSeconds(amount);
+            case "m":
+                return Duration.ofMinutes(amount);
+            case "h":
+                return Duration.ofHours(amount);
+            default:
+                return Duration.ofDays(amount);
+        }
+    }
+
+    /**
+     * Set the TTL of the given table and start refreshing it in background.
+     * @param table the name of the table.
+     * @param ttl maximum age of the table contents.
+     */
+    public void setTtl(String table, Duration ttl) {
+        if (!db.tables().contains(table)) {
+            throw new IllegalArgumentException("no such table: " + table);
+        }
+        boolean first = ttls.isEmpty();
+        ttls.put(table, ttl);
+        if (first) {
+            executor.scheduleWithFixedDelay(this::refreshExpiredTables,
+                                            checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void refreshExpiredTables() {
+        long now = System.currentTimeMillis();
+        for (Entry<String, Duration> entry : ttls.entrySet()) {
+            String table = entry.getKey();
+            if (!db.tableLoaded(table)
+                || now - db.tableUpdatedAt(table) < entry.getValue().toMillis()
+                || now < retryAt.getOrDefault(table, 0L)) {
+                continue;
+            }
+            try {
+                db.refreshTable(table, adminClient);
+                retryAt.remove(table);
+            } catch (Exception e) {
+                // Keep serving the current contents and retry after another TTL
+                retryAt.put(table, now + entry.getValue().toMillis());
+                System.err.printf("Failed to refresh table %s: %s\n", table, e);
+            }
+        }
+    }
+
+    /**
+     * Return TTLs of tables.
+     * @return map of table names to their TTL.
+     */
+    public Map<String, Duration> ttls() {
+        return ttls;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,192 @@
+package kmql.command;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import kmql.Command;
+import kmql.Database;
+import kmql.Database.TableStats;
+import kmql.Engine;
+import kmql.KeyFilter;
+import kmql.SqlAnalyzer;
+
+/**
+ * Execute a query and print the time, allocations and GC activity of each phase of the execution instead of
+ * its result.
+ * Tables are prepared as usual but the result cache is bypassed, so the query is always executed.
+ */
+public class ProfileCommand implements Command {
+    /**
+     * Resource usage of the current thread and the JVM at a point of time.
+     */
+    private static final class Probe {
+        private final long nanos;
+        // -1 if the JVM doesn't measure allocations per thread
+        private final long allocatedBytes;
+        private final long gcCount;
+        private final long gcMillis;
+
+        private Probe(long nanos, long allocatedBytes, long gcCount, long gcMillis) {
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        private static Probe take() {
+            long gcCount = 0;
+            long gcMillis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(0, gc.getCollectionCount());
+                gcMillis += Math.max(0, gc.getCollectionTime());
+            }
+            return new Probe(System.nanoTime(), allocatedBytes(), gcCount, gcMillis);
+        }
+
+        private static long allocatedBytes() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+                if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    @Override
+    public String help() {
+        return ":profile SQL - Execute the query and show the time, allocations and GCs of each phase";
+    }
+
+    @Override
+    public void execute(List<String> args, Engine engine, BufferedOutputStream output) {
+        execute(String.join(" ", args), args, engine, output);
+    }
+
+    @Override
+    public void execute(String argsLine, List<String> args, Engine engine, BufferedOutputStream output) {
+        PrintWriter pw = new PrintWriter(output);
+        try {
+            if (argsLine.isEmpty()) {
+                pw.println("Error usage: :profile SQL");
+                return;
+            }
+            // The query is taken as it was typed since whitespace in its literals matters
+            profile(argsLine, engine, pw);
+        } catch (Exception e) {
+            pw.println("Failed to profile query: " + e.getMessage());
+        } finally {
+            pw.flush();
+        }
+    }
+
+    private static void profile(String sql, Engine engine, PrintWriter pw) throws Exception {
+        Database db = engine.db();
+        pw.printf("%-24s %12s %12s %6s %10s\n", "PHASE", "TIME_MS", "ALLOC_KB", "GCS", "GC_MS");
+
+        Probe start = Probe.take();
+        List<String> requiredTables = SqlAnalyzer.requiredTables(sql);
+        List<KeyFilter> filters = SqlAnalyzer.keyFilters(sql);
+        Probe analyzed = Probe.take();
+        printPhase(pw, "analyze", start, analyzed);
+
+        Map<String, TableStats> statsBefore = tableStats(db);
+        for (String table : requiredTables) {
+            try {
+                db.prepareTable(table, engine.adminClient(), filters);
+            } catch (IllegalArgumentException ignored) {
+                // Not a table of the database, which the query fails on
+            }
+        }
+        Probe prepared = Probe.take();
+        printPhase(pw, "prepare", analyzed, prepared);
+        // Dependencies of the required tables may have been loaded as well
+        for (TableStats stats : tableStats(db).values()) {
+            TableStats before = statsBefore.get(stats.getName());
+            if (before != null && stats.getLoads() > before.getLoads()) {
+                pw.printf("  %-22s fetch %.3f ms, insert %.3f ms, apply %.3f ms, %d rows\n", stats.getName(),
+                          toMillis(stats.getFetchNanos()), toMillis(stats.getInsertNanos()),
+                          toMillis(stats.getApplyNanos()), stats.getRows());
+            } else if (requiredTables.contains(stats.getName())) {
+                pw.printf("  %-22s already loaded\n", stats.getName());
+            }
+        }
+
+        CountingOutputStream counter = new CountingOutputStream();
+        Probe[] executed = new Probe[1];
+        long[] rows = new long[1];
+        db.executeQuery(sql, results -> {
+            executed[0] = Probe.take();
+            try (BufferedOutputStream formatted = new BufferedOutputStream(counter)) {
+                engine.outputFormat().formatTo(results, formatted);
+                formatted.flush();
+                rows[0] = Database.resultRows(results);
+            } catch (SQLException | IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Probe done = Probe.take();
+        printPhase(pw, "execute", prepared, executed[0]);
+        printPhase(pw, "format", executed[0], done);
+        pw.printf("  %-22s %d bytes, %s rows\n", "output", counter.bytes, rows[0] < 0 ? "unknown" : rows[0]);
+        printPhase(pw, "total", start, done);
+
+        pw.println();
+        pw.println("PLAN");
+        db.executeQuery("EXPLAIN " + sql, results -> {
+            try {
+                while (results.next()) {
+                    for (String line : results.getString(results.getMetaData().getColumnCount()).split("\n")) {
+                        pw.println("  " + line);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static Map<String, TableStats> tableStats(Database db) {
+        Map<String, TableStats> stats = new LinkedHashMap<>();
+        for (TableStats tableStats : db.tableStats()) {
+            stats.put(tableStats.getName(), tableStats);
+        }
+        return stats;
+    }
+
+    private static void printPhase(PrintWriter pw, String name, Probe from, Probe to) {
+        String allocated = from.allocatedBytes < 0 || to.allocatedBytes < 0
+                           ? "-" : String.format("%.1f", (to.allocatedBytes - from.allocatedBytes) / 1024.0);
+        pw.printf("%-24s %12.3f %12s %6d %10d\n", name, toMillis(to.nanos - from.nanos), allocated,
+                  to.gcCount - from.gcCount, to.gcMillis - from.gcMillis);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
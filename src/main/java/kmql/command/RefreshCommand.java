@@ -0,0 +1,43 @@
+package kmql.command;
+
+import java.io.BufferedOutputStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import kmql.Command;
+import kmql.Database;
+import kmql.Database.RefreshSummary;
+import kmql.Engine;
+
+/**
+ * Refresh table caches by applying changes since they were obtained.
+ */
+public class RefreshCommand implements Command {
+    @Override
+    public String help() {
+        return ":refresh - Refresh all initialized tables by applying only changed rows\n"
+               +
+               ":refresh TABLE1[ TABLE2...] - Refresh specified tables";
+    }
+
+    @Override
+    public void execute(List<String> args, Engine engine, BufferedOutputStream output) {
+        PrintWriter pw = new PrintWriter(output);
+        Database db = engine.db();
+        List<String> tables = args;
+        if (tables.isEmpty()) {
+            tables = db.tables().stream().filter(db::tableInitialized).sorted().collect(Collectors.toList());
+        }
+        try {
+            for (String table : tables) {
+                RefreshSummary summary = db.refreshTable(table, engine.adminClient());
+                pw.printf("Refreshed table %s: %d inserted, %d updated, %d deleted\n",
+                          table, summary.getInserted(), summary.getUpdated(), summary.getDeleted());
+            }
+        } catch (Exception e) {
+            pw.println("Failed to refresh table: " + e.getMessage());
+        }
+        pw.flush();
+    }
+}
@@ -2,7 +2,6 @@ package kmql.format;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -10,32 +9,36 @@ import java.sql.SQLException;
 import kmql.OutputFormat;
 
 public abstract class AbstractCsvFormat implements OutputFormat {
-    private final String delimiter;
+    private final byte[] delimiter;
 
     protected AbstractCsvFormat(String delimiter) {
-        this.delimiter = delimiter;
+        this.delimiter = TextOutput.encode(delimiter);
     }
 
     @Override
     public void formatTo(ResultSet results, BufferedOutputStream out) throws SQLException, IOException {
         ResultSetMetaData metadata = results.getMetaData();
-        int columns = metadata.getColumnCount();
+        ColumnEncoder[] encoders = ColumnEncoder.compile(metadata);
+        TextOutput text = new TextOutput(out);
 
-        PrintWriter pw = new PrintWriter(out);
-        pw.print("# ");
-        String[] fields = new String[columns];
-        for (int i = 0; i < columns; i++) {
-            fields[i] = metadata.getColumnLabel(i + 1);
+        text.writeString("# ");
+        for (int i = 0; i < encoders.length; i++) {
+            if (i > 0) {
+                text.write(delimiter);
+            }
+            text.writeString(metadata.getColumnLabel(i + 1));
         }
-        pw.println(String.join(delimiter, fields));
+        text.writeLine();
 
         while (results.next()) {
-            for (int i = 0; i < columns; i++) {
-                Object value = results.getObject(i + 1);
-                fields[i] = String.valueOf(value);
+            for (int i = 0; i < encoders.length; i++) {
+                if (i > 0) {
+                    text.write(delimiter);
+                }
+                encoders[i].writeText(results, i + 1, text);
             }
-            pw.println(String.join(delimiter, fields));
+            text.writeLine();
         }
-        pw.flush();
+        out.flush();
     }
 }
@@ -0,0 +1,247 @@
+package kmql.format;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * An encoder of values of a column in a {@link ResultSet}, chosen once per query from the SQL type of the
+ * column so that each value is read by the getter specific to the type without boxing.
+ * Values are encoded the same as {@code String.valueOf(results.getObject(column))} in text, and the same as
+ * Jackson serializes {@code results.getObject(column)} in JSON.
+ */
+abstract class ColumnEncoder {
+    private static final byte[] NULL = TextOutput.encode("null");
+    private static final byte[] TRUE = TextOutput.encode("true");
+    private static final byte[] FALSE = TextOutput.encode("false");
+
+    private static final ColumnEncoder INT = new ColumnEncoder() {
+        @Override
+        void writeText(ResultSet results, int column, TextOutput out) throws SQLException, IOException {
+            int value = results.getInt(column);
+            if (results.wasNull()) {
+                out.write(NULL);
+            } else {
+                out.writeLong(value);
+            }
+        }
+
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            int value = results.getInt(column);
+            if (results.wasNull()) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            int value = results.getInt(column);
+            return results.wasNull() ? "null" : Integer.toString(value);
+        }
+    };
+
+    private static final ColumnEncoder LONG = new ColumnEncoder() {
+        @Override
+        void writeText(ResultSet results, int column, TextOutput out) throws SQLException, IOException {
+            long value = results.getLong(column);
+            if (results.wasNull()) {
+                out.write(NULL);
+            } else {
+                out.writeLong(value);
+            }
+        }
+
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            long value = results.getLong(column);
+            if (results.wasNull()) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            long value = results.getLong(column);
+            return results.wasNull() ? "null" : Long.toString(value);
+        }
+    };
+
+    private static final ColumnEncoder BOOLEAN = new ColumnEncoder() {
+        @Override
+        void writeText(ResultSet results, int column, TextOutput out) throws SQLException, IOException {
+            boolean value = results.getBoolean(column);
+            if (results.wasNull()) {
+                out.write(NULL);
+            } else {
+                out.write(value ? TRUE : FALSE);
+            }
+        }
+
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            boolean value = results.getBoolean(column);
+            if (results.wasNull()) {
+                generator.writeNull();
+            } else {
+                generator.writeBoolean(value);
+            }
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            boolean value = results.getBoolean(column);
+            return results.wasNull() ? "null" : Boolean.toString(value);
+        }
+    };
+
+    private static final ColumnEncoder FLOAT = new ColumnEncoder() {
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            float value = results.getFloat(column);
+            if (results.wasNull()) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            float value = results.getFloat(column);
+            return results.wasNull() ? "null" : Float.toString(value);
+        }
+    };
+
+    private static final ColumnEncoder DOUBLE = new ColumnEncoder() {
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            double value = results.getDouble(column);
+            if (results.wasNull()) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            double value = results.getDouble(column);
+            return results.wasNull() ? "null" : Double.toString(value);
+        }
+    };
+
+    private static final ColumnEncoder DECIMAL = new ColumnEncoder() {
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            BigDecimal value = results.getBigDecimal(column);
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            return String.valueOf(results.getBigDecimal(column));
+        }
+    };
+
+    private static final ColumnEncoder STRING = new ColumnEncoder() {
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            // writeString writes null for null
+            generator.writeString(results.getString(column));
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            return String.valueOf(results.getString(column));
+        }
+    };
+
+    private static final ColumnEncoder OBJECT = new ColumnEncoder() {
+        @Override
+        void writeJson(ResultSet results, int column, JsonGenerator generator) throws SQLException, IOException {
+            // Let the codec serialize other types such as timestamps and arrays
+            generator.writeObject(results.getObject(column));
+        }
+
+        @Override
+        String toText(ResultSet results, int column) throws SQLException {
+            return String.valueOf(results.getObject(column));
+        }
+    };
+
+    /**
+     * Choose the encoder of each column of a query result.
+     * @param metadata the {@link ResultSetMetaData} of the result.
+     * @return encoders, at the index of column - 1.
+     */
+    static ColumnEncoder[] compile(ResultSetMetaData metadata) throws SQLException {
+        ColumnEncoder[] encoders = new ColumnEncoder[metadata.getColumnCount()];
+        for (int i = 0; i < encoders.length; i++) {
+            encoders[i] = forType(metadata.getColumnType(i + 1));
+        }
+        return encoders;
+    }
+
+    private static ColumnEncoder forType(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return INT;
+            case Types.BIGINT:
+                return LONG;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return BOOLEAN;
+            case Types.REAL:
+                return FLOAT;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DECIMAL;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            default:
+                return OBJECT;
+        }
+    }
+
+    /**
+     * Write the value in text.
+     */
+    void writeText(ResultSet results, int column, TextOutput out) throws SQLException, IOException {
+        out.writeString(toText(results, column));
+    }
+
+    /**
+     * Write the value as a JSON value.
+     */
+    abstract void writeJson(ResultSet results, int column, JsonGenerator generator)
+            throws SQLException, IOException;
+
+    /**
+     * Return the value in text, for formats that need to measure it before writing.
+     */
+    abstract String toText(ResultSet results, int column) throws SQLException;
+}
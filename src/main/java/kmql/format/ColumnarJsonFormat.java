@@ -0,0 +1,46 @@
+package kmql.format;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonGenerator.Feature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import kmql.OutputFormat;
+
+/**
+ * JSON format that writes column names only once and each row as an array of values.
+ * Example:
+ * {@code
+ * {"columns":["ID","HOST"],"rows":[[1,"host1.com"],[2,"host2.com"]]}
+ * }
+ */
+public class ColumnarJsonFormat implements OutputFormat {
+    private final JsonFactory factory = new ObjectMapper()
+            .disable(Feature.AUTO_CLOSE_TARGET)
+            .getFactory();
+
+    @Override
+    public void formatTo(ResultSet results, BufferedOutputStream out) throws SQLException, IOException {
+        JsonColumns columns = new JsonColumns(results.getMetaData());
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("columns");
+            for (int i = 0; i < columns.size(); i++) {
+                columns.writeLabel(generator, i);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("rows");
+            while (results.next()) {
+                columns.writeArray(generator, results);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        out.write('\n');
+    }
+}
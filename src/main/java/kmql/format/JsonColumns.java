@@ -0,0 +1,60 @@
+package kmql.format;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Columns of a {@link ResultSet} to write into a {@link JsonGenerator} through their {@link ColumnEncoder}s.
+ */
+final class JsonColumns {
+    private final SerializableString[] labels;
+    private final ColumnEncoder[] encoders;
+
+    JsonColumns(ResultSetMetaData metadata) throws SQLException {
+        encoders = ColumnEncoder.compile(metadata);
+        labels = new SerializableString[encoders.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new SerializedString(metadata.getColumnLabel(i + 1));
+        }
+    }
+
+    int size() {
+        return labels.length;
+    }
+
+    /**
+     * Write the label of the column at the given index, starting from 0.
+     */
+    void writeLabel(JsonGenerator generator, int index) throws IOException {
+        generator.writeString(labels[index]);
+    }
+
+    /**
+     * Write the current row of the {@link ResultSet} as an object of labels to values.
+     */
+    void writeObject(JsonGenerator generator, ResultSet results) throws SQLException, IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < labels.length; i++) {
+            generator.writeFieldName(labels[i]);
+            encoders[i].writeJson(results, i + 1, generator);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the current row of the {@link ResultSet} as an array of values.
+     */
+    void writeArray(JsonGenerator generator, ResultSet results) throws SQLException, IOException {
+        generator.writeStartArray();
+        for (int i = 0; i < labels.length; i++) {
+            encoders[i].writeJson(results, i + 1, generator);
+        }
+        generator.writeEndArray();
+    }
+}
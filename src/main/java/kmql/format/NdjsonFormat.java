@@ -0,0 +1,48 @@
+package kmql.format;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonGenerator.Feature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import kmql.OutputFormat;
+
+/**
+ * Newline-delimited JSON format, which writes each row as a JSON object in a line.
+ * Example:
+ * {@code
+ * {"ID":1,"HOST":"host1.com"}
+ * {"ID":2,"HOST":"host2.com"}
+ * }
+ * Output is flushed every {@link #FLUSH_ROWS} rows so that consumers can process rows while the rest are
+ * still being written.
+ */
+public class NdjsonFormat implements OutputFormat {
+    static final int FLUSH_ROWS = 1000;
+
+    private final JsonFactory factory = new ObjectMapper()
+            .disable(Feature.AUTO_CLOSE_TARGET)
+            .getFactory();
+
+    @Override
+    public void formatTo(ResultSet results, BufferedOutputStream out) throws SQLException, IOException {
+        JsonColumns columns = new JsonColumns(results.getMetaData());
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            // Rows are delimited by newlines rather than the default space
+            generator.setRootValueSeparator(null);
+            int rows = 0;
+            while (results.next()) {
+                columns.writeObject(generator, results);
+                generator.writeRaw('\n');
+                if (++rows % FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+}
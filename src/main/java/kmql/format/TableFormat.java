@@ -6,6 +6,7 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.jakewharton.fliptables.FlipTable;
@@ -14,31 +15,134 @@ import kmql.OutputFormat;
 
 /**
  * Pretty-printed table format.
+ * Results of up to {@link #DEFAULT_BUFFER_ROWS} rows are rendered as a whole.
+ * Larger results are streamed in the same style, with column widths sized from the first
+ * {@link #DEFAULT_BUFFER_ROWS} rows and longer values in later rows truncated, so that memory usage doesn't
+ * grow with the number of rows.
  */
 public class TableFormat implements OutputFormat {
     public static final String[][] ARRAY_PROTO = new String[0][];
+    public static final int DEFAULT_BUFFER_ROWS = 1000;
+    private static final char ELLIPSIS = '…';
+
+    private final int bufferRows;
+
+    public TableFormat() {
+        this(DEFAULT_BUFFER_ROWS);
+    }
+
+    /**
+     * Create a new {@link TableFormat}.
+     * @param bufferRows number of rows to hold in memory before starting to stream.
+     */
+    public TableFormat(int bufferRows) {
+        if (bufferRows < 1) {
+            throw new IllegalArgumentException("bufferRows must be positive: " + bufferRows);
+        }
+        this.bufferRows = bufferRows;
+    }
 
     @Override
     public void formatTo(ResultSet results, BufferedOutputStream out) throws SQLException {
         ResultSetMetaData metadata = results.getMetaData();
-        int columns = metadata.getColumnCount();
+        ColumnEncoder[] encoders = ColumnEncoder.compile(metadata);
+        int columns = encoders.length;
         String[] headers = new String[columns];
         for (int i = 0; i < columns; i++) {
             headers[i] = metadata.getColumnLabel(i + 1);
         }
 
         List<String[]> rows = new ArrayList<>();
+        boolean hasMore = false;
         while (results.next()) {
-            String[] row = new String[columns];
-            for (int i = 0; i < columns; i++) {
-                Object value = results.getObject(i + 1);
-                row[i] = String.valueOf(value);
+            if (rows.size() == bufferRows) {
+                hasMore = true;
+                break;
             }
-            rows.add(row);
+            rows.add(readRow(results, encoders));
         }
 
         PrintWriter pw = new PrintWriter(out);
-        pw.write(FlipTable.of(headers, rows.toArray(ARRAY_PROTO)));
+        if (!hasMore) {
+            pw.write(FlipTable.of(headers, rows.toArray(ARRAY_PROTO)));
+            pw.flush();
+            return;
+        }
+
+        // Renders the same way as FlipTable does, row by row
+        int[] widths = new int[columns];
+        // At least one character to put an ellipsis in
+        Arrays.fill(widths, 1);
+        updateWidths(widths, headers);
+        for (String[] row : rows) {
+            updateWidths(widths, row);
+        }
+        printDivider(pw, widths, "╔═╤═╗");
+        printRow(pw, widths, headers);
+        String divider = "╠═╪═╣";
+        for (String[] row : rows) {
+            printDivider(pw, widths, divider);
+            printRow(pw, widths, row);
+            divider = "╟─┼─╢";
+        }
+        rows.clear();
+        // The cursor is already on the first row that didn't fit in the buffer
+        do {
+            printDivider(pw, widths, divider);
+            printRow(pw, widths, readRow(results, encoders));
+        } while (results.next());
+        printDivider(pw, widths, "╚═╧═╝");
         pw.flush();
     }
+
+    private static String[] readRow(ResultSet results, ColumnEncoder[] encoders) throws SQLException {
+        String[] row = new String[encoders.length];
+        for (int i = 0; i < encoders.length; i++) {
+            row[i] = encoders[i].toText(results, i + 1);
+        }
+        return row;
+    }
+
+    private static void updateWidths(int[] widths, String[] row) {
+        for (int i = 0; i < widths.length; i++) {
+            for (String line : row[i].split("\\n")) {
+                widths[i] = Math.max(widths[i], line.length());
+            }
+        }
+    }
+
+    private static void printDivider(PrintWriter pw, int[] widths, String format) {
+        for (int i = 0; i < widths.length; i++) {
+            pw.write(i == 0 ? format.charAt(0) : format.charAt(2));
+            for (int j = 0; j < widths[i] + 2; j++) {
+                pw.write(format.charAt(1));
+            }
+        }
+        pw.write(format.charAt(4));
+        pw.write('\n');
+    }
+
+    private static void printRow(PrintWriter pw, int[] widths, String[] row) {
+        String[][] cells = new String[row.length][];
+        int lines = 1;
+        for (int i = 0; i < row.length; i++) {
+            cells[i] = row[i].split("\\n");
+            lines = Math.max(lines, cells[i].length);
+        }
+        for (int line = 0; line < lines; line++) {
+            for (int i = 0; i < row.length; i++) {
+                pw.write(i == 0 ? '║' : '│');
+                String text = line < cells[i].length ? cells[i][line] : "";
+                if (text.length() > widths[i]) {
+                    text = text.substring(0, widths[i] - 1) + ELLIPSIS;
+                }
+                pw.write(' ');
+                pw.write(text);
+                for (int j = text.length(); j < widths[i] + 1; j++) {
+                    pw.write(' ');
+                }
+            }
+            pw.write("║\n");
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package kmql.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes text into an {@link OutputStream} in the platform default charset, as {@link java.io.PrintWriter}
+ * does, but writes numbers and ASCII strings straight into the stream without allocating intermediate
+ * objects.
+ */
+final class TextOutput {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    // Whether ASCII characters are encoded into the same single bytes in the charset
+    private static final boolean ASCII_COMPATIBLE = CHARSET.equals(StandardCharsets.UTF_8)
+                                                    || CHARSET.equals(StandardCharsets.US_ASCII)
+                                                    || CHARSET.equals(StandardCharsets.ISO_8859_1);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+
+    private final OutputStream out;
+    // Enough for the longest long, "-9223372036854775808"
+    private final byte[] digits = new byte[20];
+
+    TextOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+    }
+
+    void writeLine() throws IOException {
+        out.write(LINE_SEPARATOR);
+    }
+
+    void writeString(String value) throws IOException {
+        if (!ASCII_COMPATIBLE) {
+            out.write(value.getBytes(CHARSET));
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                out.write(value.getBytes(CHARSET));
+                return;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            out.write(value.charAt(i));
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeString(Long.toString(value));
+            return;
+        }
+        boolean negative = value < 0;
+        long rest = negative ? -value : value;
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (negative) {
+            digits[--pos] = '-';
+        }
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    /**
+     * Encode the given text in the charset that this output writes in.
+     */
+    static byte[] encode(String text) {
+        return text.getBytes(CHARSET);
+    }
+}
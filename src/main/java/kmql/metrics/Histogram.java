@@ -0,0 +1,106 @@
+package kmql.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies counted into fixed buckets, which is cheap enough to observe on every call and
+ * maps directly to a Prometheus histogram.
+ */
+public class Histogram implements HistogramMBean {
+    /**
+     * Upper bounds of the buckets in seconds, followed by an implicit +Inf bucket.
+     */
+    static final double[] BOUNDS = { 0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60 };
+
+    // Non-cumulative count of each bucket, the last one being +Inf
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Count a latency into the histogram.
+     * @param nanos the latency in nanoseconds.
+     */
+    public void observe(long nanos) {
+        double seconds = nanos / 1e9;
+        int bucket = 0;
+        while (bucket < BOUNDS.length && seconds > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Return cumulative counts of the buckets, each counting latencies less than or equal to its bound.
+     * @return counts of {@link #BOUNDS} and +Inf.
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += buckets.get(i);
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Estimate the latency at the given quantile by interpolating within the bucket it falls into.
+     * @param quantile the quantile between 0 and 1.
+     * @return the latency in milliseconds, or zero if nothing has been observed.
+     */
+    public double quantileMillis(double quantile) {
+        long[] counts = cumulativeCounts();
+        long total = counts[counts.length - 1];
+        if (total == 0) {
+            return 0;
+        }
+        double rank = quantile * total;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (counts[i] >= rank) {
+                double lower = i == 0 ? 0 : BOUNDS[i - 1];
+                long below = i == 0 ? 0 : counts[i - 1];
+                if (counts[i] == below) {
+                    return lower * 1000;
+                }
+                double fraction = (rank - below) / (counts[i] - below);
+                return (lower + (BOUNDS[i] - lower) * fraction) * 1000;
+            }
+        }
+        // Beyond the largest bound, which is all a histogram can tell
+        return BOUNDS[BOUNDS.length - 1] * 1000;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sumNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return quantileMillis(0.5);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return quantileMillis(0.9);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return quantileMillis(0.99);
+    }
+}
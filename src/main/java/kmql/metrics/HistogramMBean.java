@@ -0,0 +1,16 @@
+package kmql.metrics;
+
+/**
+ * JMX view of a {@link Histogram}, with percentiles estimated from its buckets.
+ */
+public interface HistogramMBean {
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+}
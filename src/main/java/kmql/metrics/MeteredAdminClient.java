@@ -0,0 +1,140 @@
+package kmql.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeClusterOptions;
+import org.apache.kafka.clients.admin.DescribeClusterResult;
+import org.apache.kafka.clients.admin.DescribeConfigsOptions;
+import org.apache.kafka.clients.admin.DescribeConfigsResult;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsResult;
+import org.apache.kafka.clients.admin.DescribeLogDirsOptions;
+import org.apache.kafka.clients.admin.DescribeLogDirsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupsResult;
+import org.apache.kafka.clients.admin.ListPartitionReassignmentsOptions;
+import org.apache.kafka.clients.admin.ListPartitionReassignmentsResult;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+
+import kmql.ForwardingAdminClient;
+
+/**
+ * An AdminClient that passes calls through to another client, observing the latency of each call kmql
+ * makes into a {@link Histogram} per API.
+ * Calls of other APIs pass through unobserved.
+ * A call counts as completed when all of its futures complete, successfully or not.
+ */
+public class MeteredAdminClient extends ForwardingAdminClient {
+    /**
+     * APIs whose latencies are observed.
+     */
+    public static final List<String> APIS = Collections.unmodifiableList(Arrays.asList(
+            "describeCluster", "listTopics", "describeTopics", "describeLogDirs", "describeConfigs",
+            "listConsumerGroups", "describeConsumerGroups", "listPartitionReassignments"));
+
+    private final Map<String, Histogram> latencies;
+
+    public MeteredAdminClient(AdminClient delegate) {
+        super(delegate);
+        Map<String, Histogram> latencies = new LinkedHashMap<>();
+        for (String api : APIS) {
+            latencies.put(api, new Histogram());
+        }
+        this.latencies = Collections.unmodifiableMap(latencies);
+    }
+
+    /**
+     * Return latency histograms of calls by API name, in the order of {@link #APIS}.
+     * @return the map of API name and {@link Histogram}.
+     */
+    public Map<String, Histogram> latencies() {
+        return latencies;
+    }
+
+    private void observe(String api, long startNanos, Collection<? extends KafkaFuture<?>> futures) {
+        Histogram histogram = latencies.get(api);
+        KafkaFuture.allOf(futures.toArray(new KafkaFuture<?>[0])).whenComplete(
+                (ignored, error) -> histogram.observe(System.nanoTime() - startNanos));
+    }
+
+    @Override
+    public DescribeClusterResult describeCluster(DescribeClusterOptions options) {
+        long start = System.nanoTime();
+        DescribeClusterResult result = delegate.describeCluster(options);
+        observe("describeCluster", start, Arrays.asList(result.nodes(), result.controller(), result.clusterId()));
+        return result;
+    }
+
+    @Override
+    public ListTopicsResult listTopics(ListTopicsOptions options) {
+        long start = System.nanoTime();
+        ListTopicsResult result = delegate.listTopics(options);
+        observe("listTopics", start, Collections.singletonList(result.namesToListings()));
+        return result;
+    }
+
+    @Override
+    public DescribeTopicsResult describeTopics(Collection<String> topicNames, DescribeTopicsOptions options) {
+        long start = System.nanoTime();
+        DescribeTopicsResult result = delegate.describeTopics(topicNames, options);
+        observe("describeTopics", start, result.values().values());
+        return result;
+    }
+
+    @Override
+    public DescribeLogDirsResult describeLogDirs(Collection<Integer> brokers, DescribeLogDirsOptions options) {
+        long start = System.nanoTime();
+        DescribeLogDirsResult result = delegate.describeLogDirs(brokers, options);
+        observe("describeLogDirs", start, result.values().values());
+        return result;
+    }
+
+    @Override
+    public DescribeConfigsResult describeConfigs(Collection<ConfigResource> resources,
+                                                 DescribeConfigsOptions options) {
+        long start = System.nanoTime();
+        DescribeConfigsResult result = delegate.describeConfigs(resources, options);
+        observe("describeConfigs", start, result.values().values());
+        return result;
+    }
+
+    @Override
+    public ListConsumerGroupsResult listConsumerGroups(ListConsumerGroupsOptions options) {
+        long start = System.nanoTime();
+        ListConsumerGroupsResult result = delegate.listConsumerGroups(options);
+        observe("listConsumerGroups", start, Collections.singletonList(result.all()));
+        return result;
+    }
+
+    @Override
+    public DescribeConsumerGroupsResult describeConsumerGroups(Collection<String> groupIds,
+                                                               DescribeConsumerGroupsOptions options) {
+        long start = System.nanoTime();
+        DescribeConsumerGroupsResult result = delegate.describeConsumerGroups(groupIds, options);
+        observe("describeConsumerGroups", start, result.describedGroups().values());
+        return result;
+    }
+
+    @Override
+    public ListPartitionReassignmentsResult listPartitionReassignments(Optional<Set<TopicPartition>> partitions,
+                                                                       ListPartitionReassignmentsOptions options) {
+        long start = System.nanoTime();
+        ListPartitionReassignmentsResult result = delegate.listPartitionReassignments(partitions, options);
+        observe("listPartitionReassignments", start, Collections.singletonList(result.reassignments()));
+        return result;
+    }
+}
@@ -0,0 +1,192 @@
+package kmql.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import kmql.Database;
+import kmql.Database.TableStats;
+import kmql.ResultCache;
+
+/**
+ * Metrics of a long-running kmql process: latencies of table loads, AdminClient calls and queries, rows held
+ * by each table and hits of the result cache.
+ * They're exposed as JMX MBeans under the {@link #JMX_DOMAIN} domain once {@link #registerMBeans()} is
+ * called, and in the Prometheus text format through {@link #writePrometheus(Writer)}.
+ */
+public class Metrics implements AutoCloseable {
+    public static final String JMX_DOMAIN = "kmql";
+
+    private final Database db;
+    // Null if query results aren't cached
+    private final ResultCache resultCache;
+    // Empty if AdminClient calls aren't metered
+    private final Map<String, Histogram> adminCalls;
+    private final Map<String, Histogram> tableLoads = new TreeMap<>();
+    private final Histogram queries = new Histogram();
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * Create a new {@link Metrics} that observes the given database.
+     * @param db the {@link Database} to observe tables and queries of.
+     * @param resultCache the {@link ResultCache} of queries, or null if results aren't cached.
+     * @param adminClient the {@link MeteredAdminClient} that tables are prepared through, or null if
+     *                    AdminClient calls aren't metered.
+     */
+    public Metrics(Database db, ResultCache resultCache, MeteredAdminClient adminClient) {
+        this.db = db;
+        this.resultCache = resultCache;
+        adminCalls = adminClient != null ? adminClient.latencies() : Collections.emptyMap();
+        for (String table : db.tables()) {
+            tableLoads.put(table, new Histogram());
+        }
+        db.addLoadListener(stats -> tableLoads.get(stats.getName()).observe(stats.loadNanos()));
+        db.queryLog().addListener(entry -> queries.observe(
+                entry.getPrepareNanos() + entry.getExecuteNanos() + entry.getFormatNanos()));
+    }
+
+    /**
+     * Return the latency histogram of loads of the given table.
+     * @param table the name of the table.
+     * @return a {@link Histogram}.
+     */
+    public Histogram tableLoads(String table) {
+        Histogram histogram = tableLoads.get(table);
+        if (histogram == null) {
+            throw new IllegalArgumentException("no such table: " + table);
+        }
+        return histogram;
+    }
+
+    /**
+     * Return the latency histogram of queries, from preparing tables to writing out the result.
+     * @return a {@link Histogram}.
+     */
+    public Histogram queries() {
+        return queries;
+    }
+
+    /**
+     * Register MBeans of all metrics to the platform MBeanServer.
+     * They stay registered until this instance is closed.
+     * @throws JMException when failed to register, e.g, another instance is registered in the same JVM.
+     */
+    public synchronized void registerMBeans() throws JMException {
+        for (Entry<String, Histogram> entry : tableLoads.entrySet()) {
+            register("type=TableLoad,table=" + ObjectName.quote(entry.getKey()), entry.getValue());
+            register("type=Table,table=" + ObjectName.quote(entry.getKey()), new TableMetrics(db, entry.getKey()));
+        }
+        for (Entry<String, Histogram> entry : adminCalls.entrySet()) {
+            register("type=AdminClientCall,api=" + entry.getKey(), entry.getValue());
+        }
+        register("type=Query", queries);
+        if (resultCache != null) {
+            register("type=ResultCache", new ResultCacheMetrics(resultCache));
+        }
+    }
+
+    private void register(String properties, Object mbean) throws JMException {
+        ObjectName name = new ObjectName(JMX_DOMAIN + ':' + properties);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+        registeredNames.add(name);
+    }
+
+    /**
+     * Write all metrics in the Prometheus text exposition format.
+     * @param out the writer to write to.
+     * @throws IOException when failed to write.
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        writeHeader(out, "kmql_table_load_seconds", "histogram",
+                    "Time taken to load tables by preparation, refresh or restoration from a snapshot.");
+        for (Entry<String, Histogram> entry : tableLoads.entrySet()) {
+            writeHistogram(out, "kmql_table_load_seconds", "table", entry.getKey(), entry.getValue());
+        }
+        List<TableStats> tableStats = db.tableStats();
+        writeHeader(out, "kmql_table_rows", "gauge", "Number of rows held in tables.");
+        for (TableStats stats : tableStats) {
+            writeSample(out, "kmql_table_rows", label("table", stats.getName()), stats.getRows());
+        }
+        writeHeader(out, "kmql_table_estimated_bytes", "gauge", "Estimated size of values held in tables.");
+        for (TableStats stats : tableStats) {
+            writeSample(out, "kmql_table_estimated_bytes", label("table", stats.getName()),
+                        stats.getEstimatedBytes());
+        }
+        if (!adminCalls.isEmpty()) {
+            writeHeader(out, "kmql_admin_call_seconds", "histogram",
+                        "Time taken by AdminClient calls until all of their futures completed.");
+            for (Entry<String, Histogram> entry : adminCalls.entrySet()) {
+                writeHistogram(out, "kmql_admin_call_seconds", "api", entry.getKey(), entry.getValue());
+            }
+        }
+        writeHeader(out, "kmql_query_seconds", "histogram",
+                    "Time taken by queries from preparing tables to writing out the result.");
+        writeHistogram(out, "kmql_query_seconds", null, null, queries);
+        if (resultCache != null) {
+            writeHeader(out, "kmql_result_cache_hits_total", "counter", "Lookups of up-to-date cached results.");
+            writeSample(out, "kmql_result_cache_hits_total", "", resultCache.hits());
+            writeHeader(out, "kmql_result_cache_misses_total", "counter",
+                        "Lookups that found no cached result or an outdated one.");
+            writeSample(out, "kmql_result_cache_misses_total", "", resultCache.misses());
+        }
+        out.flush();
+    }
+
+    private static void writeHeader(Writer out, String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + ' ' + help + '\n');
+        out.write("# TYPE " + name + ' ' + type + '\n');
+    }
+
+    private static void writeHistogram(Writer out, String name, String labelName, String labelValue,
+                                       Histogram histogram) throws IOException {
+        String labels = labelName == null ? "" : label(labelName, labelValue) + ',';
+        long[] counts = histogram.cumulativeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            String bound = i < Histogram.BOUNDS.length ? String.valueOf(Histogram.BOUNDS[i]) : "+Inf";
+            writeSample(out, name + "_bucket", labels + label("le", bound), counts[i]);
+        }
+        String sumLabels = labelName == null ? "" : label(labelName, labelValue);
+        out.write(name + "_sum" + braces(sumLabels) + ' ' + histogram.sumNanos() / 1e9 + '\n');
+        writeSample(out, name + "_count", sumLabels, counts[counts.length - 1]);
+    }
+
+    private static void writeSample(Writer out, String name, String labels, long value) throws IOException {
+        out.write(name + braces(labels) + ' ' + value + '\n');
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : '{' + labels + '}';
+    }
+
+    private static String label(String name, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return name + "=\"" + escaped + '"';
+    }
+
+    /**
+     * Unregister MBeans registered by {@link #registerMBeans()}.
+     */
+    @Override
+    public synchronized void close() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException ignored) {
+                // Unregistered by someone else
+            }
+        }
+        registeredNames.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package kmql.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exposes {@link Metrics} in the Prometheus text format, either served over HTTP on a local port or
+ * written into a file periodically, e.g, for the textfile collector of node_exporter.
+ */
+public class PrometheusExporter implements AutoCloseable {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Either of them is non-null
+    private final HttpServer server;
+    private final ScheduledExecutorService writer;
+    private final Runnable finalWrite;
+
+    private PrometheusExporter(HttpServer server, ScheduledExecutorService writer, Runnable finalWrite) {
+        this.server = server;
+        this.writer = writer;
+        this.finalWrite = finalWrite;
+    }
+
+    /**
+     * Serve metrics at /metrics on the given port of the loopback address.
+     * @param metrics the {@link Metrics} to serve.
+     * @param port the port to listen on, or 0 to choose any free port.
+     * @return a {@link PrometheusExporter}, which stops serving when closed.
+     * @throws IOException when failed to listen on the port.
+     */
+    public static PrometheusExporter serve(Metrics metrics, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            try {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                metrics.writePrometheus(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.size());
+                try (OutputStream out = exchange.getResponseBody()) {
+                    body.writeTo(out);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return new PrometheusExporter(server, null, null);
+    }
+
+    /**
+     * Write metrics into the given file at the given interval and once more when closed.
+     * The file is replaced atomically, so readers never see partially written metrics.
+     * @param metrics the {@link Metrics} to write.
+     * @param path the file to write into.
+     * @param interval the interval between writes.
+     * @return a {@link PrometheusExporter}, which stops writing when closed.
+     */
+    public static PrometheusExporter writeTo(Metrics metrics, Path path, Duration interval) {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kmql-metrics-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable write = () -> {
+            try {
+                write(metrics, path);
+            } catch (IOException e) {
+                System.err.println("Failed to write metrics: " + e);
+            }
+        };
+        writer.scheduleWithFixedDelay(write, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        return new PrometheusExporter(null, writer, write);
+    }
+
+    /**
+     * Return the port that metrics are served on.
+     * @return the port, or -1 if metrics are written into a file.
+     */
+    public int port() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    private static void write(Metrics metrics, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            metrics.writePrometheus(out);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (server != null) {
+            server.stop(0);
+        } else {
+            writer.shutdownNow();
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+            finalWrite.run();
+        }
+    }
+}
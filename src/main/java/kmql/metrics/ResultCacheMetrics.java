@@ -0,0 +1,41 @@
+package kmql.metrics;
+
+import kmql.ResultCache;
+
+/**
+ * Exposes statistics of a {@link ResultCache} through JMX.
+ */
+public class ResultCacheMetrics implements ResultCacheMetricsMBean {
+    private final ResultCache cache;
+
+    public ResultCacheMetrics(ResultCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public long getHits() {
+        return cache.hits();
+    }
+
+    @Override
+    public long getMisses() {
+        return cache.misses();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = cache.hits();
+        long lookups = hits + cache.misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getBytes() {
+        return cache.bytes();
+    }
+
+    @Override
+    public int getEntries() {
+        return cache.size();
+    }
+}
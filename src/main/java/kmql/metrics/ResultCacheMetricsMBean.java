@@ -0,0 +1,19 @@
+package kmql.metrics;
+
+/**
+ * JMX view of a {@link kmql.ResultCache}.
+ */
+public interface ResultCacheMetricsMBean {
+    long getHits();
+
+    long getMisses();
+
+    /**
+     * Ratio of lookups that hit, or zero if nothing has been looked up.
+     */
+    double getHitRate();
+
+    long getBytes();
+
+    int getEntries();
+}
@@ -0,0 +1,49 @@
+package kmql.metrics;
+
+import kmql.Database;
+import kmql.Database.TableStats;
+
+/**
+ * Exposes {@link TableStats} of a table through JMX.
+ */
+public class TableMetrics implements TableMetricsMBean {
+    private final Database db;
+    private final String table;
+
+    public TableMetrics(Database db, String table) {
+        this.db = db;
+        this.table = table;
+    }
+
+    private TableStats stats() {
+        return db.tableStats().stream()
+                 .filter(stats -> stats.getName().equals(table))
+                 .findFirst()
+                 .orElseThrow(() -> new IllegalStateException("no such table: " + table));
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return stats().isInitialized();
+    }
+
+    @Override
+    public long getRows() {
+        return stats().getRows();
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return stats().getEstimatedBytes();
+    }
+
+    @Override
+    public int getLoads() {
+        return stats().getLoads();
+    }
+
+    @Override
+    public long getUpdatedAt() {
+        return stats().getUpdatedAt();
+    }
+}
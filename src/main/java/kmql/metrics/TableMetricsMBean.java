@@ -0,0 +1,19 @@
+package kmql.metrics;
+
+/**
+ * JMX view of the contents of a table.
+ */
+public interface TableMetricsMBean {
+    boolean isInitialized();
+
+    long getRows();
+
+    long getEstimatedBytes();
+
+    int getLoads();
+
+    /**
+     * Time in epoch millis that the contents of the table were obtained at, or zero if never loaded.
+     */
+    long getUpdatedAt();
+}
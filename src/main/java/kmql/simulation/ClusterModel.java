@@ -0,0 +1,226 @@
+package kmql.simulation;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.MemberAssignment;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.clients.admin.PartitionReassignment;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.ConfigResource.Type;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.ReplicaInfo;
+
+import lombok.Value;
+
+/**
+ * Metadata of a cluster as AdminClient returns it, which {@link SimulatedAdminClient} serves.
+ */
+@Value
+public class ClusterModel {
+    private static final long SEGMENT_BYTES = 1024L * 1024 * 1024;
+
+    String clusterId;
+    List<Node> nodes;
+    Node controller;
+    Map<String, TopicDescription> topics;
+    Map<Integer, Map<String, LogDirInfo>> logDirs;
+    Map<ConfigResource, Config> configs;
+    Map<String, ConsumerGroupDescription> consumerGroups;
+    Map<TopicPartition, PartitionReassignment> reassignments;
+
+    /**
+     * Generate a model of the given spec.
+     * The same spec always generates the same model.
+     * @param spec the spec of the cluster.
+     * @return a {@link ClusterModel}.
+     */
+    public static ClusterModel generate(ClusterSpec spec) {
+        spec.validate();
+        Random random = new Random(spec.getSeed());
+
+        List<Node> nodes = new ArrayList<>(spec.getBrokers());
+        Map<Integer, Map<String, Map<TopicPartition, ReplicaInfo>>> replicaInfos = new HashMap<>();
+        for (int i = 0; i < spec.getBrokers(); i++) {
+            int id = i + 1;
+            nodes.add(new Node(id, "broker" + id + ".kafka.example.com", 9092, "rack-" + i % spec.getRacks()));
+            Map<String, Map<TopicPartition, ReplicaInfo>> dirs = new LinkedHashMap<>();
+            for (int d = 0; d < spec.getLogDirsPerBroker(); d++) {
+                dirs.put(logDirPath(d), new HashMap<>());
+            }
+            replicaInfos.put(id, dirs);
+        }
+
+        // Partitions to reassign are spread evenly over all partitions
+        int partitions = spec.getTopics() * spec.getPartitionsPerTopic();
+        int reassignEvery = spec.getReassignments() == 0 ? 0 : Math.max(1, partitions / spec.getReassignments());
+        Map<TopicPartition, PartitionReassignment> reassignments = new HashMap<>();
+
+        Map<String, TopicDescription> topics = new LinkedHashMap<>();
+        for (int t = 0; t < spec.getTopics(); t++) {
+            String topic = topicName(t);
+            List<TopicPartitionInfo> infos = new ArrayList<>(spec.getPartitionsPerTopic());
+            for (int p = 0; p < spec.getPartitionsPerTopic(); p++) {
+                TopicPartition tp = new TopicPartition(topic, p);
+                // Consecutive broker ids are in different racks, hence rack aware
+                int first = (t * 7 + p) % nodes.size();
+                List<Node> replicas = new ArrayList<>(spec.getReplicationFactor() + 1);
+                for (int r = 0; r < spec.getReplicationFactor(); r++) {
+                    replicas.add(nodes.get((first + r) % nodes.size()));
+                }
+                List<Node> isr = new ArrayList<>(replicas);
+                if (random.nextDouble() < spec.getOutOfSyncRatio() && isr.size() > 1) {
+                    isr.remove(isr.size() - 1);
+                }
+                int index = t * spec.getPartitionsPerTopic() + p;
+                if (reassignEvery > 0 && index % reassignEvery == 0
+                    && reassignments.size() < spec.getReassignments()) {
+                    // Moving the last replica to the next broker, which is still catching up
+                    Node adding = nodes.get((first + spec.getReplicationFactor()) % nodes.size());
+                    Node removing = replicas.get(replicas.size() - 1);
+                    replicas.add(adding);
+                    reassignments.put(tp, new PartitionReassignment(
+                            ids(replicas), singletonList(adding.id()), singletonList(removing.id())));
+                }
+                for (Node replica : replicas) {
+                    boolean inSync = isr.contains(replica);
+                    long size = (long) (random.nextDouble() * SEGMENT_BYTES);
+                    long lag = inSync ? 0 : random.nextInt(1_000_000) + 1;
+                    String dir = logDirPath((t + p) % spec.getLogDirsPerBroker());
+                    replicaInfos.get(replica.id()).get(dir).put(tp, new ReplicaInfo(size, lag, false));
+                }
+                infos.add(new TopicPartitionInfo(p, isr.get(0), replicas, isr));
+            }
+            topics.put(topic, new TopicDescription(topic, false, infos));
+        }
+
+        Map<Integer, Map<String, LogDirInfo>> logDirs = new HashMap<>();
+        replicaInfos.forEach((id, dirs) -> {
+            Map<String, LogDirInfo> infos = new LinkedHashMap<>();
+            dirs.forEach((path, replicas) -> infos.put(path, new LogDirInfo(Errors.NONE, replicas)));
+            logDirs.put(id, infos);
+        });
+
+        Map<ConfigResource, Config> configs = new HashMap<>();
+        for (Node node : nodes) {
+            configs.put(new ConfigResource(Type.BROKER, String.valueOf(node.id())), brokerConfig(spec, node));
+        }
+        for (int t = 0; t < spec.getTopics(); t++) {
+            configs.put(new ConfigResource(Type.TOPIC, topicName(t)), topicConfig(t));
+        }
+
+        Map<String, ConsumerGroupDescription> groups = new LinkedHashMap<>();
+        for (int g = 0; g < spec.getConsumerGroups(); g++) {
+            String groupId = "group-" + g;
+            List<Set<TopicPartition>> assignments = new ArrayList<>(spec.getMembersPerGroup());
+            for (int m = 0; m < spec.getMembersPerGroup(); m++) {
+                assignments.add(new HashSet<>());
+            }
+            int next = 0;
+            for (int i = 0; i < spec.getTopicsPerGroup(); i++) {
+                String topic = topicName((g * spec.getTopicsPerGroup() + i) % spec.getTopics());
+                for (int p = 0; p < spec.getPartitionsPerTopic(); p++) {
+                    assignments.get(next++ % assignments.size()).add(new TopicPartition(topic, p));
+                }
+            }
+            List<MemberDescription> members = new ArrayList<>(assignments.size());
+            for (int m = 0; m < assignments.size(); m++) {
+                String clientId = groupId + "-client-" + m;
+                members.add(new MemberDescription(
+                        String.format("%s-%08x", clientId, random.nextInt()), clientId,
+                        "/10." + g / 256 % 256 + '.' + g % 256 + '.' + m % 256,
+                        new MemberAssignment(assignments.get(m))));
+            }
+            groups.put(groupId, new ConsumerGroupDescription(
+                    groupId, false, members, "range", ConsumerGroupState.STABLE,
+                    nodes.get(Math.abs(groupId.hashCode() % nodes.size()))));
+        }
+
+        return new ClusterModel(spec.getClusterId(), nodes, nodes.get(0), topics, logDirs, configs, groups,
+                                reassignments);
+    }
+
+    private static String topicName(int index) {
+        return "topic-" + index;
+    }
+
+    private static String logDirPath(int index) {
+        return "/var/kafka/data" + index;
+    }
+
+    private static List<Integer> ids(List<Node> nodes) {
+        List<Integer> ids = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            ids.add(node.id());
+        }
+        return ids;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static ConfigEntry entry(String name, String value, boolean isDefault) {
+        return new ConfigEntry(name, value, isDefault, false, false);
+    }
+
+    private static Config brokerConfig(ClusterSpec spec, Node node) {
+        List<String> dirs = new ArrayList<>(spec.getLogDirsPerBroker());
+        for (int d = 0; d < spec.getLogDirsPerBroker(); d++) {
+            dirs.add(logDirPath(d));
+        }
+        return new Config(Arrays.asList(
+                entry("broker.id", String.valueOf(node.id()), false),
+                entry("broker.rack", node.rack(), false),
+                entry("log.dirs", String.join(",", dirs), false),
+                entry("default.replication.factor", String.valueOf(spec.getReplicationFactor()), false),
+                entry("min.insync.replicas", "2", false),
+                entry("auto.create.topics.enable", "false", false),
+                entry("unclean.leader.election.enable", "false", true),
+                entry("num.network.threads", "8", false),
+                entry("num.io.threads", "8", true),
+                entry("log.retention.hours", "168", true),
+                entry("log.segment.bytes", String.valueOf(SEGMENT_BYTES), true),
+                entry("message.max.bytes", "1000012", true)));
+    }
+
+    private static Config topicConfig(int index) {
+        // Every 10th topic is compacted and every 4th has its retention shortened
+        boolean compacted = index % 10 == 0;
+        boolean shortRetention = index % 4 == 0;
+        return new Config(Arrays.asList(
+                entry("cleanup.policy", compacted ? "compact" : "delete", !compacted),
+                entry("retention.ms", shortRetention ? "86400000" : "604800000", !shortRetention),
+                entry("segment.bytes", String.valueOf(SEGMENT_BYTES), true),
+                entry("min.insync.replicas", "2", false),
+                entry("max.message.bytes", "1000012", true),
+                entry("compression.type", "producer", true),
+                entry("message.timestamp.type", "CreateTime", true),
+                entry("unclean.leader.election.enable", "false", true)));
+    }
+
+    /**
+     * Build a description of a consumer group that doesn't exist, the same as brokers return.
+     * @param groupId the group id.
+     * @return a {@link ConsumerGroupDescription} of a dead group.
+     */
+    ConsumerGroupDescription deadGroup(String groupId) {
+        return new ConsumerGroupDescription(groupId, false, emptyList(), "", ConsumerGroupState.DEAD, controller);
+    }
+}
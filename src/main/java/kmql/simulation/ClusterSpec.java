@@ -0,0 +1,100 @@
+package kmql.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+
+/**
+ * Scale and behavior of a simulated cluster, loaded from a JSON file whose properties are the fields of this
+ * class, e.g, {"brokers": 50, "topics": 4000, "defaults": {"latencyMillis": 20}, "calls": {"describeLogDirs":
+ * {"latencyMillis": 2000, "failureRate": 0.1}}}.
+ * Omitted properties take the defaults, which describe a cluster of 50 brokers, 200k partitions and 5k
+ * consumer groups.
+ */
+@Data
+public class ClusterSpec {
+    /**
+     * Latency and failures of a single kind of AdminClient call.
+     */
+    @Data
+    public static class CallSpec {
+        private long latencyMillis;
+        /**
+         * Upper bound of the random delay added to latencyMillis.
+         */
+        private long latencyJitterMillis;
+        /**
+         * Probability from 0 to 1 of a call to fail with a timeout.
+         */
+        private double failureRate;
+    }
+
+    private String clusterId = "simulated";
+    private long seed = 1;
+
+    private int brokers = 50;
+    private int racks = 3;
+    private int logDirsPerBroker = 4;
+
+    private int topics = 4000;
+    private int partitionsPerTopic = 50;
+    private int replicationFactor = 3;
+    /**
+     * Ratio of partitions which have their last replica out of sync.
+     */
+    private double outOfSyncRatio = 0.01;
+    private int reassignments = 20;
+
+    private int consumerGroups = 5000;
+    private int membersPerGroup = 4;
+    private int topicsPerGroup = 2;
+
+    private CallSpec defaults = new CallSpec();
+    /**
+     * Overrides of {@link #defaults} by AdminClient method names, e.g, describeTopics.
+     */
+    private Map<String, CallSpec> calls = Collections.emptyMap();
+
+    /**
+     * Load a spec from the given JSON file.
+     * @param path path to the file.
+     * @return a {@link ClusterSpec}.
+     * @throws IOException when failed to read or parse the file.
+     */
+    public static ClusterSpec load(Path path) throws IOException {
+        ClusterSpec spec = new ObjectMapper().readValue(path.toFile(), ClusterSpec.class);
+        spec.validate();
+        return spec;
+    }
+
+    /**
+     * Get the behavior of calls of the given method.
+     * @param method name of AdminClient method.
+     * @return a {@link CallSpec}.
+     */
+    public CallSpec call(String method) {
+        return calls.getOrDefault(method, defaults);
+    }
+
+    void validate() {
+        if (brokers <= 0 || racks <= 0 || logDirsPerBroker <= 0) {
+            throw new IllegalArgumentException("brokers, racks and logDirsPerBroker must be positive");
+        }
+        if (replicationFactor <= 0 || replicationFactor >= brokers) {
+            throw new IllegalArgumentException(
+                    "replicationFactor must be positive and less than brokers to leave room for reassignments");
+        }
+        if (topics < 0 || partitionsPerTopic <= 0 || consumerGroups < 0 || membersPerGroup <= 0
+            || topicsPerGroup < 0 || reassignments < 0) {
+            throw new IllegalArgumentException("negative scale: " + this);
+        }
+        if (topicsPerGroup > topics && consumerGroups > 0) {
+            throw new IllegalArgumentException("topicsPerGroup must not exceed topics");
+        }
+    }
+}
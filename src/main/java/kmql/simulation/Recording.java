@@ -0,0 +1,359 @@
+package kmql.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.ConfigEntry.ConfigSource;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.MemberAssignment;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.clients.admin.PartitionReassignment;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.ReplicaInfo;
+
+import lombok.Value;
+
+/**
+ * AdminClient results captured from a cluster by {@link RecordingAdminClient} along with how long each call
+ * took, which {@link ReplayAdminClient} serves back.
+ * Recordings are stored in a gzipped binary file.
+ */
+@Value
+public class Recording {
+    private static final int MAGIC = 0x4b4d5252; // "KMRR"
+    private static final int VERSION = 1;
+    private static final int NO_NODE = -1;
+
+    ClusterModel model;
+    /**
+     * Latencies in microseconds of the calls of each AdminClient method, in the order they were made.
+     */
+    Map<String, List<Long>> latencies;
+
+    /**
+     * Write this recording into the given file.
+     * @param path path to the file.
+     * @throws IOException when failed to write.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeModel(out, model);
+            out.writeInt(latencies.size());
+            for (Entry<String, List<Long>> entry : latencies.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (long latency : entry.getValue()) {
+                    out.writeLong(latency);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a recording from the given file.
+     * @param path path to the file.
+     * @return a {@link Recording}.
+     * @throws IOException when failed to read or the file isn't a recording.
+     */
+    public static Recording read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a recording: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported recording version " + version + ": " + path);
+            }
+            ClusterModel model = readModel(in);
+            Map<String, List<Long>> latencies = new HashMap<>();
+            int methods = in.readInt();
+            for (int i = 0; i < methods; i++) {
+                String method = in.readUTF();
+                int count = in.readInt();
+                List<Long> values = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    values.add(in.readLong());
+                }
+                latencies.put(method, values);
+            }
+            return new Recording(model, latencies);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNodeId(DataOutputStream out, Node node) throws IOException {
+        out.writeInt(node == null ? NO_NODE : node.id());
+    }
+
+    private static Node readNode(DataInputStream in, Map<Integer, Node> nodes) throws IOException {
+        int id = in.readInt();
+        if (id == NO_NODE) {
+            return null;
+        }
+        // Replicas on brokers that are down aren't in the nodes of the cluster
+        return nodes.computeIfAbsent(id, ignored -> new Node(id, "", -1));
+    }
+
+    private static void writeNodeIds(DataOutputStream out, List<Node> nodes) throws IOException {
+        out.writeInt(nodes.size());
+        for (Node node : nodes) {
+            writeNodeId(out, node);
+        }
+    }
+
+    private static List<Node> readNodes(DataInputStream in, Map<Integer, Node> nodes) throws IOException {
+        int count = in.readInt();
+        List<Node> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(readNode(in, nodes));
+        }
+        return list;
+    }
+
+    private static void writeInts(DataOutputStream out, List<Integer> values) throws IOException {
+        out.writeInt(values.size());
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static List<Integer> readInts(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Integer> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readInt());
+        }
+        return values;
+    }
+
+    private static void writeModel(DataOutputStream out, ClusterModel model) throws IOException {
+        writeString(out, model.getClusterId());
+        out.writeInt(model.getNodes().size());
+        for (Node node : model.getNodes()) {
+            out.writeInt(node.id());
+            out.writeUTF(node.host());
+            out.writeInt(node.port());
+            writeString(out, node.rack());
+        }
+        writeNodeId(out, model.getController());
+
+        out.writeInt(model.getTopics().size());
+        for (TopicDescription desc : model.getTopics().values()) {
+            out.writeUTF(desc.name());
+            out.writeBoolean(desc.isInternal());
+            out.writeInt(desc.partitions().size());
+            for (TopicPartitionInfo info : desc.partitions()) {
+                out.writeInt(info.partition());
+                writeNodeId(out, info.leader());
+                writeNodeIds(out, info.replicas());
+                writeNodeIds(out, info.isr());
+            }
+        }
+
+        out.writeInt(model.getLogDirs().size());
+        for (Entry<Integer, Map<String, LogDirInfo>> broker : model.getLogDirs().entrySet()) {
+            out.writeInt(broker.getKey());
+            out.writeInt(broker.getValue().size());
+            for (Entry<String, LogDirInfo> dir : broker.getValue().entrySet()) {
+                out.writeUTF(dir.getKey());
+                out.writeShort(dir.getValue().error.code());
+                out.writeInt(dir.getValue().replicaInfos.size());
+                for (Entry<TopicPartition, ReplicaInfo> replica : dir.getValue().replicaInfos.entrySet()) {
+                    out.writeUTF(replica.getKey().topic());
+                    out.writeInt(replica.getKey().partition());
+                    out.writeLong(replica.getValue().size);
+                    out.writeLong(replica.getValue().offsetLag);
+                    out.writeBoolean(replica.getValue().isFuture);
+                }
+            }
+        }
+
+        out.writeInt(model.getConfigs().size());
+        for (Entry<ConfigResource, Config> config : model.getConfigs().entrySet()) {
+            out.writeByte(config.getKey().type().id());
+            out.writeUTF(config.getKey().name());
+            out.writeInt(config.getValue().entries().size());
+            for (ConfigEntry entry : config.getValue().entries()) {
+                out.writeUTF(entry.name());
+                writeString(out, entry.value());
+                out.writeUTF(entry.source().name());
+                out.writeBoolean(entry.isSensitive());
+                out.writeBoolean(entry.isReadOnly());
+            }
+        }
+
+        out.writeInt(model.getConsumerGroups().size());
+        for (ConsumerGroupDescription desc : model.getConsumerGroups().values()) {
+            out.writeUTF(desc.groupId());
+            out.writeBoolean(desc.isSimpleConsumerGroup());
+            writeString(out, desc.partitionAssignor());
+            out.writeUTF(desc.state().toString());
+            writeNodeId(out, desc.coordinator());
+            out.writeInt(desc.members().size());
+            for (MemberDescription member : desc.members()) {
+                out.writeUTF(member.consumerId());
+                writeString(out, member.groupInstanceId().orElse(null));
+                out.writeUTF(member.clientId());
+                out.writeUTF(member.host());
+                Set<TopicPartition> assignment = member.assignment().topicPartitions();
+                out.writeInt(assignment.size());
+                for (TopicPartition tp : assignment) {
+                    out.writeUTF(tp.topic());
+                    out.writeInt(tp.partition());
+                }
+            }
+        }
+
+        out.writeInt(model.getReassignments().size());
+        for (Entry<TopicPartition, PartitionReassignment> entry : model.getReassignments().entrySet()) {
+            out.writeUTF(entry.getKey().topic());
+            out.writeInt(entry.getKey().partition());
+            writeInts(out, entry.getValue().replicas());
+            writeInts(out, entry.getValue().addingReplicas());
+            writeInts(out, entry.getValue().removingReplicas());
+        }
+    }
+
+    private static ClusterModel readModel(DataInputStream in) throws IOException {
+        String clusterId = readString(in);
+        int nodeCount = in.readInt();
+        List<Node> nodeList = new ArrayList<>(nodeCount);
+        Map<Integer, Node> nodes = new HashMap<>();
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = new Node(in.readInt(), in.readUTF(), in.readInt(), readString(in));
+            nodeList.add(node);
+            nodes.put(node.id(), node);
+        }
+        Node controller = readNode(in, nodes);
+
+        int topicCount = in.readInt();
+        Map<String, TopicDescription> topics = new LinkedHashMap<>();
+        for (int i = 0; i < topicCount; i++) {
+            String name = in.readUTF();
+            boolean internal = in.readBoolean();
+            int partitionCount = in.readInt();
+            List<TopicPartitionInfo> partitions = new ArrayList<>(partitionCount);
+            for (int p = 0; p < partitionCount; p++) {
+                int partition = in.readInt();
+                Node leader = readNode(in, nodes);
+                partitions.add(new TopicPartitionInfo(partition, leader, readNodes(in, nodes), readNodes(in, nodes)));
+            }
+            topics.put(name, new TopicDescription(name, internal, partitions));
+        }
+
+        int brokerCount = in.readInt();
+        Map<Integer, Map<String, LogDirInfo>> logDirs = new HashMap<>();
+        for (int i = 0; i < brokerCount; i++) {
+            int brokerId = in.readInt();
+            int dirCount = in.readInt();
+            Map<String, LogDirInfo> dirs = new LinkedHashMap<>();
+            for (int d = 0; d < dirCount; d++) {
+                String path = in.readUTF();
+                Errors error = Errors.forCode(in.readShort());
+                int replicaCount = in.readInt();
+                Map<TopicPartition, ReplicaInfo> replicas = new HashMap<>();
+                for (int r = 0; r < replicaCount; r++) {
+                    TopicPartition tp = new TopicPartition(in.readUTF(), in.readInt());
+                    replicas.put(tp, new ReplicaInfo(in.readLong(), in.readLong(), in.readBoolean()));
+                }
+                dirs.put(path, new LogDirInfo(error, replicas));
+            }
+            logDirs.put(brokerId, dirs);
+        }
+
+        int resourceCount = in.readInt();
+        Map<ConfigResource, Config> configs = new HashMap<>();
+        for (int i = 0; i < resourceCount; i++) {
+            ConfigResource resource = new ConfigResource(ConfigResource.Type.forId(in.readByte()), in.readUTF());
+            int entryCount = in.readInt();
+            List<ConfigEntry> entries = new ArrayList<>(entryCount);
+            for (int e = 0; e < entryCount; e++) {
+                String name = in.readUTF();
+                String value = readString(in);
+                ConfigSource source = ConfigSource.valueOf(in.readUTF());
+                boolean sensitive = in.readBoolean();
+                boolean readOnly = in.readBoolean();
+                // The constructor taking the source isn't public
+                entries.add(Results.create(ConfigEntry.class, name, value, source, sensitive, readOnly,
+                                           Collections.emptyList()));
+            }
+            configs.put(resource, new Config(entries));
+        }
+
+        int groupCount = in.readInt();
+        Map<String, ConsumerGroupDescription> groups = new LinkedHashMap<>();
+        for (int i = 0; i < groupCount; i++) {
+            String groupId = in.readUTF();
+            boolean simple = in.readBoolean();
+            String assignor = readString(in);
+            ConsumerGroupState state = ConsumerGroupState.parse(in.readUTF());
+            Node coordinator = readNode(in, nodes);
+            int memberCount = in.readInt();
+            List<MemberDescription> members = new ArrayList<>(memberCount);
+            for (int m = 0; m < memberCount; m++) {
+                String consumerId = in.readUTF();
+                Optional<String> instanceId = Optional.ofNullable(readString(in));
+                String clientId = in.readUTF();
+                String host = in.readUTF();
+                int assignmentCount = in.readInt();
+                Set<TopicPartition> assignment = new HashSet<>();
+                for (int a = 0; a < assignmentCount; a++) {
+                    assignment.add(new TopicPartition(in.readUTF(), in.readInt()));
+                }
+                members.add(new MemberDescription(consumerId, instanceId, clientId, host,
+                                                  new MemberAssignment(assignment)));
+            }
+            groups.put(groupId, new ConsumerGroupDescription(groupId, simple, members, assignor, state,
+                                                             coordinator));
+        }
+
+        int reassignmentCount = in.readInt();
+        Map<TopicPartition, PartitionReassignment> reassignments = new HashMap<>();
+        for (int i = 0; i < reassignmentCount; i++) {
+            TopicPartition tp = new TopicPartition(in.readUTF(), in.readInt());
+            reassignments.put(tp, new PartitionReassignment(readInts(in), readInts(in), readInts(in)));
+        }
+
+        return new ClusterModel(clusterId, nodeList, controller, topics, logDirs, configs, groups, reassignments);
+    }
+}
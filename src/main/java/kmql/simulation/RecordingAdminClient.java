@@ -0,0 +1,206 @@
+package kmql.simulation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.DescribeClusterOptions;
+import org.apache.kafka.clients.admin.DescribeClusterResult;
+import org.apache.kafka.clients.admin.DescribeConfigsOptions;
+import org.apache.kafka.clients.admin.DescribeConfigsResult;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsResult;
+import org.apache.kafka.clients.admin.DescribeLogDirsOptions;
+import org.apache.kafka.clients.admin.DescribeLogDirsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupsResult;
+import org.apache.kafka.clients.admin.ListPartitionReassignmentsOptions;
+import org.apache.kafka.clients.admin.ListPartitionReassignmentsResult;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.clients.admin.PartitionReassignment;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
+
+import kmql.AbstractAdminClient;
+
+/**
+ * An AdminClient that passes calls kmql makes through to another client, and records their results and
+ * latencies into a {@link Recording}.
+ * Only successful results are recorded, and a call counts as completed when all of its futures complete.
+ */
+public class RecordingAdminClient extends AbstractAdminClient {
+    private final AdminClient delegate;
+
+    private volatile String clusterId;
+    private volatile List<Node> nodes = Collections.emptyList();
+    private volatile Node controller;
+    private final Map<String, TopicDescription> topics = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, LogDirInfo>> logDirs = new ConcurrentHashMap<>();
+    private final Map<ConfigResource, Config> configs = new ConcurrentHashMap<>();
+    private final Map<String, ConsumerGroupDescription> consumerGroups = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, PartitionReassignment> reassignments = new ConcurrentHashMap<>();
+    private final Map<String, List<Long>> latencies = new HashMap<>();
+
+    public RecordingAdminClient(AdminClient delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Take a snapshot of results recorded so far.
+     * @return a {@link Recording}.
+     */
+    public Recording recording() {
+        Map<String, List<Long>> latenciesCopy = new HashMap<>();
+        synchronized (latencies) {
+            latencies.forEach((method, values) -> latenciesCopy.put(method, new ArrayList<>(values)));
+        }
+        ClusterModel model = new ClusterModel(clusterId, nodes, controller, new HashMap<>(topics),
+                                              new HashMap<>(logDirs), new HashMap<>(configs),
+                                              new HashMap<>(consumerGroups), new HashMap<>(reassignments));
+        return new Recording(model, latenciesCopy);
+    }
+
+    /**
+     * Record the latency of a call once all the given futures complete, successfully or not.
+     */
+    private void recordLatency(String method, long startNanos, Collection<? extends KafkaFuture<?>> futures) {
+        KafkaFuture.allOf(futures.toArray(new KafkaFuture<?>[0])).whenComplete((ignored, error) -> {
+            long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            synchronized (latencies) {
+                latencies.computeIfAbsent(method, key -> new ArrayList<>()).add(latency);
+            }
+        });
+    }
+
+    /**
+     * Put values of the futures that succeed into the given map.
+     */
+    private static <K, V> void recordEach(Map<K, KafkaFuture<V>> futures, Map<K, V> recorded) {
+        for (Entry<K, KafkaFuture<V>> entry : futures.entrySet()) {
+            entry.getValue().whenComplete((value, error) -> {
+                if (error == null) {
+                    recorded.put(entry.getKey(), value);
+                }
+            });
+        }
+    }
+
+    @Override
+    public DescribeClusterResult describeCluster(DescribeClusterOptions options) {
+        long start = System.nanoTime();
+        DescribeClusterResult result = delegate.describeCluster(options);
+        recordLatency("describeCluster", start,
+                      Arrays.asList(result.nodes(), result.controller(), result.clusterId()));
+        result.nodes().whenComplete((value, error) -> {
+            if (error == null) {
+                nodes = new ArrayList<>(value);
+            }
+        });
+        result.controller().whenComplete((value, error) -> {
+            if (error == null) {
+                controller = value;
+            }
+        });
+        result.clusterId().whenComplete((value, error) -> {
+            if (error == null) {
+                clusterId = value;
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public ListTopicsResult listTopics(ListTopicsOptions options) {
+        long start = System.nanoTime();
+        ListTopicsResult result = delegate.listTopics(options);
+        // Listed topics are served from described ones in replay
+        recordLatency("listTopics", start, Collections.singletonList(result.namesToListings()));
+        return result;
+    }
+
+    @Override
+    public DescribeTopicsResult describeTopics(Collection<String> topicNames, DescribeTopicsOptions options) {
+        long start = System.nanoTime();
+        DescribeTopicsResult result = delegate.describeTopics(topicNames, options);
+        recordLatency("describeTopics", start, result.values().values());
+        recordEach(result.values(), topics);
+        return result;
+    }
+
+    @Override
+    public DescribeLogDirsResult describeLogDirs(Collection<Integer> brokers, DescribeLogDirsOptions options) {
+        long start = System.nanoTime();
+        DescribeLogDirsResult result = delegate.describeLogDirs(brokers, options);
+        recordLatency("describeLogDirs", start, result.values().values());
+        recordEach(result.values(), logDirs);
+        return result;
+    }
+
+    @Override
+    public DescribeConfigsResult describeConfigs(Collection<ConfigResource> resources,
+                                                 DescribeConfigsOptions options) {
+        long start = System.nanoTime();
+        DescribeConfigsResult result = delegate.describeConfigs(resources, options);
+        recordLatency("describeConfigs", start, result.values().values());
+        recordEach(result.values(), configs);
+        return result;
+    }
+
+    @Override
+    public ListConsumerGroupsResult listConsumerGroups(ListConsumerGroupsOptions options) {
+        long start = System.nanoTime();
+        ListConsumerGroupsResult result = delegate.listConsumerGroups(options);
+        // Listed groups are served from described ones in replay
+        recordLatency("listConsumerGroups", start, Collections.singletonList(result.all()));
+        return result;
+    }
+
+    @Override
+    public DescribeConsumerGroupsResult describeConsumerGroups(Collection<String> groupIds,
+                                                               DescribeConsumerGroupsOptions options) {
+        long start = System.nanoTime();
+        DescribeConsumerGroupsResult result = delegate.describeConsumerGroups(groupIds, options);
+        recordLatency("describeConsumerGroups", start, result.describedGroups().values());
+        recordEach(result.describedGroups(), consumerGroups);
+        return result;
+    }
+
+    @Override
+    public ListPartitionReassignmentsResult listPartitionReassignments(Optional<Set<TopicPartition>> partitions,
+                                                                       ListPartitionReassignmentsOptions options) {
+        long start = System.nanoTime();
+        ListPartitionReassignmentsResult result = delegate.listPartitionReassignments(partitions, options);
+        recordLatency("listPartitionReassignments", start, Collections.singletonList(result.reassignments()));
+        result.reassignments().whenComplete((value, error) -> {
+            if (error == null) {
+                reassignments.putAll(value);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void close(Duration timeout) {
+        delegate.close(timeout);
+    }
+}
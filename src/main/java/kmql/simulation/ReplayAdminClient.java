@@ -0,0 +1,41 @@
+package kmql.simulation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An AdminClient that serves results of a {@link Recording} back, taking as long as the recorded calls did.
+ * The n-th call of a method takes the latency of the n-th recorded call of the method, cycling through them
+ * when called more times than recorded.
+ */
+public class ReplayAdminClient extends SimulatedAdminClient {
+    private final Map<String, List<Long>> latencies;
+    private final double latencyScale;
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new {@link ReplayAdminClient}.
+     * @param recording the recording to replay.
+     * @param latencyScale factor to multiply recorded latencies by, e.g, 0 to respond immediately.
+     */
+    public ReplayAdminClient(Recording recording, double latencyScale) {
+        super(recording.getModel(), new ClusterSpec());
+        if (latencyScale < 0) {
+            throw new IllegalArgumentException("latencyScale must not be negative: " + latencyScale);
+        }
+        latencies = recording.getLatencies();
+        this.latencyScale = latencyScale;
+    }
+
+    @Override
+    protected long latencyMicros(String method) {
+        List<Long> recorded = latencies.get(method);
+        if (recorded == null || recorded.isEmpty()) {
+            return 0;
+        }
+        int index = calls.computeIfAbsent(method, key -> new AtomicInteger()).getAndIncrement();
+        return (long) (recorded.get(Math.floorMod(index, recorded.size())) * latencyScale);
+    }
+}
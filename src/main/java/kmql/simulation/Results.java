@@ -0,0 +1,63 @@
+package kmql.simulation;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates AdminClient result objects and other metadata, whose constructors aren't public, by reflection.
+ */
+final class Results {
+    private static final Map<Class<?>, Class<?>> PRIMITIVES = new HashMap<>();
+
+    static {
+        PRIMITIVES.put(boolean.class, Boolean.class);
+        PRIMITIVES.put(int.class, Integer.class);
+        PRIMITIVES.put(long.class, Long.class);
+        PRIMITIVES.put(short.class, Short.class);
+    }
+
+    private Results() {}
+
+    /**
+     * Create an instance of the given class by the constructor that accepts the given arguments.
+     * @param type the class to create.
+     * @param args arguments to pass to the constructor, typically futures.
+     * @param <T> type of the instance.
+     * @return a new instance.
+     */
+    static <T> T create(Class<T> type, Object... args) {
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (accepts(constructor.getParameterTypes(), args)) {
+                constructor.setAccessible(true);
+                try {
+                    return type.cast(constructor.newInstance(args));
+                } catch (InvocationTargetException e) {
+                    throw new IllegalStateException("Failed to create " + type.getSimpleName(), e.getCause());
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Failed to create " + type.getSimpleName(), e);
+                }
+            }
+        }
+        throw new IllegalStateException(
+                "No constructor of " + type.getName() + " accepts " + args.length + " arguments");
+    }
+
+    private static boolean accepts(Class<?>[] parameterTypes, Object[] args) {
+        if (parameterTypes.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < args.length; i++) {
+            Class<?> type = parameterTypes[i];
+            if (type.isPrimitive()) {
+                if (args[i] == null || PRIMITIVES.get(type) != args[i].getClass()) {
+                    return false;
+                }
+            } else if (args[i] != null && !type.isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,234 @@
+package kmql.simulation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.DescribeClusterOptions;
+import org.apache.kafka.clients.admin.DescribeClusterResult;
+import org.apache.kafka.clients.admin.DescribeConfigsOptions;
+import org.apache.kafka.clients.admin.DescribeConfigsResult;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsResult;
+import org.apache.kafka.clients.admin.DescribeLogDirsOptions;
+import org.apache.kafka.clients.admin.DescribeLogDirsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupsResult;
+import org.apache.kafka.clients.admin.ListPartitionReassignmentsOptions;
+import org.apache.kafka.clients.admin.ListPartitionReassignmentsResult;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.clients.admin.PartitionReassignment;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.admin.TopicListing;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.ConfigResource.Type;
+import org.apache.kafka.common.errors.BrokerNotAvailableException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
+
+import kmql.AbstractAdminClient;
+import kmql.simulation.ClusterSpec.CallSpec;
+
+/**
+ * An AdminClient that serves metadata of a {@link ClusterModel} instead of a real cluster, delaying and
+ * failing calls as configured by {@link ClusterSpec#getDefaults()} and {@link ClusterSpec#getCalls()}.
+ * Failed calls fail all their futures with {@link TimeoutException}, as a call to an unresponsive broker does.
+ */
+public class SimulatedAdminClient extends AbstractAdminClient {
+    private final ClusterModel model;
+    private final ClusterSpec spec;
+    private final Random random;
+    private final ScheduledExecutorService scheduler;
+
+    public SimulatedAdminClient(ClusterModel model, ClusterSpec spec) {
+        this.model = model;
+        this.spec = spec;
+        random = new Random(spec.getSeed());
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kmql-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create a client simulating a cluster generated from the given spec.
+     * @param spec the spec of the cluster.
+     * @return a {@link SimulatedAdminClient}.
+     */
+    public static SimulatedAdminClient create(ClusterSpec spec) {
+        return new SimulatedAdminClient(ClusterModel.generate(spec), spec);
+    }
+
+    /**
+     * Decide the latency of a call of the given method.
+     * @param method name of the AdminClient method.
+     * @return the latency in microseconds.
+     */
+    protected long latencyMicros(String method) {
+        CallSpec call = spec.call(method);
+        long latency = call.getLatencyMillis();
+        if (call.getLatencyJitterMillis() > 0) {
+            latency += (long) (random.nextDouble() * call.getLatencyJitterMillis());
+        }
+        return TimeUnit.MILLISECONDS.toMicros(latency);
+    }
+
+    /**
+     * Complete futures of a call after the latency of the method, or fail them all at the failure rate.
+     */
+    private void call(String method, Collection<? extends KafkaFutureImpl<?>> futures, Runnable complete) {
+        long latency = latencyMicros(method);
+        boolean fail = random.nextDouble() < spec.call(method).getFailureRate();
+        Runnable respond = () -> {
+            if (fail) {
+                KafkaException error = new TimeoutException("Simulated failure of " + method);
+                futures.forEach(future -> future.completeExceptionally(error));
+            } else {
+                complete.run();
+            }
+        };
+        if (latency > 0) {
+            scheduler.schedule(respond, latency, TimeUnit.MICROSECONDS);
+        } else {
+            respond.run();
+        }
+    }
+
+    private <T> KafkaFutureImpl<T> call(String method, T value) {
+        KafkaFutureImpl<T> future = new KafkaFutureImpl<>();
+        call(method, Collections.singletonList(future), () -> future.complete(value));
+        return future;
+    }
+
+    /**
+     * Call for each of the given keys, failing futures of keys that lookup returns null for.
+     */
+    private <K, V> Map<K, KafkaFuture<V>> callEach(String method, Collection<K> keys, Function<K, V> lookup,
+                                                   Function<K, KafkaException> missing) {
+        Map<K, KafkaFutureImpl<V>> futures = new HashMap<>();
+        for (K key : keys) {
+            futures.put(key, new KafkaFutureImpl<>());
+        }
+        call(method, futures.values(), () -> futures.forEach((key, future) -> {
+            V value = lookup.apply(key);
+            if (value == null) {
+                future.completeExceptionally(missing.apply(key));
+            } else {
+                future.complete(value);
+            }
+        }));
+        return Collections.unmodifiableMap(futures);
+    }
+
+    @Override
+    public DescribeClusterResult describeCluster(DescribeClusterOptions options) {
+        KafkaFutureImpl<Collection<Node>> nodes = new KafkaFutureImpl<>();
+        KafkaFutureImpl<Node> controller = new KafkaFutureImpl<>();
+        KafkaFutureImpl<String> clusterId = new KafkaFutureImpl<>();
+        call("describeCluster", Arrays.asList(nodes, controller, clusterId), () -> {
+            nodes.complete(model.getNodes());
+            controller.complete(model.getController());
+            clusterId.complete(model.getClusterId());
+        });
+        return Results.create(DescribeClusterResult.class, nodes, controller, clusterId,
+                              KafkaFuture.completedFuture(null));
+    }
+
+    @Override
+    public ListTopicsResult listTopics(ListTopicsOptions options) {
+        Map<String, TopicListing> listings = new HashMap<>();
+        for (TopicDescription desc : model.getTopics().values()) {
+            if (options.shouldListInternal() || !desc.isInternal()) {
+                listings.put(desc.name(), new TopicListing(desc.name(), desc.isInternal()));
+            }
+        }
+        return Results.create(ListTopicsResult.class, call("listTopics", listings));
+    }
+
+    @Override
+    public DescribeTopicsResult describeTopics(Collection<String> topicNames, DescribeTopicsOptions options) {
+        return Results.create(DescribeTopicsResult.class, callEach(
+                "describeTopics", topicNames, model.getTopics()::get,
+                topic -> new UnknownTopicOrPartitionException("Topic " + topic + " not found")));
+    }
+
+    @Override
+    public DescribeLogDirsResult describeLogDirs(Collection<Integer> brokers, DescribeLogDirsOptions options) {
+        Map<Integer, KafkaFuture<Map<String, LogDirInfo>>> futures = callEach(
+                "describeLogDirs", brokers, model.getLogDirs()::get,
+                broker -> new BrokerNotAvailableException("Broker " + broker + " not available"));
+        return Results.create(DescribeLogDirsResult.class, futures);
+    }
+
+    @Override
+    public DescribeConfigsResult describeConfigs(Collection<ConfigResource> resources,
+                                                 DescribeConfigsOptions options) {
+        Map<ConfigResource, KafkaFuture<Config>> futures = callEach(
+                "describeConfigs", resources, model.getConfigs()::get,
+                resource -> resource.type() == Type.TOPIC
+                            ? new UnknownTopicOrPartitionException("Topic " + resource.name() + " not found")
+                            : new BrokerNotAvailableException("Broker " + resource.name() + " not available"));
+        return Results.create(DescribeConfigsResult.class, futures);
+    }
+
+    @Override
+    public ListConsumerGroupsResult listConsumerGroups(ListConsumerGroupsOptions options) {
+        Collection<Object> listings = new ArrayList<>(model.getConsumerGroups().size());
+        for (ConsumerGroupDescription desc : model.getConsumerGroups().values()) {
+            listings.add(new ConsumerGroupListing(desc.groupId(), desc.isSimpleConsumerGroup()));
+        }
+        return Results.create(ListConsumerGroupsResult.class, call("listConsumerGroups", listings));
+    }
+
+    @Override
+    public DescribeConsumerGroupsResult describeConsumerGroups(Collection<String> groupIds,
+                                                               DescribeConsumerGroupsOptions options) {
+        // Groups that don't exist are described as dead groups, hence never fail by missing
+        Map<String, KafkaFuture<ConsumerGroupDescription>> futures = callEach(
+                "describeConsumerGroups", groupIds,
+                groupId -> {
+                    ConsumerGroupDescription desc = model.getConsumerGroups().get(groupId);
+                    return desc != null ? desc : model.deadGroup(groupId);
+                },
+                groupId -> null);
+        return Results.create(DescribeConsumerGroupsResult.class, futures);
+    }
+
+    @Override
+    public ListPartitionReassignmentsResult listPartitionReassignments(Optional<Set<TopicPartition>> partitions,
+                                                                       ListPartitionReassignmentsOptions options) {
+        Map<TopicPartition, PartitionReassignment> reassignments = new HashMap<>(model.getReassignments());
+        partitions.ifPresent(filter -> reassignments.keySet().retainAll(filter));
+        return Results.create(ListPartitionReassignmentsResult.class,
+                              call("listPartitionReassignments", reassignments));
+    }
+
+    @Override
+    public void close(Duration timeout) {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,25 @@
+package kmql.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import kmql.StorageBackend;
+
+/**
+ * {@link StorageBackend} of the in-memory DuckDB database, a columnar engine that's faster than H2 at
+ * aggregations over large tables.
+ * The JDBC driver isn't bundled and has to be put on the classpath to use this backend.
+ */
+public class DuckDbBackend implements StorageBackend {
+    @Override
+    public Connection createDatabase() throws SQLException {
+        try {
+            Class.forName("org.duckdb.DuckDBDriver");
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("DuckDB JDBC driver (org.duckdb:duckdb_jdbc) not found in classpath", e);
+        }
+        // Each connection opens a distinct in-memory database, so tables are refreshed through the only one
+        return DriverManager.getConnection("jdbc:duckdb:");
+    }
+}
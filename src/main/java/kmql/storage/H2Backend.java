@@ -0,0 +1,60 @@
+package kmql.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import kmql.StorageBackend;
+
+/**
+ * {@link StorageBackend} of the in-memory H2 database, which is the default.
+ */
+public class H2Backend implements StorageBackend {
+    private static final String URL_PREFIX = "jdbc:h2:mem:kmql-";
+
+    @Override
+    public Connection createDatabase() throws SQLException {
+        loadDriver();
+        // Named so that other connections can access the same database while it's kept open by the first
+        return DriverManager.getConnection(URL_PREFIX + UUID.randomUUID());
+    }
+
+    @Override
+    public Connection connect(Connection connection) throws SQLException {
+        String url = connection.getMetaData().getURL();
+        if (!url.startsWith(URL_PREFIX)) {
+            // Anonymous in-memory databases can't be shared
+            return null;
+        }
+        return DriverManager.getConnection(url);
+    }
+
+    @Override
+    public boolean supportsSchemas() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsIndexes() {
+        return true;
+    }
+
+    @Override
+    public String analyzeStatement(String table) {
+        return "ANALYZE TABLE " + table;
+    }
+
+    @Override
+    public String truncateStatement(String table) {
+        return "TRUNCATE TABLE " + table;
+    }
+
+    private static void loadDriver() {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package kmql.table;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.util.Collection;
 
@@ -9,6 +8,7 @@ import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.DescribeClusterResult;
 import org.apache.kafka.common.Node;
 
+import kmql.BulkInserter;
 import kmql.Table;
 
 public class BrokersTable implements Table {
@@ -35,15 +35,15 @@ public class BrokersTable implements Table {
         DescribeClusterResult describeResult = adminClient.describeCluster();
         Collection<Node> nodes = describeResult.nodes().get();
         Node controllerNode = describeResult.controller().get();
-        try (PreparedStatement stmt = connection.prepareStatement(
+        try (BulkInserter inserter = new BulkInserter(connection,
                 "INSERT INTO brokers (id, host, port, rack, is_controller) VALUES (?, ?, ?, ?, ?)")) {
             for (Node node : nodes) {
-                stmt.setInt(1, node.id());
-                stmt.setString(2, node.host());
-                stmt.setInt(3, node.port());
-                stmt.setString(4, node.rack());
-                stmt.setBoolean(5, node.id() == controllerNode.id());
-                stmt.executeUpdate();
+                inserter.setInt(1, node.id());
+                inserter.setString(2, node.host());
+                inserter.setInt(3, node.port());
+                inserter.setString(4, node.rack());
+                inserter.setBoolean(5, node.id() == controllerNode.id());
+                inserter.add();
             }
         }
     }
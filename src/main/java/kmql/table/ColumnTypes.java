@@ -0,0 +1,26 @@
+package kmql.table;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Column types that differ between storage backends.
+ */
+final class ColumnTypes {
+    private ColumnTypes() {}
+
+    /**
+     * Return the type of a column that takes one of the given values.
+     * It's an ENUM on H2, and a plain VARCHAR on other databases which don't support it.
+     */
+    static String enumType(Connection connection, String... values) throws SQLException {
+        if (!"H2".equals(connection.getMetaData().getDatabaseProductName())) {
+            return "VARCHAR(255)";
+        }
+        return Arrays.stream(values)
+                     .map(value -> '\'' + value + '\'')
+                     .collect(Collectors.joining(", ", "ENUM(", ")"));
+    }
+}
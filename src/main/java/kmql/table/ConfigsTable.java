@@ -1,22 +1,33 @@
 package kmql.table;
 
+import static java.util.Collections.singletonList;
+
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.Config;
 import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.common.KafkaFuture;
 import org.apache.kafka.common.config.ConfigResource;
 import org.apache.kafka.common.config.ConfigResource.Type;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
 
+import kmql.BulkInserter;
+import kmql.Index;
+import kmql.KeyFilter;
 import kmql.Table;
 
 public class ConfigsTable implements Table {
@@ -34,18 +45,38 @@ public class ConfigsTable implements Table {
     public void create(Connection connection) throws Exception {
         try (Statement stmt = connection.createStatement()) {
             stmt.execute("CREATE TABLE configs ("
-                         + "resource_type ENUM('broker_logger', 'broker', 'topic', 'unknown') NOT NULL,"
+                         + "resource_type " + ColumnTypes.enumType(
+                                 connection, "broker_logger", "broker", "topic", "unknown") + " NOT NULL,"
                          + "name VARCHAR(255) NOT NULL,"
                          + "key VARCHAR(255) NOT NULL,"
                          + "value VARCHAR(255),"
-                         + "source ENUM('dynamic_topic_config', 'dynamic_broker_logger_config', 'dynamic_broker_config',"
-                         + "            'dynamic_default_broker_config', 'static_broker_config', 'default_config', 'unknown'),"
+                         + "source " + ColumnTypes.enumType(
+                                 connection, "dynamic_topic_config", "dynamic_broker_logger_config",
+                                 "dynamic_broker_config", "dynamic_default_broker_config", "static_broker_config",
+                                 "default_config", "unknown") + ","
                          + "is_default BOOLEAN NOT NULL,"
                          + "is_sensitive BOOLEAN NOT NULL,"
                          + "PRIMARY KEY (resource_type, name, key))");
         }
     }
 
+    @Override
+    public Collection<String> dependencyTables(KeyFilter filter) {
+        return singletonList("brokers");
+    }
+
+    @Override
+    public Collection<String> keyColumns() {
+        return singletonList("name");
+    }
+
+    @Override
+    public Collection<Index> indexes() {
+        // For joins with other tables by topic or broker id, and lookups of a config across all resources
+        return Arrays.asList(Index.of("configs", "name"),
+                             Index.of("configs", "key", "value"));
+    }
+
     @Override
     public void prepare(Connection connection, AdminClient adminClient) throws Exception {
         List<ConfigResource> resources = new ArrayList<>();
@@ -65,21 +96,57 @@ public class ConfigsTable implements Table {
         }
 
         Map<ConfigResource, Config> configs = adminClient.describeConfigs(resources).all().get();
-        try (PreparedStatement stmt = connection.prepareStatement(
+        insert(connection, configs);
+    }
+
+    @Override
+    public void prepare(Connection connection, AdminClient adminClient, KeyFilter filter) throws Exception {
+        Set<String> brokerIds = new HashSet<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT id FROM brokers")) {
+            while (results.next()) {
+                brokerIds.add(String.valueOf(results.getInt(1)));
+            }
+        }
+        // A name could be either of a broker or a topic, and topics that don't exist are skipped
+        List<ConfigResource> resources = new ArrayList<>();
+        for (String name : filter.getValues()) {
+            if (brokerIds.contains(name)) {
+                resources.add(new ConfigResource(Type.BROKER, name));
+            }
+            resources.add(new ConfigResource(Type.TOPIC, name));
+        }
+
+        Map<ConfigResource, Config> configs = new HashMap<>();
+        for (Entry<ConfigResource, KafkaFuture<Config>> entry :
+                adminClient.describeConfigs(resources).values().entrySet()) {
+            try {
+                configs.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof UnknownTopicOrPartitionException)) {
+                    throw e;
+                }
+            }
+        }
+        insert(connection, configs);
+    }
+
+    private static void insert(Connection connection, Map<ConfigResource, Config> configs) throws SQLException {
+        try (BulkInserter inserter = new BulkInserter(connection,
                 "INSERT INTO configs (resource_type, name, key, value, source, is_default, is_sensitive)"
                 + " VALUES (?, ?, ?, ?, ?, ?, ?)")) {
             for (Entry<ConfigResource, Config> entry : configs.entrySet()) {
                 ConfigResource resource = entry.getKey();
                 Config entries = entry.getValue();
                 for (ConfigEntry config : entries.entries()) {
-                    stmt.setString(1, resource.type().name().toLowerCase());
-                    stmt.setString(2, resource.name());
-                    stmt.setString(3, config.name());
-                    stmt.setString(4, config.value());
-                    stmt.setString(5, config.source().name().toLowerCase());
-                    stmt.setBoolean(6, config.isDefault());
-                    stmt.setBoolean(7, config.isSensitive());
-                    stmt.executeUpdate();
+                    inserter.setString(1, resource.type().name().toLowerCase());
+                    inserter.setString(2, resource.name());
+                    inserter.setString(3, config.name());
+                    inserter.setString(4, config.value());
+                    inserter.setString(5, config.source().name().toLowerCase());
+                    inserter.setBoolean(6, config.isDefault());
+                    inserter.setBoolean(7, config.isSensitive());
+                    inserter.add();
                 }
             }
         }
@@ -1,9 +1,9 @@
 package kmql.table;
 
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.util.Collection;
 import java.util.List;
@@ -16,6 +16,8 @@ import org.apache.kafka.clients.admin.ConsumerGroupListing;
 import org.apache.kafka.clients.admin.MemberDescription;
 import org.apache.kafka.common.TopicPartition;
 
+import kmql.BulkInserter;
+import kmql.KeyFilter;
 import kmql.Table;
 
 public class ConsumersTable implements Table {
@@ -31,7 +33,9 @@ public class ConsumersTable implements Table {
                          + "group_id VARCHAR(255) NOT NULL,"
                          + "coordinator_id INT NOT NULL,"
                          + "assignor VARCHAR(255) NOT NULL,"
-                         + "state ENUM('Unknown', 'PreparingRebalance', 'CompletingRebalance', 'Stable', 'Dead', 'Empty') NOT NULL,"
+                         + "state " + ColumnTypes.enumType(
+                                 connection, "Unknown", "PreparingRebalance", "CompletingRebalance", "Stable", "Dead",
+                                 "Empty") + " NOT NULL,"
                          + "client_id VARCHAR(255) NOT NULL,"
                          + "consumer_id VARCHAR(255) NOT NULL,"
                          + "host VARCHAR(255) NOT NULL,"
@@ -42,14 +46,30 @@ public class ConsumersTable implements Table {
         }
     }
 
+    @Override
+    public Collection<String> keyColumns() {
+        return singletonList("group_id");
+    }
+
     @Override
     public void prepare(Connection connection, AdminClient adminClient) throws Exception {
         Collection<ConsumerGroupListing> groups = adminClient.listConsumerGroups().all().get();
         List<String> groupIds = groups.stream().map(ConsumerGroupListing::groupId).collect(toList());
+        describeAndInsert(connection, adminClient, groupIds);
+    }
+
+    @Override
+    public void prepare(Connection connection, AdminClient adminClient, KeyFilter filter) throws Exception {
+        // Groups that don't exist are described as dead groups without members, hence no rows
+        describeAndInsert(connection, adminClient, filter.getValues());
+    }
+
+    private static void describeAndInsert(Connection connection, AdminClient adminClient,
+                                          Collection<String> groupIds) throws Exception {
         Map<String, ConsumerGroupDescription> consumerInfos =
                 adminClient.describeConsumerGroups(groupIds).all().get();
 
-        try (PreparedStatement stmt = connection.prepareStatement(
+        try (BulkInserter inserter = new BulkInserter(connection,
                 "INSERT INTO consumers (group_id, coordinator_id, assignor, state, client_id, consumer_id, host, instance_id, topic, partition)"
                 + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
             for (Entry<String, ConsumerGroupDescription> entry : consumerInfos.entrySet()) {
@@ -57,17 +77,17 @@ public class ConsumersTable implements Table {
                 ConsumerGroupDescription desc = entry.getValue();
                 for (MemberDescription member : desc.members()) {
                     for (TopicPartition tp : member.assignment().topicPartitions()) {
-                        stmt.setString(1, groupId);
-                        stmt.setInt(2, desc.coordinator().id());
-                        stmt.setString(3, desc.partitionAssignor());
-                        stmt.setString(4, desc.state().toString());
-                        stmt.setString(5, member.clientId());
-                        stmt.setString(6, member.consumerId());
-                        stmt.setString(7, member.host());
-                        stmt.setString(8, member.groupInstanceId().orElse(null));
-                        stmt.setString(9, tp.topic());
-                        stmt.setInt(10, tp.partition());
-                        stmt.executeUpdate();
+                        inserter.setString(1, groupId);
+                        inserter.setInt(2, desc.coordinator().id());
+                        inserter.setString(3, desc.partitionAssignor());
+                        inserter.setString(4, desc.state().toString());
+                        inserter.setString(5, member.clientId());
+                        inserter.setString(6, member.consumerId());
+                        inserter.setString(7, member.host());
+                        inserter.setString(8, member.groupInstanceId().orElse(null));
+                        inserter.setString(9, tp.topic());
+                        inserter.setInt(10, tp.partition());
+                        inserter.add();
                     }
                 }
             }
@@ -3,8 +3,8 @@ package kmql.table;
 import static java.util.Collections.singletonList;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -17,6 +17,9 @@ import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
 import org.apache.kafka.common.requests.DescribeLogDirsResponse.ReplicaInfo;
 
+import kmql.BulkInserter;
+import kmql.Index;
+import kmql.KeyFilter;
 import kmql.Table;
 
 public class LogdirsTable implements Table {
@@ -45,8 +48,30 @@ public class LogdirsTable implements Table {
         }
     }
 
+    @Override
+    public Collection<String> keyColumns() {
+        return singletonList("broker_id");
+    }
+
+    @Override
+    public Collection<Index> indexes() {
+        // For joins with replicas, as the primary key starts with broker_id
+        return singletonList(Index.of("logdirs", "topic", "partition"));
+    }
+
     @Override
     public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+        describeAndInsert(connection, adminClient, brokerIds(connection));
+    }
+
+    @Override
+    public void prepare(Connection connection, AdminClient adminClient, KeyFilter filter) throws Exception {
+        List<Integer> brokerIds = brokerIds(connection);
+        brokerIds.removeIf(brokerId -> !filter.getValues().contains(String.valueOf(brokerId)));
+        describeAndInsert(connection, adminClient, brokerIds);
+    }
+
+    private static List<Integer> brokerIds(Connection connection) throws SQLException {
         List<Integer> brokerIds = new ArrayList<>();
         try (Statement stmt = connection.createStatement();
             ResultSet results = stmt.executeQuery("SELECT id FROM brokers")) {
@@ -55,9 +80,13 @@ public class LogdirsTable implements Table {
                 brokerIds.add(brokerId);
             }
         }
+        return brokerIds;
+    }
 
+    private static void describeAndInsert(Connection connection, AdminClient adminClient,
+                                          List<Integer> brokerIds) throws Exception {
         Map<Integer, Map<String, LogDirInfo>> logDirs = adminClient.describeLogDirs(brokerIds).all().get();
-        try (PreparedStatement stmt = connection.prepareStatement(
+        try (BulkInserter inserter = new BulkInserter(connection,
                 "INSERT INTO logdirs (broker_id, path, topic, partition, size, offset_lag, is_future) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
             for (Entry<Integer, Map<String, LogDirInfo>> entry : logDirs.entrySet()) {
                 int brokerId = entry.getKey();
@@ -67,14 +96,14 @@ public class LogdirsTable implements Table {
                     for (Entry<TopicPartition, ReplicaInfo> replicaEntry : info.replicaInfos.entrySet()) {
                         TopicPartition tp = replicaEntry.getKey();
                         ReplicaInfo replicaInfo = replicaEntry.getValue();
-                        stmt.setInt(1, brokerId);
-                        stmt.setString(2, path);
-                        stmt.setString(3, tp.topic());
-                        stmt.setInt(4, tp.partition());
-                        stmt.setLong(5, replicaInfo.size);
-                        stmt.setLong(6, replicaInfo.offsetLag);
-                        stmt.setBoolean(7, replicaInfo.isFuture);
-                        stmt.executeUpdate();
+                        inserter.setInt(1, brokerId);
+                        inserter.setString(2, path);
+                        inserter.setString(3, tp.topic());
+                        inserter.setInt(4, tp.partition());
+                        inserter.setLong(5, replicaInfo.size);
+                        inserter.setLong(6, replicaInfo.offsetLag);
+                        inserter.setBoolean(7, replicaInfo.isFuture);
+                        inserter.add();
                     }
                 }
             }
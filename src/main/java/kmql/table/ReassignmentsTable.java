@@ -1,7 +1,6 @@
 package kmql.table;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
@@ -11,6 +10,7 @@ import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.PartitionReassignment;
 import org.apache.kafka.common.TopicPartition;
 
+import kmql.BulkInserter;
 import kmql.Table;
 
 public class ReassignmentsTable implements Table {
@@ -26,7 +26,7 @@ public class ReassignmentsTable implements Table {
                          + "topic VARCHAR(255) NOT NULL,"
                          + "partition INT NOT NULL,"
                          + "replica_id INT NOT NULL,"
-                         + "operation ENUM('adding', 'removing') NOT NULL,"
+                         + "operation " + ColumnTypes.enumType(connection, "adding", "removing") + " NOT NULL,"
                          + "PRIMARY KEY (topic, partition, replica_id))");
         }
     }
@@ -36,28 +36,28 @@ public class ReassignmentsTable implements Table {
         Map<TopicPartition, PartitionReassignment> reassignments =
                 adminClient.listPartitionReassignments().reassignments().get();
 
-        try (PreparedStatement stmt = connection.prepareStatement(
+        try (BulkInserter inserter = new BulkInserter(connection,
                 "INSERT INTO reassignments (topic, partition, replica_id, operation)"
                 + " VALUES (?, ?, ?, ?)")) {
             for (Entry<TopicPartition, PartitionReassignment> entry : reassignments.entrySet()) {
                 TopicPartition tp = entry.getKey();
                 PartitionReassignment reassignment = entry.getValue();
                 for (Integer replica : reassignment.addingReplicas()) {
-                    insert(stmt, tp, replica, "adding");
+                    insert(inserter, tp, replica, "adding");
                 }
                 for (Integer replica : reassignment.removingReplicas()) {
-                    insert(stmt, tp, replica, "removing");
+                    insert(inserter, tp, replica, "removing");
                 }
             }
         }
     }
 
-    private static void insert(PreparedStatement stmt, TopicPartition tp, int replica, String operation)
+    private static void insert(BulkInserter inserter, TopicPartition tp, int replica, String operation)
             throws SQLException {
-        stmt.setString(1, tp.topic());
-        stmt.setInt(2, tp.partition());
-        stmt.setInt(3, replica);
-        stmt.setString(4, operation);
-        stmt.executeUpdate();
+        inserter.setString(1, tp.topic());
+        inserter.setInt(2, tp.partition());
+        inserter.setInt(3, replica);
+        inserter.setString(4, operation);
+        inserter.add();
     }
 }
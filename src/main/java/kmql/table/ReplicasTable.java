@@ -1,21 +1,52 @@
 package kmql.table;
 
+import static java.util.Collections.singletonList;
+
 import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
 import org.apache.kafka.clients.admin.ListTopicsOptions;
 import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
 import org.apache.kafka.common.Node;
 import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
 
+import kmql.BulkInserter;
+import kmql.Index;
+import kmql.KeyFilter;
 import kmql.Table;
 
 public class ReplicasTable implements Table {
+    static final int DEFAULT_CHUNK_SIZE = 500;
+    static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    public ReplicasTable() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Create a new {@link ReplicasTable}.
+     * @param chunkSize number of topics to describe in a single describeTopics request.
+     * @param maxInFlight maximum number of describeTopics requests to keep in flight.
+     */
+    ReplicasTable(int chunkSize, int maxInFlight) {
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+    }
+
     @Override
     public String name() {
         return "replicas";
@@ -36,32 +67,84 @@ public class ReplicasTable implements Table {
         }
     }
 
+    @Override
+    public Collection<String> keyColumns() {
+        return singletonList("topic");
+    }
+
+    @Override
+    public Collection<Index> indexes() {
+        // For joins with brokers and lookups of replicas on a broker, as the primary key starts with topic
+        return singletonList(Index.of("replicas", "broker_id"));
+    }
+
     @Override
     public void prepare(Connection connection, AdminClient adminClient) throws Exception {
         ListTopicsOptions options = new ListTopicsOptions().listInternal(true);
-        Set<String> topics = adminClient.listTopics(options).names().get();
-        Map<String, TopicDescription> topicInfo = adminClient.describeTopics(topics).all().get();
-        try (PreparedStatement stmt = connection.prepareStatement(
+        List<String> topics = new ArrayList<>(adminClient.listTopics(options).names().get());
+        describeAndInsert(connection, adminClient, topics, false);
+    }
+
+    @Override
+    public void prepare(Connection connection, AdminClient adminClient, KeyFilter filter) throws Exception {
+        describeAndInsert(connection, adminClient, new ArrayList<>(filter.getValues()), true);
+    }
+
+    private void describeAndInsert(Connection connection, AdminClient adminClient, List<String> topics,
+                                   boolean ignoreUnknown) throws Exception {
+        // Describe topics in chunks, keeping a bounded number of requests in flight and inserting
+        // each chunk as soon as it arrives so that only a few chunks of descriptions are held at once.
+        Deque<DescribeTopicsResult> inFlight = new ArrayDeque<>();
+        int nextChunk = 0;
+        try (BulkInserter inserter = new BulkInserter(connection,
                 "INSERT INTO replicas (topic, partition, broker_id, is_leader, is_preferred_leader, is_in_sync, replica_order)"
                 + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
-            for (String topic : topics) {
-                TopicDescription desc = topicInfo.get(topic);
-                for (TopicPartitionInfo partition : desc.partitions()) {
-                    List<Node> replicas = partition.replicas();
-                    for (int i = 0; i < replicas.size(); i++) {
-                        Node replica = replicas.get(i);
-                        stmt.setString(1, topic);
-                        stmt.setInt(2, partition.partition());
-                        stmt.setInt(3, replica.id());
-                        Node leader = partition.leader();
-                        stmt.setBoolean(4, leader != null && leader.id() == replica.id());
-                        stmt.setBoolean(5, replicas.get(0).id() == replica.id());
-                        stmt.setBoolean(6, partition.isr().contains(replica));
-                        stmt.setInt(7, i);
-                        stmt.executeUpdate();
-                    }
+            while (nextChunk < topics.size() || !inFlight.isEmpty()) {
+                while (nextChunk < topics.size() && inFlight.size() < maxInFlight) {
+                    List<String> chunk = topics.subList(nextChunk, Math.min(nextChunk + chunkSize, topics.size()));
+                    inFlight.add(adminClient.describeTopics(chunk));
+                    nextChunk += chunk.size();
+                }
+                for (TopicDescription desc : describedTopics(inFlight.poll(), ignoreUnknown)) {
+                    insertTopic(inserter, desc);
+                }
+            }
+        }
+    }
+
+    private static Collection<TopicDescription> describedTopics(DescribeTopicsResult result,
+                                                                boolean ignoreUnknown) throws Exception {
+        if (!ignoreUnknown) {
+            return result.all().get().values();
+        }
+        List<TopicDescription> descriptions = new ArrayList<>();
+        for (KafkaFuture<TopicDescription> future : result.values().values()) {
+            try {
+                descriptions.add(future.get());
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof UnknownTopicOrPartitionException)) {
+                    throw e;
                 }
             }
         }
+        return descriptions;
+    }
+
+    private static void insertTopic(BulkInserter inserter, TopicDescription desc) throws SQLException {
+        for (TopicPartitionInfo partition : desc.partitions()) {
+            List<Node> replicas = partition.replicas();
+            for (int i = 0; i < replicas.size(); i++) {
+                Node replica = replicas.get(i);
+                inserter.setString(1, desc.name());
+                inserter.setInt(2, partition.partition());
+                inserter.setInt(3, replica.id());
+                Node leader = partition.leader();
+                inserter.setBoolean(4, leader != null && leader.id() == replica.id());
+                inserter.setBoolean(5, replicas.get(0).id() == replica.id());
+                inserter.setBoolean(6, partition.isr().contains(replica));
+                inserter.setInt(7, i);
+                inserter.add();
+            }
+        }
     }
 }
@@ -0,0 +1,58 @@
+package kmql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkInserterTest {
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = SqlUtils.connection();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE xyz (id INT NOT NULL, name VARCHAR(255))");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private int count() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT COUNT(*) FROM xyz")) {
+            results.next();
+            return results.getInt(1);
+        }
+    }
+
+    @Test
+    public void add() throws SQLException {
+        try (BulkInserter inserter = new BulkInserter(connection, "INSERT INTO xyz VALUES (?, ?)", 2)) {
+            for (int i = 0; i < 3; i++) {
+                inserter.setInt(1, i);
+                inserter.setString(2, "name-" + i);
+                inserter.add();
+            }
+            // The first batch should be written as soon as it gets full
+            assertEquals(2, count());
+            assertEquals(3, inserter.rows());
+        }
+        // The rest should be written on close
+        assertEquals(3, count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBatchSize() throws SQLException {
+        new BulkInserter(connection, "INSERT INTO xyz VALUES (?, ?)", 0);
+    }
+}
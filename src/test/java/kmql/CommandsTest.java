@@ -5,11 +5,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -53,4 +55,16 @@ public class CommandsTest {
         }
         assertEquals("xyz,foo,bar", new String(output.toByteArray()));
     }
+
+    @Test
+    public void executeLineAsTyped() throws IOException {
+        Command lineCommand = mock(Command.class);
+        registry.register("line", lineCommand);
+        Engine engine = mock(Engine.class);
+        doReturn(registry).when(engine).commandRegistry();
+
+        BufferedOutputStream bout = new BufferedOutputStream(new ByteArrayOutputStream());
+        Commands.executeLine(engine, bout, ":line foo  'a  b' ");
+        verify(lineCommand).execute("foo  'a  b'", Arrays.asList("foo", "'a", "b'"), engine, bout);
+    }
 }
@@ -0,0 +1,76 @@
+package kmql;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import kmql.storage.H2Backend;
+
+public class ConnectionPoolTest {
+    @Test
+    public void acquireSeparateConnections() throws Exception {
+        H2Backend backend = new H2Backend();
+        try (ConnectionPool pool = new ConnectionPool(backend.createDatabase(), backend, 3)) {
+            assertTrue(pool.concurrent());
+            Connection first = pool.acquire();
+            Connection second = pool.acquire();
+            Connection third = pool.acquire();
+            assertNotSame(first, second);
+            assertNotSame(second, third);
+            pool.release(second);
+            // Idle connections are reused
+            assertSame(second, pool.acquire());
+        }
+    }
+
+    @Test
+    public void singleConnection() throws Exception {
+        Connection connection = SqlUtils.connection();
+        StorageBackend backend = () -> connection;
+        try (ConnectionPool pool = new ConnectionPool(connection, backend, 4)) {
+            assertFalse(pool.concurrent());
+            assertSame(connection, pool.acquire());
+            CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.acquire();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+            pool.release(connection);
+            assertSame(connection, waiting.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void releaseRollsBack() throws Exception {
+        Connection connection = SqlUtils.connection();
+        try (ConnectionPool pool = new ConnectionPool(connection, () -> connection, 1)) {
+            Connection conn = pool.acquire();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE xyz (id INT NOT NULL)");
+            }
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO xyz VALUES (1)");
+            }
+            pool.release(conn);
+
+            conn = pool.acquire();
+            assertTrue(conn.getAutoCommit());
+            assertFalse(SqlUtils.tableNonEmpty(conn, "xyz"));
+            assertSame(connection, conn);
+        }
+    }
+}
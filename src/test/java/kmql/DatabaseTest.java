@@ -3,16 +3,33 @@ package kmql;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.kafka.clients.admin.AdminClient;
@@ -20,6 +37,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -27,6 +45,8 @@ import org.mockito.junit.MockitoRule;
 public class DatabaseTest {
     @Rule
     public final MockitoRule rule = MockitoJUnit.rule();
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
 
     @Mock
     private Table xyzTable;
@@ -89,6 +109,581 @@ public class DatabaseTest {
         verify(fooTable, times(1)).prepare(connection, adminClient);
     }
 
+    /**
+     * Stub creation of the given table on any connection, as tables of a pooled database are created on its
+     * primary connection instead of the one of this test.
+     */
+    private static void stubCreate(Table table, String name) throws Exception {
+        doAnswer(invocation -> {
+            try (Statement stmt = invocation.<Connection>getArgument(0).createStatement()) {
+                stmt.execute("CREATE TABLE " + name + " (id INT NOT NULL)");
+            }
+            return null;
+        }).when(table).create(any(Connection.class));
+    }
+
+    private static long countRows(Database db, String table) throws SQLException {
+        AtomicReference<Long> rows = new AtomicReference<>();
+        db.executeQuery("SELECT COUNT(*) FROM " + table, results -> {
+            try {
+                results.next();
+                rows.set(results.getLong(1));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        return rows.get();
+    }
+
+    @Test
+    public void prepareAllTablesConcurrently() throws Exception {
+        stubCreate(xyzTable, "xyz");
+        stubCreate(fooTable, "foo");
+        CountDownLatch latch = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            latch.countDown();
+            // Completes only if the other table is being prepared at the same time
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(xyzTable).prepare(any(Connection.class), eq(adminClient));
+        doAnswer(invocation -> {
+            latch.countDown();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(fooTable).prepare(any(Connection.class), eq(adminClient));
+
+        // Tables are loaded at the same time only through separate connections
+        try (Database pooledDb = Database.from(registry)) {
+            Database.PrepareSummary summary = pooledDb.prepareAllTables(adminClient);
+            assertEquals(2, summary.getTables());
+            assertTrue(pooledDb.tableInitialized("xyz"));
+            assertTrue(pooledDb.tableInitialized("foo"));
+        }
+    }
+
+    @Test
+    public void queryWhilePreparing() throws Exception {
+        stubCreate(xyzTable, "xyz");
+        stubCreate(fooTable, "foo");
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch queried = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try (Statement stmt = invocation.<Connection>getArgument(0).createStatement()) {
+                stmt.executeUpdate("INSERT INTO xyz VALUES (1), (2)");
+            }
+            inserted.countDown();
+            assertTrue(queried.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(xyzTable).prepare(any(Connection.class), eq(adminClient));
+
+        try (Database pooledDb = Database.from(registry)) {
+            CompletableFuture<Void> prepare = CompletableFuture.runAsync(() -> {
+                try {
+                    pooledDb.prepareTable("xyz", adminClient);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            // Rows being loaded aren't visible until the whole table gets committed
+            assertEquals(0, countRows(pooledDb, "xyz"));
+            queried.countDown();
+            prepare.get(10, TimeUnit.SECONDS);
+            assertEquals(2, countRows(pooledDb, "xyz"));
+        }
+    }
+
+    @Test
+    public void queryWhileUpgradingSlices() throws Exception {
+        stubCreate(xyzTable, "xyz");
+        stubCreate(fooTable, "foo");
+        doReturn(Collections.singletonList("id")).when(xyzTable).keyColumns();
+        KeyFilter filter = new KeyFilter("id", Collections.singleton("1"));
+        doAnswer(invocation -> {
+            try (Statement stmt = invocation.<Connection>getArgument(0).createStatement()) {
+                stmt.executeUpdate("INSERT INTO xyz VALUES (1)");
+            }
+            return null;
+        }).when(xyzTable).prepare(any(Connection.class), eq(adminClient), eq(filter));
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch queried = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try (Statement stmt = invocation.<Connection>getArgument(0).createStatement()) {
+                stmt.executeUpdate("INSERT INTO xyz VALUES (1), (2), (3)");
+            }
+            inserted.countDown();
+            assertTrue(queried.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(xyzTable).prepare(any(Connection.class), eq(adminClient));
+
+        try (Database pooledDb = Database.from(registry)) {
+            pooledDb.prepareTable("xyz", adminClient, Collections.singletonList(filter));
+            assertEquals(1, countRows(pooledDb, "xyz"));
+            CompletableFuture<Void> prepare = CompletableFuture.runAsync(() -> {
+                try {
+                    pooledDb.prepareTable("xyz", adminClient, Collections.emptyList());
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            // The slice stays visible until the whole table replaces it, rather than the table looking empty
+            assertEquals(1, countRows(pooledDb, "xyz"));
+            queried.countDown();
+            prepare.get(10, TimeUnit.SECONDS);
+            assertEquals(3, countRows(pooledDb, "xyz"));
+            assertTrue(pooledDb.tableInitialized("xyz"));
+        }
+    }
+
+    @Test
+    public void prepareTableFailure() throws Exception {
+        doAnswer(invocation -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO xyz VALUES (1)");
+            }
+            throw new IllegalStateException("broken");
+        }).when(xyzTable).prepare(connection, adminClient);
+        try {
+            db.prepareTable("xyz", adminClient);
+            fail("prepare should fail");
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        // Rows inserted before the failure are rolled back
+        assertFalse(db.tableInitialized("xyz"));
+        assertFalse(SqlUtils.tableNonEmpty(connection, "xyz"));
+        assertTrue(connection.getAutoCommit());
+
+        doAnswer(invocation -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO xyz VALUES (1)");
+            }
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+        db.prepareTable("xyz", adminClient);
+        assertTrue(db.tableInitialized("xyz"));
+        assertEquals(1, countRows(db, "xyz"));
+    }
+
+    @Test
+    public void prepareAllTablesOneByOneOnSingleConnection() throws Exception {
+        AtomicInteger preparing = new AtomicInteger();
+        doAnswer(invocation -> {
+            assertEquals(1, preparing.incrementAndGet());
+            Thread.sleep(100);
+            preparing.decrementAndGet();
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+        doAnswer(invocation -> {
+            assertEquals(1, preparing.incrementAndGet());
+            Thread.sleep(100);
+            preparing.decrementAndGet();
+            return null;
+        }).when(fooTable).prepare(connection, adminClient);
+
+        Database.PrepareSummary summary = db.prepareAllTables(adminClient);
+        assertEquals(2, summary.getTables());
+    }
+
+    @Test
+    public void prepareAllTablesWithDependency() throws Exception {
+        List<String> prepared = Collections.synchronizedList(new ArrayList<>());
+        doReturn(Collections.singletonList("xyz")).when(fooTable).dependencyTables();
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            prepared.add("xyz");
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+        doAnswer(invocation -> {
+            prepared.add("foo");
+            return null;
+        }).when(fooTable).prepare(connection, adminClient);
+
+        db.prepareAllTables(adminClient);
+        assertEquals(Arrays.asList("xyz", "foo"), prepared);
+    }
+
+    @Test
+    public void prepareTableShared() throws Exception {
+        doReturn(Collections.singletonList("xyz")).when(fooTable).dependencyTables();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            throw new IllegalStateException("broken");
+        }).when(xyzTable).prepare(connection, adminClient);
+
+        List<Thread> threads = new ArrayList<>();
+        List<Exception> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    db.prepareTable("foo", adminClient);
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // All threads wait, one for the release and the others for the load of the dependency by that one
+        long deadline = System.currentTimeMillis() + 10000;
+        while (threads.stream().filter(t -> t.getState() == Thread.State.WAITING
+                                            || t.getState() == Thread.State.TIMED_WAITING)
+                      .count() < threads.size()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        assertEquals(threads.size(), failures.size());
+        for (Exception failure : failures) {
+            assertEquals("broken", failure.getMessage());
+        }
+        verify(xyzTable, times(1)).prepare(connection, adminClient);
+        verify(fooTable, never()).prepare(connection, adminClient);
+
+        // Retried after the failure
+        doNothing().when(xyzTable).prepare(connection, adminClient);
+        db.prepareTable("foo", adminClient);
+        verify(xyzTable, times(2)).prepare(connection, adminClient);
+        assertTrue(db.tableInitialized("xyz"));
+        assertTrue(db.tableInitialized("foo"));
+    }
+
+    @Test
+    public void prepareTableInBulkMode() throws Exception {
+        doAnswer(invocation -> {
+            assertFalse(connection.getAutoCommit());
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+        db.prepareTable("xyz", adminClient);
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    public void indexesCreatedAfterPrepare() throws Exception {
+        doReturn(Collections.singletonList(Index.of("xyz", "id"))).when(xyzTable).indexes();
+        doAnswer(invocation -> {
+            assertFalse(indexExists("xyz_id_idx"));
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+
+        db.prepareTable("xyz", adminClient);
+        assertTrue(indexExists("xyz_id_idx"));
+        db.truncateTable("xyz");
+        assertFalse(indexExists("xyz_id_idx"));
+    }
+
+    private boolean indexExists(String name) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery(
+                     "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = '"
+                     + name.toUpperCase() + "'")) {
+            results.next();
+            return results.getInt(1) > 0;
+        }
+    }
+
+    @Test
+    public void prepareTableWithFilters() throws Exception {
+        doReturn(Collections.singletonList("id")).when(xyzTable).keyColumns();
+        KeyFilter filter1 = new KeyFilter("id", new HashSet<>(Arrays.asList("1", "2")));
+        KeyFilter filter2 = new KeyFilter("id", new HashSet<>(Arrays.asList("2", "3")));
+
+        db.prepareTable("xyz", adminClient, Collections.singletonList(filter1));
+        verify(xyzTable, times(1)).prepare(connection, adminClient, filter1);
+        assertFalse(db.tableInitialized("xyz"));
+        assertTrue(db.tableLoaded("xyz"));
+        assertFalse(db.tableLoaded("foo"));
+        // Only the slice that hasn't been loaded should be prepared
+        db.prepareTable("xyz", adminClient, Collections.singletonList(filter2));
+        verify(xyzTable, times(1)).prepare(connection, adminClient,
+                                           new KeyFilter("id", Collections.singleton("3")));
+        db.prepareTable("xyz", adminClient, Collections.singletonList(filter1));
+        verify(xyzTable, times(2)).prepare(eq(connection), eq(adminClient), any(KeyFilter.class));
+
+        // Unfiltered query should load the whole table
+        db.prepareTable("xyz", adminClient, Collections.emptyList());
+        verify(xyzTable, times(1)).prepare(connection, adminClient);
+        assertTrue(db.tableInitialized("xyz"));
+    }
+
+    @Test
+    public void prepareTableWithUnsupportedFilter() throws Exception {
+        db.prepareTable("xyz", adminClient,
+                        Collections.singletonList(new KeyFilter("id", Collections.singleton("1"))));
+        verify(xyzTable, times(1)).prepare(connection, adminClient);
+        assertTrue(db.tableInitialized("xyz"));
+    }
+
+    @Test
+    public void refreshTable() throws Exception {
+        List<String> rows = new ArrayList<>(Arrays.asList("(1, 'a')", "(2, 'b')", "(3, 'c')"));
+        TableRegistry registry = new TableRegistry();
+        registry.register("kv", new Table() {
+            @Override
+            public String name() {
+                return "kv";
+            }
+
+            @Override
+            public void create(Connection connection) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("CREATE TABLE kv (id INT NOT NULL, value VARCHAR(255), PRIMARY KEY (id))");
+                }
+            }
+
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate("INSERT INTO kv VALUES " + String.join(", ", rows));
+                }
+            }
+        });
+        try (Database kvDb = new Database(SqlUtils.connection(), registry)) {
+            assertEquals(new Database.RefreshSummary(3, 0, 0), kvDb.refreshTable("kv", adminClient));
+            assertTrue(kvDb.tableInitialized("kv"));
+
+            rows.remove("(1, 'a')");
+            rows.set(0, "(2, NULL)");
+            rows.add("(4, 'd')");
+            assertEquals(new Database.RefreshSummary(1, 1, 1), kvDb.refreshTable("kv", adminClient));
+            assertEquals(new Database.RefreshSummary(0, 0, 0), kvDb.refreshTable("kv", adminClient));
+
+            List<String> contents = new ArrayList<>();
+            kvDb.executeQuery("SELECT id, value FROM kv ORDER BY id", results -> {
+                try {
+                    while (results.next()) {
+                        contents.add(results.getInt(1) + "=" + results.getString(2));
+                    }
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertEquals(Arrays.asList("2=null", "3=c", "4=d"), contents);
+        }
+    }
+
+    @Test
+    public void refreshSlices() throws Exception {
+        Map<Integer, String> rows = new HashMap<>();
+        rows.put(1, "a");
+        rows.put(2, "b");
+        rows.put(3, "c");
+        TableRegistry registry = new TableRegistry();
+        registry.register("kv", new Table() {
+            @Override
+            public String name() {
+                return "kv";
+            }
+
+            @Override
+            public Collection<String> keyColumns() {
+                return Collections.singletonList("id");
+            }
+
+            @Override
+            public void create(Connection connection) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("CREATE TABLE kv (id INT NOT NULL, value VARCHAR(255), PRIMARY KEY (id))");
+                }
+            }
+
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                fail("slices shouldn't be refreshed by loading the whole table");
+            }
+
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient, KeyFilter filter)
+                    throws Exception {
+                try (BulkInserter inserter = new BulkInserter(connection,
+                                                              "INSERT INTO kv (id, value) VALUES (?, ?)")) {
+                    for (String id : filter.getValues()) {
+                        String value = rows.get(Integer.parseInt(id));
+                        if (value != null) {
+                            inserter.setInt(1, Integer.parseInt(id));
+                            inserter.setString(2, value);
+                            inserter.add();
+                        }
+                    }
+                }
+            }
+        });
+        try (Database kvDb = new Database(SqlUtils.connection(), registry)) {
+            kvDb.prepareTable("kv", adminClient,
+                              Collections.singletonList(new KeyFilter("id", new HashSet<>(Arrays.asList("1", "2")))));
+
+            rows.remove(1);
+            rows.put(2, "x");
+            rows.put(3, "y");
+            // Only the loaded slices are refreshed, without rows of other slices showing up
+            assertEquals(new Database.RefreshSummary(0, 1, 1), kvDb.refreshTable("kv", adminClient));
+            assertFalse(kvDb.tableInitialized("kv"));
+            assertTrue(kvDb.tableLoaded("kv"));
+
+            List<String> contents = new ArrayList<>();
+            kvDb.executeQuery("SELECT id, value FROM kv ORDER BY id", results -> {
+                try {
+                    while (results.next()) {
+                        contents.add(results.getInt(1) + "=" + results.getString(2));
+                    }
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertEquals(Collections.singletonList("2=x"), contents);
+        }
+    }
+
+    @Test
+    public void refreshTableWithoutSchemaSupport() throws Exception {
+        List<String> rows = new ArrayList<>(Arrays.asList("(1)", "(2)"));
+        doAnswer(invocation -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO xyz VALUES " + String.join(", ", rows));
+            }
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+        // A backend without any optional features, which reloads the whole table on refresh
+        StorageBackend backend = () -> connection;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE xyz");
+            stmt.execute("DROP TABLE foo");
+            for (String table : db.systemTables()) {
+                stmt.execute("DROP TABLE " + table);
+            }
+        }
+        try (Database plainDb = new Database(connection, backend, registry)) {
+            plainDb.prepareTable("xyz", adminClient);
+            rows.add("(3)");
+            assertEquals(new Database.RefreshSummary(3, 0, 2), plainDb.refreshTable("xyz", adminClient));
+            assertTrue(plainDb.tableInitialized("xyz"));
+        }
+    }
+
+    @Test
+    public void saveAndRestoreTables() throws Exception {
+        doAnswer(invocation -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO xyz VALUES (1), (2)");
+            }
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+        SnapshotStore store = new SnapshotStore(folder.getRoot().toPath());
+        db.prepareTable("xyz", adminClient);
+        long updatedAt = db.tableUpdatedAt("xyz");
+        assertEquals(Collections.singleton("xyz"), db.saveTables(store));
+
+        db.truncateAllTables();
+        assertEquals(Collections.singleton("xyz"), db.restoreTables(store, TimeUnit.MINUTES.toMillis(1)));
+        assertTrue(db.tableInitialized("xyz"));
+        assertFalse(db.tableInitialized("foo"));
+        assertEquals(updatedAt, db.tableUpdatedAt("xyz"));
+        assertTrue(SqlUtils.tableNonEmpty(connection, "xyz"));
+
+        // Stale snapshots are ignored
+        db.truncateAllTables();
+        store.writeFetchTimes(Collections.singletonMap("xyz", updatedAt - TimeUnit.MINUTES.toMillis(2)));
+        assertTrue(db.restoreTables(store, TimeUnit.MINUTES.toMillis(1)).isEmpty());
+        assertFalse(db.tableInitialized("xyz"));
+    }
+
+    @Test
+    public void restoreTablesNotFittingSnapshot() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot().toPath());
+        try (Connection other = SqlUtils.connection();
+             Statement stmt = other.createStatement()) {
+            stmt.execute("CREATE TABLE xyz (id VARCHAR(255) NOT NULL)");
+            stmt.execute("INSERT INTO xyz VALUES ('1'), ('not a number')");
+            store.write(other, "xyz");
+        }
+        store.writeFetchTimes(Collections.singletonMap("xyz", System.currentTimeMillis()));
+
+        // Rows that fail to be inserted are rolled back, and the table is left to be prepared from the cluster
+        assertTrue(db.restoreTables(store, TimeUnit.MINUTES.toMillis(1)).isEmpty());
+        assertFalse(db.tableInitialized("xyz"));
+        assertFalse(SqlUtils.tableNonEmpty(connection, "xyz"));
+    }
+
+    @Test
+    public void tableStats() throws Exception {
+        doAnswer(invocation -> {
+            try (BulkInserter inserter = new BulkInserter(connection, "INSERT INTO xyz (id) VALUES (?)")) {
+                inserter.setInt(1, 1);
+                inserter.add();
+                inserter.setInt(1, 2);
+                inserter.add();
+            }
+            return null;
+        }).when(xyzTable).prepare(connection, adminClient);
+        db.prepareTable("xyz", adminClient);
+
+        Database.TableStats stats = db.tableStats().stream()
+                                      .filter(s -> "xyz".equals(s.getName()))
+                                      .findFirst().get();
+        assertTrue(stats.isInitialized());
+        assertEquals(2, stats.getRows());
+        assertEquals(8, stats.getEstimatedBytes());
+        assertEquals(1, stats.getLoads());
+        assertTrue(stats.loadNanos() > 0);
+
+        // The system table shows the same statistics
+        db.prepareTable("kmql_tables", adminClient, Collections.emptyList());
+        List<String> rows = new ArrayList<>();
+        db.executeQuery("SELECT name, row_count, estimated_bytes, loads FROM kmql_tables ORDER BY name",
+                        results -> {
+                            try {
+                                while (results.next()) {
+                                    rows.add(String.format("%s %d %d %d", results.getString(1),
+                                                           results.getLong(2), results.getLong(3),
+                                                           results.getInt(4)));
+                                }
+                            } catch (SQLException e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+        assertEquals(Arrays.asList("foo 0 0 0", "xyz 2 8 1"), rows);
+    }
+
+    @Test
+    public void resultRows() throws Exception {
+        db.prepareTable("xyz", adminClient);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO xyz VALUES (1), (2), (3)");
+        }
+        AtomicReference<Long> rows = new AtomicReference<>();
+        db.executeQuery("SELECT * FROM xyz", results -> {
+            try {
+                while (results.next()) {
+                    // Read through as output formats do
+                }
+                rows.set(Database.resultRows(results));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(Long.valueOf(3), rows.get());
+    }
+
+    @Test
+    public void tableGeneration() throws Exception {
+        long generation = db.tableGeneration("xyz");
+        db.prepareTable("xyz", adminClient);
+        assertTrue(db.tableGeneration("xyz") > generation);
+        generation = db.tableGeneration("xyz");
+        db.prepareTable("xyz", adminClient);
+        assertEquals(generation, db.tableGeneration("xyz"));
+        db.truncateTable("xyz");
+        assertTrue(db.tableGeneration("xyz") > generation);
+    }
+
     @Test
     public void truncateTable() throws Exception {
         db.prepareTable("xyz", adminClient);
@@ -1,6 +1,7 @@
 package kmql;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.mock;
 
 import java.io.BufferedOutputStream;
@@ -11,6 +12,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.kafka.clients.admin.AdminClient;
@@ -94,6 +96,52 @@ public class EngineTest {
         assertEquals(Arrays.asList("foo", "bar", "baz"), outputs);
     }
 
+    @Test
+    public void executeSqlWithResultCache() throws Exception {
+        OutputFormat format = (results, out) -> {
+            while (results.next()) {
+                String id = results.getString(1);
+                outputs.add(id);
+                out.write(id.getBytes());
+            }
+        };
+        Engine cachedEngine = new Engine(adminClient, engine.db(), engine.outputFormatRegistry(),
+                                         engine.commandRegistry(), new ResultCache(1024), format);
+        assertEquals("foobarbaz", execute(cachedEngine, "SELECT id FROM xyz"));
+        assertEquals(3, outputs.size());
+        // Served from the cache without executing the query
+        assertEquals("foobarbaz", execute(cachedEngine, "SELECT  id\nFROM xyz;"));
+        assertEquals(3, outputs.size());
+        assertEquals(1, cachedEngine.resultCache().size());
+
+        // Invalidated as the table changes
+        engine.db().truncateTable("xyz");
+        assertEquals("foobarbaz", execute(cachedEngine, "SELECT id FROM xyz"));
+        assertEquals(6, outputs.size());
+    }
+
+    private static String execute(Engine engine, String sql) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BufferedOutputStream bout = new BufferedOutputStream(output)) {
+            engine.execute(sql, bout);
+        }
+        return new String(output.toByteArray());
+    }
+
+    @Test
+    public void queryLog() throws Exception {
+        engine.execute("SELECT id FROM xyz", mock(BufferedOutputStream.class));
+        List<QueryLog.Entry> entries = engine.db().queryLog().entries();
+        assertEquals(1, entries.size());
+        assertEquals("SELECT id FROM xyz", entries.get(0).getSql());
+        assertEquals(3, entries.get(0).getRows());
+        assertFalse(entries.get(0).isCached());
+
+        outputs.clear();
+        engine.execute("SELECT sql FROM kmql_queries ORDER BY id", mock(BufferedOutputStream.class));
+        assertEquals(Collections.singletonList("SELECT id FROM xyz"), outputs);
+    }
+
     @Test
     public void executeCommand() throws Exception {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
@@ -0,0 +1,53 @@
+package kmql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import picocli.CommandLine;
+
+public class KmqlTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static class StdoutStream extends ByteArrayOutputStream {
+        private boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void executeFallsBackFromDeadServer() throws Exception {
+        Path spec = folder.newFile("spec.json").toPath();
+        Files.write(spec, ("{\"brokers\": 3, \"replicationFactor\": 2, \"topics\": 2, \"partitionsPerTopic\": 1, "
+                           + "\"consumerGroups\": 0}").getBytes(StandardCharsets.UTF_8));
+        LocalServers servers = new LocalServers(folder.getRoot().toPath().resolve("servers"));
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String clusterName = "simulated:" + spec.toAbsolutePath();
+        servers.register(clusterName, port, "secret");
+
+        StdoutStream out = new StdoutStream();
+        int exitCode = new CommandLine(new Kmql(out, servers)).execute(
+                "--simulate", spec.toString(), "--format", "ssv", "-e", "SELECT COUNT(*) AS n FROM brokers");
+        assertEquals(0, exitCode);
+        // Executed in this process after the server turned out to be gone, on the stream left open
+        assertEquals("# N\n3\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertFalse(out.closed);
+        assertFalse(servers.lookup(clusterName).isPresent());
+    }
+}
@@ -0,0 +1,121 @@
+package kmql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalServersTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    private LocalServers servers;
+
+    @Before
+    public void setUp() {
+        servers = new LocalServers(folder.getRoot().toPath().resolve("servers"));
+    }
+
+    @Test
+    public void registerAndLookup() throws Exception {
+        assertFalse(servers.lookup("localhost:9092").isPresent());
+        try (LocalServers.Registration ignored = servers.register("localhost:9092", 7070, "secret")) {
+            assertEquals(Optional.of(new LocalServers.Endpoint(7070, "secret")), servers.lookup("localhost:9092"));
+            assertFalse(servers.lookup("localhost:9093").isPresent());
+        }
+        assertFalse(servers.lookup("localhost:9092").isPresent());
+    }
+
+    @Test
+    public void removeKeepsReplacedRegistration() throws Exception {
+        LocalServers.Registration old = servers.register("localhost:9092", 7070, "old");
+        servers.register("localhost:9092", 7071, "new");
+        old.close();
+        assertEquals(Optional.of(new LocalServers.Endpoint(7071, "new")), servers.lookup("localhost:9092"));
+    }
+
+    @Test
+    public void execute() throws Exception {
+        TableRegistry tableRegistry = new TableRegistry();
+        tableRegistry.register("xyz", new Table() {
+            @Override
+            public String name() {
+                return "xyz";
+            }
+
+            @Override
+            public void create(Connection connection) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("CREATE TABLE xyz (id VARCHAR(255) NOT NULL)");
+                }
+            }
+
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate("INSERT INTO xyz VALUES ('foo'), ('bar')");
+                }
+            }
+        });
+        OutputFormatRegistry outputFormatRegistry = new OutputFormatRegistry();
+        OutputFormat plain = (results, out) -> {
+            while (results.next()) {
+                out.write((results.getString(1) + '\n').getBytes());
+            }
+        };
+        outputFormatRegistry.register("plain", plain);
+        try (Engine engine = new Engine(mock(AdminClient.class), Database.from(tableRegistry),
+                                        outputFormatRegistry, new CommandRegistry(), plain);
+             QueryServer server = new QueryServer(engine, 0, 1, "secret");
+             LocalServers.Registration ignored = servers.register("localhost:9092", server.port(), "secret")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertTrue(servers.execute("localhost:9092", "SELECT id FROM xyz ORDER BY id", "plain", out));
+            assertEquals("bar\nfoo\n", new String(out.toByteArray()));
+
+            try {
+                servers.execute("localhost:9092", "SELECT * FROM nonexistent", "plain", out);
+                fail("query should fail");
+            } catch (SQLException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Query error: "));
+            }
+
+            // Not registered for the cluster
+            assertFalse(servers.execute("localhost:9093", "SELECT id FROM xyz", "plain", out));
+
+            // Registered with a token that the server doesn't accept
+            servers.register("localhost:9094", server.port(), "wrong");
+            try {
+                servers.execute("localhost:9094", "SELECT id FROM xyz", "plain", out);
+                fail("query should be rejected");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("server responded 403"));
+            }
+        }
+    }
+
+    @Test
+    public void executeNotRunning() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        servers.register("localhost:9092", port, "secret");
+        assertFalse(servers.execute("localhost:9092", "SELECT 1", "plain", new ByteArrayOutputStream()));
+        // Registration of the dead server is removed
+        assertFalse(servers.lookup("localhost:9092").isPresent());
+    }
+}
@@ -0,0 +1,125 @@
+package kmql;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import kmql.table.BrokersTable;
+import kmql.table.ConfigsTable;
+import kmql.table.LogdirsTable;
+import kmql.table.ReplicasTable;
+
+/**
+ * Checks that the README example queries are planned to use indexes declared by tables.
+ */
+public class QueryPlanTest {
+    private static final String BROKERS_SQL =
+            "INSERT INTO brokers SELECT X, 'broker' || X, 9092, NULL, X = 0 FROM SYSTEM_RANGE(0, 19)";
+    // 200 topics with 10 partitions each, replicated to 3 of 20 brokers
+    private static final String REPLICAS_SQL =
+            "INSERT INTO replicas SELECT 'topic-' || (X / 30), MOD(X / 3, 10), MOD(X / 3 + MOD(X, 3), 20),"
+            + " MOD(X, 3) = 0, MOD(X, 3) = 0, TRUE, MOD(X, 3) FROM SYSTEM_RANGE(0, 5999)";
+    private static final String LOGDIRS_SQL =
+            "INSERT INTO logdirs SELECT broker_id, '/data', topic, partition, 1000, 0, FALSE FROM replicas";
+    private static final String CONFIGS_SQL =
+            "INSERT INTO configs SELECT 'topic', t.topic, k.key, CASE k.key WHEN 'min.insync.replicas' THEN '2'"
+            + " ELSE 'true' END, 'dynamic_topic_config', FALSE, FALSE"
+            + " FROM (SELECT DISTINCT topic FROM replicas) t"
+            + " CROSS JOIN (SELECT 'key-' || X AS key FROM SYSTEM_RANGE(0, 7)"
+            + "             UNION SELECT 'min.insync.replicas' UNION SELECT 'message.downconversion.enable') k";
+
+    private Database db;
+
+    @Before
+    public void setUp() throws Exception {
+        TableRegistry registry = new TableRegistry();
+        registry.register("brokers", new BrokersTable() {
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                execute(connection, BROKERS_SQL);
+            }
+        });
+        registry.register("replicas", new ReplicasTable() {
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                execute(connection, REPLICAS_SQL);
+            }
+        });
+        registry.register("logdirs", new LogdirsTable() {
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                execute(connection, LOGDIRS_SQL);
+            }
+        });
+        registry.register("configs", new ConfigsTable() {
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                execute(connection, CONFIGS_SQL);
+            }
+        });
+        db = new Database(SqlUtils.connection(), registry);
+        db.prepareAllTables(mock(AdminClient.class));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private String explain(String sql) throws SQLException {
+        AtomicReference<String> plan = new AtomicReference<>();
+        db.executeQuery("EXPLAIN " + sql, results -> {
+            try {
+                results.next();
+                plan.set(results.getString(1));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        return plan.get();
+    }
+
+    @Test
+    public void replicasOnBroker() throws Exception {
+        String plan = explain("SELECT topic, partition FROM replicas WHERE broker_id = 1 AND is_leader");
+        assertTrue(plan, plan.contains("REPLICAS_BROKER_ID_IDX"));
+    }
+
+    @Test
+    public void logdirsOfPartition() throws Exception {
+        String plan = explain("SELECT * FROM logdirs WHERE topic = 'topic-1' AND partition = 0");
+        assertTrue(plan, plan.contains("LOGDIRS_TOPIC_PARTITION_IDX"));
+    }
+
+    @Test
+    public void configsByKeyAndValue() throws Exception {
+        String plan = explain("SELECT name FROM configs WHERE resource_type = 'topic'"
+                              + " AND key = 'message.downconversion.enable' AND value = 'true'");
+        assertTrue(plan, plan.contains("CONFIGS_KEY_VALUE_IDX"));
+    }
+
+    @Test
+    public void joinConfigsAndReplicas() throws Exception {
+        String plan = explain("SELECT topic, partition, isr, value AS minISR FROM configs RIGHT JOIN ("
+                              + "SELECT topic, partition, COUNT(*) as isr FROM replicas WHERE is_in_sync"
+                              + " GROUP BY (topic, partition)) ON name = topic"
+                              + " WHERE key = 'min.insync.replicas' AND isr < CAST(value AS INT)");
+        assertFalse(plan, plan.contains("CONFIGS.tableScan"));
+    }
+}
@@ -0,0 +1,195 @@
+package kmql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryServerTest {
+    private static final String TOKEN = QueryServer.newToken();
+
+    private Engine engine;
+    private QueryServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        TableRegistry tableRegistry = new TableRegistry();
+        tableRegistry.register("xyz", new Table() {
+            @Override
+            public String name() {
+                return "xyz";
+            }
+
+            @Override
+            public void create(Connection connection) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("CREATE TABLE xyz (id VARCHAR(255) NOT NULL)");
+                }
+            }
+
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate("INSERT INTO xyz VALUES ('foo'), ('bar'), ('baz')");
+                }
+            }
+        });
+        OutputFormatRegistry outputFormatRegistry = new OutputFormatRegistry();
+        OutputFormat plain = (results, out) -> {
+            while (results.next()) {
+                out.write((results.getString(1) + '\n').getBytes());
+            }
+        };
+        outputFormatRegistry.register("plain", plain);
+        outputFormatRegistry.register("upper", (results, out) -> {
+            while (results.next()) {
+                out.write((results.getString(1).toUpperCase() + '\n').getBytes());
+            }
+        });
+        engine = new Engine(mock(AdminClient.class), Database.from(tableRegistry), outputFormatRegistry,
+                            new CommandRegistry(), plain);
+        server = new QueryServer(engine, 0, 4, TOKEN);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        engine.close();
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response get(String params) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.port() + QueryServer.QUERY_PATH + params);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty(QueryServer.TOKEN_HEADER, TOKEN);
+        return read(connection);
+    }
+
+    private Response post(String params, String sql) throws IOException {
+        return post(params, sql, TOKEN);
+    }
+
+    private Response post(String params, String sql, String token) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.port() + QueryServer.QUERY_PATH + params);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        if (token != null) {
+            connection.setRequestProperty(QueryServer.TOKEN_HEADER, token);
+        }
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(sql.getBytes(StandardCharsets.UTF_8));
+        }
+        return read(connection);
+    }
+
+    private static Response read(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                body.write(buffer, 0, n);
+            }
+        }
+        return new Response(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    @Test
+    public void query() throws Exception {
+        Response response = post("", "SELECT id FROM xyz ORDER BY id");
+        assertEquals(200, response.status);
+        assertEquals("bar\nbaz\nfoo\n", response.body);
+
+        response = post("?format=upper", "SELECT id FROM xyz WHERE id = 'foo'");
+        assertEquals(200, response.status);
+        assertEquals("FOO\n", response.body);
+    }
+
+    @Test
+    public void emptyResult() throws Exception {
+        Response response = post("", "SELECT id FROM xyz WHERE id = 'qux'");
+        assertEquals(200, response.status);
+        assertEquals("", response.body);
+    }
+
+    @Test
+    public void errors() throws Exception {
+        assertEquals(400, post("", "").status);
+        assertEquals(400, post("?format=nosuch", "SELECT id FROM xyz").status);
+        assertEquals(400, post("", ":format upper").status);
+
+        Response response = post("", "SELECT nosuch FROM xyz");
+        assertEquals(400, response.status);
+        assertTrue(response.body, response.body.startsWith("Query error: "));
+    }
+
+    @Test
+    public void rejectUnauthorized() throws Exception {
+        assertEquals(403, post("", "SELECT id FROM xyz", null).status);
+        assertEquals(403, post("", "SELECT id FROM xyz", "wrong").status);
+        // Queries can't be sent by GET, which a web page can make a browser send
+        assertEquals(405, get("?sql=" + encode("SELECT id FROM xyz")).status);
+    }
+
+    @Test
+    public void concurrentQueries() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> post("", "SELECT id FROM xyz ORDER BY id")));
+            }
+            for (Future<Response> future : futures) {
+                assertEquals("bar\nbaz\nfoo\n", future.get().body);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parseQueryString() throws Exception {
+        Map<String, String> params = QueryServer.parseQueryString("sql=SELECT+1%3B&format=json&empty");
+        assertEquals("SELECT 1;", params.get("sql"));
+        assertEquals("json", params.get("format"));
+        assertEquals("", params.get("empty"));
+        assertEquals(Collections.emptyMap(), QueryServer.parseQueryString(null));
+    }
+}
@@ -0,0 +1,72 @@
+package kmql;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ResultCacheTest {
+    private final ResultCache cache = new ResultCache(10);
+    private final OutputFormat format = mock(OutputFormat.class);
+    private final Map<String, Long> generations = singletonMap("xyz", 1L);
+
+    @Test
+    public void get() {
+        cache.put("SELECT 1", format, generations, new byte[] { 1, 2, 3 });
+        assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get("SELECT 1", format, generations));
+        assertNull(cache.get("SELECT 2", format, generations));
+        assertNull(cache.get("SELECT 1", mock(OutputFormat.class), generations));
+    }
+
+    @Test
+    public void hitsAndMisses() {
+        cache.put("SELECT 1", format, generations, new byte[] { 1, 2, 3 });
+        cache.get("SELECT 1", format, generations);
+        cache.get("SELECT 2", format, generations);
+        cache.get("SELECT 1", format, singletonMap("xyz", 2L));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void getOutdated() {
+        cache.put("SELECT 1", format, generations, new byte[] { 1, 2, 3 });
+        assertNull(cache.get("SELECT 1", format, singletonMap("xyz", 2L)));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        cache.put("SELECT 1", format, generations, new byte[4]);
+        cache.put("SELECT 2", format, generations, new byte[4]);
+        cache.get("SELECT 1", format, generations);
+        cache.put("SELECT 3", format, generations, new byte[4]);
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.bytes());
+        assertNull(cache.get("SELECT 2", format, generations));
+    }
+
+    @Test
+    public void putTooLarge() {
+        cache.put("SELECT 1", format, generations, new byte[11]);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void recorder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultCache.Recorder recorder = cache.recorder(out);
+        recorder.write(new byte[] { 1, 2, 3 });
+        assertArrayEquals(new byte[] { 1, 2, 3 }, recorder.recorded());
+        recorder.write(new byte[10]);
+        assertNull(recorder.recorded());
+        assertEquals(13, out.size());
+    }
+}
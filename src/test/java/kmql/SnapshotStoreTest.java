@@ -0,0 +1,99 @@
+package kmql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotStoreTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection connection;
+    private SnapshotStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = SqlUtils.connection();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE xyz (i INT, l BIGINT, b BOOLEAN, s VARCHAR(255), e ENUM('FOO', 'BAR'))");
+        }
+        store = new SnapshotStore(folder.getRoot().toPath());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    private List<String> rows() throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet results = stmt.executeQuery("SELECT * FROM xyz ORDER BY i")) {
+            while (results.next()) {
+                rows.add(String.join(",", results.getString(1), results.getString(2), results.getString(3),
+                                     results.getString(4), results.getString(5)));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO xyz VALUES (1, 10000000000, TRUE, 'a', 'FOO'), "
+                         + "(2, NULL, FALSE, NULL, 'BAR'), (3, 0, NULL, '', NULL)");
+        }
+        List<String> expected = rows();
+        store.write(connection, "xyz");
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("TRUNCATE TABLE xyz");
+        }
+        assertEquals(3, store.read(connection, "xyz"));
+        assertEquals(expected, rows());
+    }
+
+    @Test(expected = IOException.class)
+    public void readWithDifferentColumns() throws Exception {
+        store.write(connection, "xyz");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE xyz ADD COLUMN extra INT");
+        }
+        store.read(connection, "xyz");
+    }
+
+    @Test
+    public void fetchTimes() throws Exception {
+        assertTrue(store.fetchTimes().isEmpty());
+        Map<String, Long> fetchTimes = new HashMap<>();
+        fetchTimes.put("xyz", 1234L);
+        fetchTimes.put("foo", 5678L);
+        store.writeFetchTimes(fetchTimes);
+        assertEquals(fetchTimes, store.fetchTimes());
+    }
+
+    @Test
+    public void forCluster() {
+        Path cacheDir = folder.getRoot().toPath();
+        SnapshotStore store1 = SnapshotStore.forCluster(cacheDir, "broker1:9092");
+        SnapshotStore store2 = SnapshotStore.forCluster(cacheDir, "broker2:9092");
+        assertEquals(SnapshotStore.forCluster(cacheDir, "broker1:9092").dir(), store1.dir());
+        assertNotEquals(store1.dir(), store2.dir());
+    }
+}
@@ -1,9 +1,17 @@
 package kmql;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -17,4 +25,70 @@ public class SqlAnalyzerTest {
         assertEquals(Arrays.asList("xyz", "foo"),
                      SqlAnalyzer.requiredTables("select * from xyz left join foo"));
     }
+
+    @Test
+    public void keyFilters() {
+        assertEquals(singletonList(new KeyFilter("topic", singleton("x"))),
+                     SqlAnalyzer.keyFilters("SELECT * FROM replicas WHERE topic = 'x'"));
+        assertEquals(singletonList(new KeyFilter("topic", singleton("It's"))),
+                     SqlAnalyzer.keyFilters("SELECT * FROM replicas WHERE TOPIC='It''s' LIMIT 3"));
+        assertEquals(Arrays.asList(new KeyFilter("broker_id", singleton("1")),
+                                   new KeyFilter("topic", new LinkedHashSet<>(Arrays.asList("a", "b")))),
+                     SqlAnalyzer.keyFilters("SELECT * FROM replicas r WHERE (r.broker_id = 1)"
+                                            + " AND is_leader AND topic IN ('a', 'b') ORDER BY partition"));
+        assertEquals(singletonList(new KeyFilter("name", singleton("x"))),
+                     SqlAnalyzer.keyFilters("SELECT * FROM configs WHERE name = 'x' AND NOT key = 'y'"));
+        assertEquals(singletonList(new KeyFilter("broker_id", new LinkedHashSet<>(Arrays.asList("1", "0")))),
+                     SqlAnalyzer.keyFilters("SELECT * FROM logdirs WHERE broker_id IN (01, 1, -0)"));
+    }
+
+    @Test
+    public void keyFiltersNotApplicable() {
+        // No WHERE clause
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters("SELECT * FROM replicas"));
+        // Disjunction
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters("SELECT * FROM replicas WHERE topic = 'x' OR is_leader"));
+        // Multiple tables
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters(
+                "SELECT * FROM brokers JOIN logdirs ON id = broker_id WHERE broker_id = 1"));
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters(
+                "SELECT * FROM replicas, brokers WHERE broker_id = 1"));
+        // Subquery
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters(
+                "SELECT * FROM replicas WHERE topic IN (SELECT name FROM configs)"));
+        // Not a literal or not an equality
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters("SELECT * FROM replicas WHERE topic = UPPER('x')"));
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters("SELECT * FROM replicas WHERE broker_id >= 1"));
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters("SELECT * FROM replicas WHERE topic != 'x'"));
+        assertEquals(emptyList(), SqlAnalyzer.keyFilters(
+                "SELECT * FROM logdirs WHERE broker_id = 99999999999999999999"));
+        // Keywords in literals should be ignored
+        assertEquals(singletonList(new KeyFilter("topic", singleton("x or y"))),
+                     SqlAnalyzer.keyFilters("SELECT * FROM replicas WHERE topic = 'x or y'"));
+    }
+
+    @Test
+    public void referencedTables() {
+        List<String> tables = Arrays.asList("replicas", "brokers", "configs");
+        assertEquals(new HashSet<>(Arrays.asList("replicas", "brokers")),
+                     SqlAnalyzer.referencedTables("SELECT * FROM replicas, BROKERS WHERE broker_id = id", tables));
+        // Names in literals aren't references
+        assertEquals(singleton("replicas"),
+                     SqlAnalyzer.referencedTables("SELECT * FROM replicas WHERE topic = 'configs'", tables));
+        assertEquals(emptySet(), SqlAnalyzer.referencedTables("SELECT 1", tables));
+    }
+
+    @Test
+    public void deterministic() {
+        assertTrue(SqlAnalyzer.deterministic("SELECT * FROM replicas WHERE topic = 'now'"));
+        assertFalse(SqlAnalyzer.deterministic("SELECT *, NOW() FROM replicas"));
+        assertFalse(SqlAnalyzer.deterministic("SELECT * FROM replicas ORDER BY RAND()"));
+        assertFalse(SqlAnalyzer.deterministic("SELECT * FROM INFORMATION_SCHEMA.TABLES"));
+    }
+
+    @Test
+    public void normalize() {
+        assertEquals("SELECT * FROM replicas WHERE topic = 'a  b'",
+                     SqlAnalyzer.normalize("  SELECT *\n  FROM replicas\tWHERE topic = 'a  b' ;"));
+    }
 }
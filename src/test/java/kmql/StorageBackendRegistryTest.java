@@ -0,0 +1,24 @@
+package kmql;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+public class StorageBackendRegistryTest {
+    private final StorageBackendRegistry registry = new StorageBackendRegistry();
+
+    @Test
+    public void register() {
+        StorageBackend backend = mock(StorageBackend.class);
+        registry.register("foo", backend);
+        assertSame(backend, registry.lookup("foo").get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void registerConflict() {
+        StorageBackend backend = mock(StorageBackend.class);
+        registry.register("foo", backend);
+        registry.register("foo", backend);
+    }
+}
@@ -0,0 +1,101 @@
+package kmql;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class TableRefresherTest {
+    @Rule
+    public final MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private Database db;
+    @Mock
+    private AdminClient adminClient;
+    private TableRefresher refresher;
+
+    @Before
+    public void setUp() {
+        doReturn(new HashSet<>(Arrays.asList("xyz", "foo"))).when(db).tables();
+        // Use a long interval to drive refreshes manually
+        refresher = new TableRefresher(db, adminClient, Long.MAX_VALUE / 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        refresher.close();
+    }
+
+    @Test
+    public void parseDuration() {
+        assertEquals(Duration.ofMillis(500), TableRefresher.parseDuration("500ms"));
+        assertEquals(Duration.ofSeconds(30), TableRefresher.parseDuration("30s"));
+        assertEquals(Duration.ofMinutes(10), TableRefresher.parseDuration("10m"));
+        assertEquals(Duration.ofHours(1), TableRefresher.parseDuration("1h"));
+        assertEquals(Duration.ofDays(2), TableRefresher.parseDuration("2d"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalidDuration() {
+        TableRefresher.parseDuration("10 minutes");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTtlOfUnknownTable() {
+        refresher.setTtl("bar", Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void refreshExpiredTables() throws Exception {
+        long now = System.currentTimeMillis();
+        doReturn(true).when(db).tableLoaded(anyString());
+        doReturn(now - 60_000).when(db).tableUpdatedAt("xyz");
+        doReturn(now).when(db).tableUpdatedAt("foo");
+        refresher.setTtl("xyz", Duration.ofSeconds(30));
+        refresher.setTtl("foo", Duration.ofSeconds(30));
+
+        refresher.refreshExpiredTables();
+        verify(db, times(1)).refreshTable("xyz", adminClient);
+        verify(db, never()).refreshTable("foo", adminClient);
+    }
+
+    @Test
+    public void skipUnloadedTables() throws Exception {
+        doReturn(false).when(db).tableLoaded("xyz");
+        doReturn(0L).when(db).tableUpdatedAt("xyz");
+        refresher.setTtl("xyz", Duration.ofSeconds(1));
+
+        refresher.refreshExpiredTables();
+        verify(db, never()).refreshTable(anyString(), any());
+    }
+
+    @Test
+    public void backOffAfterFailure() throws Exception {
+        doReturn(true).when(db).tableLoaded("xyz");
+        doReturn(0L).when(db).tableUpdatedAt("xyz");
+        doThrow(new RuntimeException("boom")).when(db).refreshTable("xyz", adminClient);
+        refresher.setTtl("xyz", Duration.ofHours(1));
+
+        refresher.refreshExpiredTables();
+        refresher.refreshExpiredTables();
+        verify(db, times(1)).refreshTable("xyz", adminClient);
+    }
+}
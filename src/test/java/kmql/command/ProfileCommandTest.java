@@ -0,0 +1,112 @@
+package kmql.command;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import kmql.BulkInserter;
+import kmql.CommandRegistry;
+import kmql.Commands;
+import kmql.Database;
+import kmql.Engine;
+import kmql.OutputFormatRegistry;
+import kmql.Table;
+import kmql.TableRegistry;
+
+public class ProfileCommandTest {
+    private final ProfileCommand cmd = new ProfileCommand();
+    private Engine engine;
+
+    @Before
+    public void setUp() {
+        TableRegistry tableRegistry = new TableRegistry();
+        tableRegistry.register("xyz", new Table() {
+            @Override
+            public String name() {
+                return "xyz";
+            }
+
+            @Override
+            public void create(Connection connection) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("CREATE TABLE xyz (id VARCHAR(255) NOT NULL)");
+                }
+            }
+
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                try (BulkInserter inserter = new BulkInserter(connection, "INSERT INTO xyz (id) VALUES (?)")) {
+                    for (String id : Arrays.asList("foo", "bar", "baz")) {
+                        inserter.setString(1, id);
+                        inserter.add();
+                    }
+                }
+            }
+        });
+        CommandRegistry commandRegistry = new CommandRegistry();
+        commandRegistry.register("profile", cmd);
+        engine = new Engine(mock(AdminClient.class), Database.from(tableRegistry), new OutputFormatRegistry(),
+                            commandRegistry, (results, out) -> {
+            while (results.next()) {
+                out.write(results.getString(1).getBytes());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        engine.close();
+    }
+
+    private String execute(List<String> args) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BufferedOutputStream bout = new BufferedOutputStream(out)) {
+            cmd.execute(args, engine, bout);
+        }
+        return new String(out.toByteArray());
+    }
+
+    @Test
+    public void execute() throws Exception {
+        String output = execute(Arrays.asList("SELECT", "id", "FROM", "xyz"));
+        for (String phase : Arrays.asList("analyze", "prepare", "execute", "format", "total")) {
+            assertTrue(output, output.contains("\n" + phase + " "));
+        }
+        assertTrue(output, output.contains("  xyz "));
+        assertTrue(output, output.contains("3 rows"));
+        assertTrue(output, output.contains(" 9 bytes"));
+        assertTrue(output, output.contains("PLAN\n"));
+
+        // Already loaded tables are still listed
+        assertTrue(execute(Arrays.asList("SELECT", "id", "FROM", "xyz")).contains("already loaded"));
+    }
+
+    @Test
+    public void executeKeepsWhitespace() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BufferedOutputStream bout = new BufferedOutputStream(out)) {
+            Commands.executeLine(engine, bout, ":profile SELECT id FROM xyz WHERE 'a  b' <> 'a b'");
+        }
+        String output = new String(out.toByteArray());
+        // The condition would be false if the spaces in the literal were collapsed
+        assertTrue(output, output.contains("3 rows"));
+    }
+
+    @Test
+    public void executeNoArgs() throws Exception {
+        assertEquals("Error usage: :profile SQL\n", execute(emptyList()));
+    }
+}
@@ -0,0 +1,64 @@
+package kmql.command;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import kmql.Database;
+import kmql.Database.RefreshSummary;
+import kmql.Engine;
+
+public class RefreshCommandTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+    @Mock
+    private Database db;
+    @Mock
+    private Engine engine;
+    @Mock
+    private AdminClient adminClient;
+    private final RefreshCommand cmd = new RefreshCommand();
+
+    @Before
+    public void setUp() throws Exception {
+        doReturn(db).when(engine).db();
+        doReturn(adminClient).when(engine).adminClient();
+        doReturn(new RefreshSummary(1, 2, 3)).when(db).refreshTable("foo", adminClient);
+    }
+
+    @Test
+    public void executeNoArgs() throws Exception {
+        doReturn(new HashSet<>(Arrays.asList("foo", "bar"))).when(db).tables();
+        doReturn(true).when(db).tableInitialized("foo");
+        cmd.execute(emptyList(), engine, mock(BufferedOutputStream.class));
+
+        verify(db, times(1)).refreshTable("foo", adminClient);
+        verify(db, never()).refreshTable("bar", adminClient);
+    }
+
+    @Test
+    public void executeWithArgs() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BufferedOutputStream bout = new BufferedOutputStream(out)) {
+            cmd.execute(Arrays.asList("foo"), engine, bout);
+        }
+        assertEquals("Refreshed table foo: 1 inserted, 2 updated, 3 deleted\n", new String(out.toByteArray()));
+    }
+}
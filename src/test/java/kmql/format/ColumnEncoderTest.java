@@ -0,0 +1,53 @@
+package kmql.format;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Types;
+
+import org.junit.Test;
+
+import kmql.SqlUtils;
+import kmql.SqlUtils.ColumnInfo;
+
+public class ColumnEncoderTest {
+    private static final ColumnInfo[] COLUMNS = {
+            new ColumnInfo("I", Types.INTEGER),
+            new ColumnInfo("L", Types.BIGINT),
+            new ColumnInfo("B", Types.BOOLEAN),
+            new ColumnInfo("F", Types.REAL),
+            new ColumnInfo("D", Types.DOUBLE),
+            new ColumnInfo("N", Types.DECIMAL),
+            new ColumnInfo("S", Types.VARCHAR),
+            };
+
+    @Test
+    public void text() throws Exception {
+        Object[] values = { -123, Long.MIN_VALUE, true, 1.1f, 0.5, new BigDecimal("1.50"), "ホスト" };
+        ResultSet results = SqlUtils.resultSet(COLUMNS, values, new Object[COLUMNS.length]);
+        ColumnEncoder[] encoders = ColumnEncoder.compile(results.getMetaData());
+        while (results.next()) {
+            for (int i = 0; i < encoders.length; i++) {
+                String expected = String.valueOf(results.getObject(i + 1));
+                assertEquals(expected, encoders[i].toText(results, i + 1));
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                encoders[i].writeText(results, i + 1, new TextOutput(out));
+                assertEquals(expected, new String(out.toByteArray()));
+            }
+        }
+    }
+
+    @Test
+    public void writeLong() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextOutput text = new TextOutput(out);
+        for (long value : new long[] { 0, 7, -7, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            out.reset();
+            text.writeLong(value);
+            assertEquals(Long.toString(value), new String(out.toByteArray()));
+        }
+    }
+}
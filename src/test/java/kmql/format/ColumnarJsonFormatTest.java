@@ -0,0 +1,45 @@
+package kmql.format;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.ResultSet;
+import java.sql.Types;
+
+import org.junit.Test;
+
+import kmql.SqlUtils;
+import kmql.SqlUtils.ColumnInfo;
+
+public class ColumnarJsonFormatTest {
+    private static final ColumnInfo[] COLUMNS = {
+            new ColumnInfo("ID", Types.INTEGER),
+            new ColumnInfo("HOST", Types.VARCHAR),
+            new ColumnInfo("IS_CONTROLLER", Types.BOOLEAN),
+            };
+
+    @Test
+    public void formatTo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream bout = new BufferedOutputStream(out);
+        ResultSet results = SqlUtils.resultSet(COLUMNS,
+                                               new Object[] { 1, "host1.com", true },
+                                               new Object[] { 2, null, false });
+        new ColumnarJsonFormat().formatTo(results, bout);
+        bout.flush();
+        String expected = "{\"columns\":[\"ID\",\"HOST\",\"IS_CONTROLLER\"]," +
+                          "\"rows\":[[1,\"host1.com\",true],[2,null,false]]}\n";
+        assertEquals(expected, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void formatToEmpty() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream bout = new BufferedOutputStream(out);
+        new ColumnarJsonFormat().formatTo(SqlUtils.resultSet(COLUMNS), bout);
+        bout.flush();
+        assertEquals("{\"columns\":[\"ID\",\"HOST\",\"IS_CONTROLLER\"],\"rows\":[]}\n",
+                     new String(out.toByteArray()));
+    }
+}
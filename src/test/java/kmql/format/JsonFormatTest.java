@@ -33,4 +33,33 @@ public class JsonFormatTest {
                           "{\"ID\":3,\"HOST\":\"host3.com\",\"IS_CONTROLLER\":false}]\n";
         assertEquals(expected, new String(out.toByteArray()));
     }
+
+    @Test
+    public void formatToWithTypesAndNulls() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream bout = new BufferedOutputStream(out);
+        ResultSet results = SqlUtils.resultSet(new ColumnInfo[] {
+                                                       new ColumnInfo("SIZE", Types.BIGINT),
+                                                       new ColumnInfo("RATIO", Types.DOUBLE),
+                                                       new ColumnInfo("RACK", Types.VARCHAR),
+                                                       new ColumnInfo("IS_FUTURE", Types.BOOLEAN),
+                                                       },
+                                               new Object[] { 10000000000L, 0.5, "a\"b", true },
+                                               new Object[] { null, null, null, null });
+        new JsonFormat().formatTo(results, bout);
+        bout.flush();
+        String expected = "[{\"SIZE\":10000000000,\"RATIO\":0.5,\"RACK\":\"a\\\"b\",\"IS_FUTURE\":true}," +
+                          "{\"SIZE\":null,\"RATIO\":null,\"RACK\":null,\"IS_FUTURE\":null}]\n";
+        assertEquals(expected, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void formatToEmpty() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream bout = new BufferedOutputStream(out);
+        ResultSet results = SqlUtils.resultSet(new ColumnInfo[] { new ColumnInfo("ID", Types.INTEGER) });
+        new JsonFormat().formatTo(results, bout);
+        bout.flush();
+        assertEquals("[]\n", new String(out.toByteArray()));
+    }
 }
@@ -0,0 +1,44 @@
+package kmql.format;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.ResultSet;
+import java.sql.Types;
+
+import org.junit.Test;
+
+import kmql.SqlUtils;
+import kmql.SqlUtils.ColumnInfo;
+
+public class NdjsonFormatTest {
+    private static final ColumnInfo[] COLUMNS = {
+            new ColumnInfo("ID", Types.INTEGER),
+            new ColumnInfo("HOST", Types.VARCHAR),
+            new ColumnInfo("IS_CONTROLLER", Types.BOOLEAN),
+            };
+
+    @Test
+    public void formatTo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream bout = new BufferedOutputStream(out);
+        ResultSet results = SqlUtils.resultSet(COLUMNS,
+                                               new Object[] { 1, "host1.com", true },
+                                               new Object[] { 2, null, false });
+        new NdjsonFormat().formatTo(results, bout);
+        bout.flush();
+        String expected = "{\"ID\":1,\"HOST\":\"host1.com\",\"IS_CONTROLLER\":true}\n" +
+                          "{\"ID\":2,\"HOST\":null,\"IS_CONTROLLER\":false}\n";
+        assertEquals(expected, new String(out.toByteArray()));
+    }
+
+    @Test
+    public void formatToEmpty() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream bout = new BufferedOutputStream(out);
+        new NdjsonFormat().formatTo(SqlUtils.resultSet(COLUMNS), bout);
+        bout.flush();
+        assertEquals("", new String(out.toByteArray()));
+    }
+}
@@ -39,4 +39,31 @@ public class TableFormatTest {
                           "╚════╧═══════════╧═══════════════╝\n";
         assertEquals(expected, new String(out.toByteArray()));
     }
+
+    @Test
+    public void formatToStreaming() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream bout = new BufferedOutputStream(out);
+        ResultSet results = SqlUtils.resultSet(new ColumnInfo[] {
+                                                       new ColumnInfo("ID", Types.INTEGER),
+                                                       new ColumnInfo("HOST", Types.VARCHAR),
+                                                       new ColumnInfo("IS_CONTROLLER", Types.BOOLEAN),
+                                                       },
+                                               new Object[] { 1, "host1.com", true },
+                                               new Object[] { 2, "host2.com", false },
+                                               new Object[] { 3, "host3.example.com", false });
+        // Widths are sized from the first 2 rows, and longer values in later rows are truncated
+        new TableFormat(2).formatTo(results, bout);
+        bout.flush();
+        String expected = "╔════╤═══════════╤═══════════════╗\n" +
+                          "║ ID │ HOST      │ IS_CONTROLLER ║\n" +
+                          "╠════╪═══════════╪═══════════════╣\n" +
+                          "║ 1  │ host1.com │ true          ║\n" +
+                          "╟────┼───────────┼───────────────╢\n" +
+                          "║ 2  │ host2.com │ false         ║\n" +
+                          "╟────┼───────────┼───────────────╢\n" +
+                          "║ 3  │ host3.ex… │ false         ║\n" +
+                          "╚════╧═══════════╧═══════════════╝\n";
+        assertEquals(expected, new String(out.toByteArray()));
+    }
 }
@@ -0,0 +1,42 @@
+package kmql.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class HistogramTest {
+    private final Histogram histogram = new Histogram();
+
+    @Test
+    public void observe() {
+        histogram.observe(TimeUnit.MICROSECONDS.toNanos(500));
+        histogram.observe(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.observe(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.observe(TimeUnit.MINUTES.toNanos(2));
+
+        long[] counts = histogram.cumulativeCounts();
+        assertEquals(Histogram.BOUNDS.length + 1, counts.length);
+        // Bounds are inclusive
+        assertArrayEquals(new long[] { 2, 3, 3 }, new long[] { counts[0], counts[1], counts[2] });
+        assertEquals(3, counts[counts.length - 2]);
+        assertEquals(4, counts[counts.length - 1]);
+        assertEquals(4, histogram.getCount());
+        assertEquals(TimeUnit.MINUTES.toNanos(2) + TimeUnit.MICROSECONDS.toNanos(4500), histogram.sumNanos());
+    }
+
+    @Test
+    public void quantiles() {
+        assertEquals(0, histogram.getP99Millis(), 0);
+        for (int i = 0; i < 100; i++) {
+            histogram.observe(TimeUnit.MILLISECONDS.toNanos(i < 90 ? 1 : 200));
+        }
+        // Interpolated within the bucket of (0, 1ms] and (100ms, 250ms]
+        assertEquals(0.5 / 0.9, histogram.getP50Millis(), 1e-9);
+        assertEquals(1, histogram.getP90Millis(), 1e-9);
+        assertEquals(100 + 150 * 0.9, histogram.getP99Millis(), 1e-9);
+        assertEquals((90 * 1 + 10 * 200) / 100.0, histogram.getMeanMillis(), 1e-9);
+    }
+}
@@ -0,0 +1,39 @@
+package kmql.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.Test;
+
+public class MeteredAdminClientTest {
+    @Test
+    public void passThroughUnmeteredCalls() {
+        AdminClient delegate = mock(AdminClient.class);
+        ListConsumerGroupOffsetsResult offsets = mock(ListConsumerGroupOffsetsResult.class);
+        ListConsumerGroupOffsetsOptions options = new ListConsumerGroupOffsetsOptions();
+        doReturn(offsets).when(delegate).listConsumerGroupOffsets("group", options);
+        Map<MetricName, ? extends Metric> metrics = Collections.singletonMap(
+                new MetricName("name", "group", "", Collections.emptyMap()), mock(Metric.class));
+        doReturn(metrics).when(delegate).metrics();
+
+        MeteredAdminClient adminClient = new MeteredAdminClient(delegate);
+        assertSame(offsets, adminClient.listConsumerGroupOffsets("group", options));
+        verify(delegate).listConsumerGroupOffsets("group", options);
+        assertEquals(metrics, adminClient.metrics());
+        // Observed only for the APIs that kmql calls
+        for (Histogram histogram : adminClient.latencies().values()) {
+            assertEquals(0, histogram.getCount());
+        }
+    }
+}
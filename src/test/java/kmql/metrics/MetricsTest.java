@@ -0,0 +1,173 @@
+package kmql.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Scanner;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import kmql.BulkInserter;
+import kmql.CommandRegistry;
+import kmql.Database;
+import kmql.Engine;
+import kmql.OutputFormatRegistry;
+import kmql.ResultCache;
+import kmql.Table;
+import kmql.TableRegistry;
+import kmql.simulation.ClusterSpec;
+import kmql.simulation.SimulatedAdminClient;
+
+public class MetricsTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Engine engine;
+    private MeteredAdminClient adminClient;
+    private Metrics metrics;
+
+    @Before
+    public void setUp() {
+        TableRegistry tableRegistry = new TableRegistry();
+        tableRegistry.register("xyz", new Table() {
+            @Override
+            public String name() {
+                return "xyz";
+            }
+
+            @Override
+            public void create(Connection connection) throws Exception {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("CREATE TABLE xyz (id INT NOT NULL)");
+                }
+            }
+
+            @Override
+            public void prepare(Connection connection, AdminClient adminClient) throws Exception {
+                adminClient.describeCluster().nodes().get();
+                try (BulkInserter inserter = new BulkInserter(connection, "INSERT INTO xyz (id) VALUES (?)")) {
+                    inserter.setInt(1, 1);
+                    inserter.add();
+                }
+            }
+        });
+        ClusterSpec spec = new ClusterSpec();
+        spec.setBrokers(4);
+        spec.setTopics(2);
+        spec.setPartitionsPerTopic(2);
+        spec.setReassignments(0);
+        spec.setConsumerGroups(0);
+        adminClient = new MeteredAdminClient(SimulatedAdminClient.create(spec));
+        ResultCache resultCache = new ResultCache(1024);
+        engine = new Engine(adminClient, Database.from(tableRegistry), new OutputFormatRegistry(),
+                            new CommandRegistry(), resultCache, (results, out) -> {
+            while (results.next()) {
+                out.write(results.getString(1).getBytes());
+            }
+        });
+        metrics = new Metrics(engine.db(), resultCache, adminClient);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        metrics.close();
+        engine.close();
+    }
+
+    private void execute(String sql) throws Exception {
+        try (BufferedOutputStream output = new BufferedOutputStream(new ByteArrayOutputStream())) {
+            engine.execute(sql, output);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void writePrometheus() throws Exception {
+        execute("SELECT id FROM xyz");
+        execute("SELECT id FROM xyz");
+        // The latency is observed right after futures complete, racing with get()
+        while (adminClient.latencies().get("describeCluster").getCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        StringWriter out = new StringWriter();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+        assertTrue(text, text.contains("# TYPE kmql_table_load_seconds histogram\n"));
+        assertTrue(text, text.contains("kmql_table_load_seconds_count{table=\"xyz\"} 1\n"));
+        assertTrue(text, text.contains("kmql_table_load_seconds_bucket{table=\"xyz\",le=\"+Inf\"} 1\n"));
+        assertTrue(text, text.contains("kmql_table_rows{table=\"xyz\"} 1\n"));
+        assertTrue(text, text.contains("kmql_table_estimated_bytes{table=\"xyz\"} 4\n"));
+        assertTrue(text, text.contains("kmql_admin_call_seconds_count{api=\"describeCluster\"} 1\n"));
+        assertTrue(text, text.contains("kmql_admin_call_seconds_count{api=\"describeTopics\"} 0\n"));
+        assertTrue(text, text.contains("kmql_query_seconds_count 2\n"));
+        assertTrue(text, text.contains("kmql_result_cache_hits_total 1\n"));
+        assertTrue(text, text.contains("kmql_result_cache_misses_total 1\n"));
+    }
+
+    @Test
+    public void registerMBeans() throws Exception {
+        execute("SELECT id FROM xyz");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName table = new ObjectName("kmql:type=Table,table=\"xyz\"");
+        ObjectName query = new ObjectName("kmql:type=Query");
+
+        metrics.registerMBeans();
+        assertEquals(1L, server.getAttribute(table, "Rows"));
+        assertEquals(1L, server.getAttribute(query, "Count"));
+        assertEquals(0.0, server.getAttribute(new ObjectName("kmql:type=ResultCache"), "HitRate"));
+
+        metrics.close();
+        assertFalse(server.isRegistered(table));
+        assertFalse(server.isRegistered(query));
+    }
+
+    @Test
+    public void serve() throws Exception {
+        execute("SELECT id FROM xyz");
+        try (PrometheusExporter exporter = PrometheusExporter.serve(metrics, 0)) {
+            URL url = new URL("http://127.0.0.1:" + exporter.port() + "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(PrometheusExporter.CONTENT_TYPE, connection.getContentType());
+            try (InputStream in = connection.getInputStream();
+                 Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+                String text = scanner.useDelimiter("\\A").next();
+                assertTrue(text, text.contains("kmql_query_seconds_count 1\n"));
+            }
+        }
+    }
+
+    @Test
+    public void writeTo() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("kmql.prom");
+        PrometheusExporter exporter = PrometheusExporter.writeTo(metrics, path, Duration.ofHours(1));
+        execute("SELECT id FROM xyz");
+        // Written once more when closed
+        exporter.close();
+        String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        assertTrue(text, text.contains("kmql_query_seconds_count 1\n"));
+    }
+}
@@ -0,0 +1,109 @@
+package kmql.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import kmql.Database;
+import kmql.Table;
+import kmql.TableRegistry;
+import kmql.simulation.ClusterSpec.CallSpec;
+
+public class RecordingTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static ClusterSpec spec() {
+        ClusterSpec spec = new ClusterSpec();
+        spec.setBrokers(4);
+        spec.setTopics(10);
+        spec.setPartitionsPerTopic(6);
+        spec.setReassignments(2);
+        spec.setConsumerGroups(5);
+        spec.setMembersPerGroup(2);
+        spec.setTopicsPerGroup(1);
+        return spec;
+    }
+
+    private static List<String> dump(Database db, String table) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        db.executeQuery("SELECT * FROM " + table, results -> {
+            try {
+                int columns = results.getMetaData().getColumnCount();
+                while (results.next()) {
+                    StringBuilder row = new StringBuilder();
+                    for (int i = 1; i <= columns; i++) {
+                        row.append(results.getString(i)).append('|');
+                    }
+                    rows.add(row.toString());
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Collections.sort(rows);
+        return rows;
+    }
+
+    @Test
+    public void recordAndReplay() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("cluster.recording");
+        try (Database recorded = Database.from(TableRegistry.DEFAULT);
+             Database replayed = Database.from(TableRegistry.DEFAULT)) {
+            try (RecordingAdminClient recorder = new RecordingAdminClient(SimulatedAdminClient.create(spec()))) {
+                recorded.prepareAllTables(recorder);
+                recorder.recording().write(path);
+            }
+            Recording recording = Recording.read(path);
+            assertEquals(10, recording.getModel().getTopics().size());
+            assertEquals(1, recording.getLatencies().get("describeCluster").size());
+
+            try (ReplayAdminClient replay = new ReplayAdminClient(recording, 0)) {
+                replayed.prepareAllTables(replay);
+            }
+            for (Entry<String, Table> entry : TableRegistry.DEFAULT) {
+                String table = entry.getKey();
+                List<String> rows = dump(recorded, table);
+                assertTrue(table + " should have rows", !rows.isEmpty());
+                assertEquals(table, rows, dump(replayed, table));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void replayLatencies() throws Exception {
+        ClusterSpec spec = spec();
+        CallSpec slow = new CallSpec();
+        slow.setLatencyMillis(200);
+        spec.setCalls(Collections.singletonMap("describeCluster", slow));
+
+        Recording recording;
+        try (RecordingAdminClient recorder = new RecordingAdminClient(SimulatedAdminClient.create(spec))) {
+            recorder.describeCluster().clusterId().get();
+            // The latency is recorded right after futures complete, racing with get()
+            recording = recorder.recording();
+            while (!recording.getLatencies().containsKey("describeCluster")) {
+                Thread.sleep(10);
+                recording = recorder.recording();
+            }
+        }
+        long latencyMicros = recording.getLatencies().get("describeCluster").get(0);
+        assertTrue(latencyMicros >= 200_000);
+
+        try (ReplayAdminClient replay = new ReplayAdminClient(recording, 0.5)) {
+            long start = System.nanoTime();
+            replay.describeCluster().nodes().get();
+            assertTrue(System.nanoTime() - start >= latencyMicros * 1000 / 2);
+        }
+    }
+}
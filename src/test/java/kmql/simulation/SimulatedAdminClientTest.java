@@ -0,0 +1,139 @@
+package kmql.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import kmql.Database;
+import kmql.TableRegistry;
+import kmql.simulation.ClusterSpec.CallSpec;
+
+public class SimulatedAdminClientTest {
+    private ClusterSpec spec;
+    private Database db;
+
+    @Before
+    public void setUp() {
+        spec = new ClusterSpec();
+        spec.setBrokers(5);
+        spec.setTopics(20);
+        spec.setPartitionsPerTopic(10);
+        spec.setReassignments(3);
+        spec.setConsumerGroups(8);
+        spec.setMembersPerGroup(3);
+        spec.setTopicsPerGroup(2);
+        db = Database.from(TableRegistry.DEFAULT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    private long count(String sql) throws SQLException {
+        long[] count = new long[1];
+        db.executeQuery(sql, results -> {
+            try {
+                results.next();
+                count[0] = results.getLong(1);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        return count[0];
+    }
+
+    @Test
+    public void prepareAllTables() throws Exception {
+        try (SimulatedAdminClient adminClient = SimulatedAdminClient.create(spec)) {
+            db.prepareAllTables(adminClient);
+        }
+
+        assertEquals(5, count("SELECT COUNT(*) FROM brokers"));
+        assertEquals(1, count("SELECT COUNT(*) FROM brokers WHERE is_controller"));
+        assertEquals(20, count("SELECT COUNT(DISTINCT topic) FROM replicas"));
+        // Reassigning partitions have an extra replica being added
+        assertEquals(20 * 10 * 3 + 3, count("SELECT COUNT(*) FROM replicas"));
+        assertEquals(3, count("SELECT COUNT(*) FROM (SELECT DISTINCT topic, partition FROM reassignments)"));
+        assertEquals(3, count("SELECT COUNT(*) FROM reassignments WHERE operation = 'adding'"));
+        // Every replica is in a log dir of its broker
+        assertEquals(count("SELECT COUNT(*) FROM replicas"), count("SELECT COUNT(*) FROM logdirs"));
+        assertEquals(0, count("SELECT COUNT(*) FROM replicas r LEFT JOIN logdirs l"
+                              + " ON r.topic = l.topic AND r.partition = l.partition AND r.broker_id = l.broker_id"
+                              + " WHERE l.path IS NULL"));
+        assertEquals(0, count("SELECT COUNT(*) FROM replicas r JOIN logdirs l"
+                              + " ON r.topic = l.topic AND r.partition = l.partition AND r.broker_id = l.broker_id"
+                              + " WHERE r.is_in_sync AND l.offset_lag > 0"));
+        assertEquals(5 + 20, count("SELECT COUNT(DISTINCT name) FROM configs"));
+        assertEquals(8, count("SELECT COUNT(DISTINCT group_id) FROM consumers"));
+        assertEquals(8 * 2 * 10, count("SELECT COUNT(*) FROM consumers"));
+    }
+
+    @Test
+    public void generateDeterministically() {
+        ClusterModel model = ClusterModel.generate(spec);
+        ClusterModel other = ClusterModel.generate(spec);
+        assertEquals(model.getTopics(), other.getTopics());
+        assertEquals(model.getConfigs(), other.getConfigs());
+        assertEquals(model.getConsumerGroups(), other.getConsumerGroups());
+    }
+
+    @Test
+    public void describeUnknownTopic() throws Exception {
+        try (SimulatedAdminClient adminClient = SimulatedAdminClient.create(spec)) {
+            DescribeTopicsResult result = adminClient.describeTopics(Arrays.asList("topic-0", "no-such-topic"));
+            TopicDescription desc = result.values().get("topic-0").get();
+            assertEquals(10, desc.partitions().size());
+            try {
+                result.values().get("no-such-topic").get();
+                fail("describing unknown topic should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof UnknownTopicOrPartitionException);
+            }
+        }
+    }
+
+    @Test
+    public void injectLatencyAndFailures() throws Exception {
+        CallSpec slow = new CallSpec();
+        slow.setLatencyMillis(200);
+        CallSpec failing = new CallSpec();
+        failing.setFailureRate(1);
+        Map<String, CallSpec> calls = new HashMap<>();
+        calls.put("describeCluster", slow);
+        calls.put("listTopics", failing);
+        spec.setCalls(calls);
+
+        try (SimulatedAdminClient adminClient = SimulatedAdminClient.create(spec)) {
+            long start = System.nanoTime();
+            assertEquals(5, adminClient.describeCluster().nodes().get().size());
+            assertTrue(System.nanoTime() - start >= 200_000_000L);
+
+            try {
+                adminClient.listTopics().names().get();
+                fail("listTopics should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            // Calls without overrides behave as defaults
+            assertEquals(Collections.singleton("group-0"),
+                         adminClient.describeConsumerGroups(Collections.singleton("group-0")).all().get()
+                                    .keySet());
+        }
+    }
+}
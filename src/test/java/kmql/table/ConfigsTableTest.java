@@ -1,17 +1,25 @@
 package kmql.table;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.Config;
@@ -21,12 +29,17 @@ import org.apache.kafka.clients.admin.DescribeConfigsResult;
 import org.apache.kafka.common.KafkaFuture;
 import org.apache.kafka.common.config.ConfigResource;
 import org.apache.kafka.common.config.ConfigResource.Type;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import kmql.KeyFilter;
 import kmql.SqlUtils;
 
 public class ConfigsTableTest {
@@ -73,4 +86,81 @@ public class ConfigsTableTest {
             }
         }
     }
+
+    private static Config config(String value) {
+        ConfigEntry entry = mock(ConfigEntry.class);
+        doReturn("retention.ms").when(entry).name();
+        doReturn(value).when(entry).value();
+        doReturn(ConfigSource.DYNAMIC_TOPIC_CONFIG).when(entry).source();
+        return new Config(Collections.singletonList(entry));
+    }
+
+    private static KafkaFuture<Config> failed(Exception e) {
+        KafkaFutureImpl<Config> future = new KafkaFutureImpl<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private void mockDescribeConfigs(Map<ConfigResource, KafkaFuture<Config>> values) {
+        DescribeConfigsResult result = mock(DescribeConfigsResult.class);
+        doReturn(values).when(result).values();
+        doReturn(result).when(adminClient).describeConfigs(any());
+    }
+
+    private static Connection connectionWithBroker() throws Exception {
+        Connection connection = SqlUtils.connection();
+        new BrokersTable().create(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO brokers (id, host, port, is_controller) VALUES (1, 'broker1', 9092, TRUE)");
+        }
+        return connection;
+    }
+
+    @Test
+    public void prepareFiltered() throws Exception {
+        Map<ConfigResource, KafkaFuture<Config>> values = new HashMap<>();
+        values.put(new ConfigResource(Type.BROKER, "1"), KafkaFuture.completedFuture(config("broker")));
+        values.put(new ConfigResource(Type.TOPIC, "1"), failed(new UnknownTopicOrPartitionException("1")));
+        values.put(new ConfigResource(Type.TOPIC, "topicA"), KafkaFuture.completedFuture(config("topic")));
+        values.put(new ConfigResource(Type.TOPIC, "2"), failed(new UnknownTopicOrPartitionException("2")));
+        mockDescribeConfigs(values);
+
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = connectionWithBroker()) {
+            table.create(connection);
+            table.prepare(connection, adminClient,
+                          new KeyFilter("name", new HashSet<>(Arrays.asList("1", "2", "topicA"))));
+
+            try (Statement stmt = connection.createStatement();
+                 ResultSet results = stmt.executeQuery(
+                         "SELECT resource_type, name, value FROM configs ORDER BY (resource_type, name)")) {
+                while (results.next()) {
+                    rows.add(results.getString(1) + ':' + results.getString(2) + '=' + results.getString(3));
+                }
+            }
+        }
+        // A name of an existing broker is described as both a broker and a topic, and any other name only as
+        // a topic, skipping the ones that don't exist as topics
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<ConfigResource>> resources = ArgumentCaptor.forClass(Collection.class);
+        verify(adminClient).describeConfigs(resources.capture());
+        assertEquals(values.keySet(), new HashSet<>(resources.getValue()));
+        assertEquals(Arrays.asList("broker:1=broker", "topic:topicA=topic"), rows);
+    }
+
+    @Test
+    public void prepareFilteredFailure() throws Exception {
+        TimeoutException error = new TimeoutException("timed out");
+        Map<ConfigResource, KafkaFuture<Config>> values = new HashMap<>();
+        values.put(new ConfigResource(Type.TOPIC, "topicA"), failed(error));
+        mockDescribeConfigs(values);
+
+        try (Connection connection = connectionWithBroker()) {
+            table.create(connection);
+            table.prepare(connection, adminClient, new KeyFilter("name", Collections.singleton("topicA")));
+            fail("other errors than unknown topics should fail the prepare");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
 }
@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -11,6 +13,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +37,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import kmql.KeyFilter;
 import kmql.SqlUtils;
 import lombok.Value;
 
@@ -193,4 +197,50 @@ public class ConsumersTableTest {
             }
         }
     }
+
+    @Test
+    public void prepareFiltered() throws Exception {
+        Map<String, ConsumerGroupDescription> descMap = new HashMap<>();
+        descMap.put("group1", new ConsumerGroupDescription(
+                "group1",
+                false,
+                Collections.singletonList(
+                        new MemberDescription("member1", "client1", "host1.com",
+                                              new MemberAssignment(Collections.singleton(
+                                                      new TopicPartition("topicA", 1))))),
+                "range",
+                ConsumerGroupState.STABLE,
+                new Node(1, "broker1.com", 1234)));
+        // A group that doesn't exist is described as a dead group without members
+        descMap.put("missing", new ConsumerGroupDescription(
+                "missing",
+                false,
+                Collections.emptyList(),
+                "",
+                ConsumerGroupState.DEAD,
+                new Node(1, "broker1.com", 1234)));
+
+        mockAdminClient(descMap);
+
+        KeyFilter filter = new KeyFilter("group_id", new HashSet<>(Arrays.asList("group1", "missing")));
+        List<Row> rows = new ArrayList<>();
+        try (Connection connection = SqlUtils.connection()) {
+            table.create(connection);
+            table.prepare(connection, adminClient, filter);
+
+            try (Statement stmt = connection.createStatement();
+                 ResultSet results = stmt.executeQuery("SELECT * FROM consumers")) {
+                while (results.next()) {
+                    rows.add(Row.fromResults(results));
+                }
+            }
+        }
+
+        // Only the groups in the filter are described, without listing all groups
+        verify(adminClient).describeConsumerGroups(filter.getValues());
+        verify(adminClient, never()).listConsumerGroups();
+        assertEquals(Collections.singletonList(
+                new Row("group1", 1, "range", ConsumerGroupState.STABLE.toString(),
+                        "client1", "member1", "host1.com", null, "topicA", 1)), rows);
+    }
 }
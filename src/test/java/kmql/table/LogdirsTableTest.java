@@ -0,0 +1,76 @@
+package kmql.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeLogDirsResult;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.ReplicaInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import kmql.KeyFilter;
+import kmql.SqlUtils;
+
+public class LogdirsTableTest {
+    @Rule
+    public final MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private AdminClient adminClient;
+
+    private final LogdirsTable table = new LogdirsTable();
+
+    @Test
+    public void prepareFiltered() throws Exception {
+        Map<Integer, Map<String, LogDirInfo>> logDirs = Collections.singletonMap(
+                1, Collections.singletonMap("/data", new LogDirInfo(Errors.NONE, Collections.singletonMap(
+                        new TopicPartition("topicA", 0), new ReplicaInfo(1000, 0, false)))));
+        DescribeLogDirsResult result = mock(DescribeLogDirsResult.class);
+        doReturn(KafkaFuture.completedFuture(logDirs)).when(result).all();
+        doReturn(result).when(adminClient).describeLogDirs(any());
+
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = SqlUtils.connection()) {
+            new BrokersTable().create(connection);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO brokers (id, host, port, is_controller)"
+                             + " VALUES (1, 'broker1', 9092, TRUE), (2, 'broker2', 9092, FALSE)");
+            }
+            table.create(connection);
+            // Broker 3 doesn't exist, so it's not described at all
+            table.prepare(connection, adminClient,
+                          new KeyFilter("broker_id", new HashSet<>(Arrays.asList("1", "3"))));
+
+            try (Statement stmt = connection.createStatement();
+                 ResultSet results = stmt.executeQuery("SELECT broker_id, path, topic, partition, size FROM logdirs")) {
+                while (results.next()) {
+                    rows.add(String.format("%d %s %s-%d %d", results.getInt(1), results.getString(2),
+                                           results.getString(3), results.getInt(4), results.getLong(5)));
+                }
+            }
+        }
+        verify(adminClient).describeLogDirs(Collections.singletonList(1));
+        assertEquals(Collections.singletonList("1 /data topicA-0 1000"), rows);
+    }
+}
@@ -0,0 +1,142 @@
+package kmql.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import kmql.KeyFilter;
+import kmql.SqlUtils;
+
+public class ReplicasTableTest {
+    private static final List<Node> NODES = Arrays.asList(new Node(1, "broker1.com", 1234),
+                                                          new Node(2, "broker2.com", 1234));
+
+    @Rule
+    public final MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private AdminClient adminClient;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private static TopicDescription topicDescription(String topic) {
+        List<TopicPartitionInfo> partitions = Arrays.asList(
+                new TopicPartitionInfo(0, NODES.get(0), NODES, NODES),
+                new TopicPartitionInfo(1, NODES.get(1), NODES, NODES.subList(1, 2)));
+        return new TopicDescription(topic, false, partitions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockAdminClient(Set<String> topics) {
+        ListTopicsResult listResult = mock(ListTopicsResult.class);
+        doReturn(KafkaFuture.completedFuture(topics)).when(listResult).names();
+        doReturn(listResult).when(adminClient).listTopics(any(ListTopicsOptions.class));
+
+        doAnswer(invocation -> {
+            Collection<String> names = invocation.getArgument(0);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Map<String, TopicDescription> descriptions = new HashMap<>();
+            for (String name : names) {
+                descriptions.put(name, topicDescription(name));
+            }
+            KafkaFuture<Map<String, TopicDescription>> future = mock(KafkaFuture.class);
+            doAnswer(ignored -> {
+                inFlight.decrementAndGet();
+                return descriptions;
+            }).when(future).get();
+            DescribeTopicsResult result = mock(DescribeTopicsResult.class);
+            doReturn(future).when(result).all();
+            return result;
+        }).when(adminClient).describeTopics(anyCollection());
+    }
+
+    @Test
+    public void prepareInChunks() throws Exception {
+        Set<String> topics = new HashSet<>();
+        for (int i = 0; i < 7; i++) {
+            topics.add("topic-" + i);
+        }
+        mockAdminClient(topics);
+
+        ReplicasTable table = new ReplicasTable(2, 2);
+        try (Connection connection = SqlUtils.connection()) {
+            table.create(connection);
+            table.prepare(connection, adminClient);
+
+            try (Statement stmt = connection.createStatement();
+                 ResultSet results = stmt.executeQuery(
+                         "SELECT COUNT(DISTINCT topic), COUNT(*), COUNT(CASE WHEN is_in_sync THEN 1 END)"
+                         + " FROM replicas")) {
+                results.next();
+                assertEquals(7, results.getInt(1));
+                assertEquals(7 * 2 * 2, results.getInt(2));
+                assertEquals(7 * 3, results.getInt(3));
+            }
+        }
+        verify(adminClient, times(4)).describeTopics(anyCollection());
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    public void prepareWithFilter() throws Exception {
+        DescribeTopicsResult result = mock(DescribeTopicsResult.class);
+        Map<String, KafkaFuture<TopicDescription>> futures = new HashMap<>();
+        futures.put("topic-a", KafkaFuture.completedFuture(topicDescription("topic-a")));
+        KafkaFutureImpl<TopicDescription> unknownFuture = new KafkaFutureImpl<>();
+        unknownFuture.completeExceptionally(new UnknownTopicOrPartitionException("no such topic"));
+        futures.put("topic-unknown", unknownFuture);
+        doReturn(futures).when(result).values();
+        doReturn(result).when(adminClient).describeTopics(anyCollection());
+
+        ReplicasTable table = new ReplicasTable();
+        try (Connection connection = SqlUtils.connection()) {
+            table.create(connection);
+            table.prepare(connection, adminClient,
+                          new KeyFilter("topic", new HashSet<>(Arrays.asList("topic-a", "topic-unknown"))));
+
+            try (Statement stmt = connection.createStatement();
+                 ResultSet results = stmt.executeQuery("SELECT DISTINCT topic FROM replicas")) {
+                results.next();
+                assertEquals("topic-a", results.getString(1));
+                assertFalse(results.next());
+            }
+        }
+        verify(adminClient, never()).listTopics(any(ListTopicsOptions.class));
+    }
+}